@@ -6,9 +6,11 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableAsync  // Enable async support for background loading
+@EnableScheduling  // Reservation flush/expiry jobs
 public class SupplyGate26514Application implements CommandLineRunner {
 
     @Autowired
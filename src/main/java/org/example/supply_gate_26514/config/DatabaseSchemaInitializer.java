@@ -0,0 +1,110 @@
+package org.example.supply_gate_26514.config;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Applies PostgreSQL-specific schema objects that JPA annotations cannot express
+ * (partial indexes, check constraints, backfills of derived columns).
+ *
+ * Runs after Hibernate has updated the schema (ddl-auto: update), so the tables and
+ * columns referenced here already exist. Every statement is idempotent and safe to
+ * run on each startup; a failing statement is logged and does not stop the application.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class DatabaseSchemaInitializer {
+
+    private static final List<String> STATEMENTS = List.of(
+            // Public catalog: only verified products, default sort by name
+            "CREATE INDEX IF NOT EXISTS idx_products_verified_name " +
+            "ON products (product_name) WHERE supplier_verified",
+            "CREATE INDEX IF NOT EXISTS idx_products_verified_created " +
+            "ON products (creation_date DESC) WHERE supplier_verified",
+
+            // Backfill supplier_verified for rows written before the column existed
+            // (only touches rows whose flag disagrees with the verification table)
+            "UPDATE products p SET supplier_verified = st.approved " +
+            "FROM (SELECT s.store_id, EXISTS (SELECT 1 FROM verifications v " +
+            "      WHERE v.user_id = s.user_id AND v.status = 'APPROVED') AS approved " +
+            "      FROM stores s) st " +
+            "WHERE p.store_id = st.store_id AND p.supplier_verified IS DISTINCT FROM st.approved",
+
+            // Numeric stock: derive it from the leading number of the free-form quantity label
+            // ("250 kg" -> 250); labels without a number leave stock untracked (NULL)
+            "UPDATE products SET stock_quantity = substring(quantity from '^\\s*(\\d{1,9})')::integer " +
+            "WHERE stock_quantity IS NULL AND quantity ~ '^\\s*\\d'",
+            // Leases used to be a single products.stock_leased counter for all nodes (now stock_lease,
+            // per node): give back what a previous version left there, then drop the column
+            "DO $$ BEGIN " +
+            "IF EXISTS (SELECT 1 FROM information_schema.columns " +
+            "WHERE table_name = 'products' AND column_name = 'stock_leased') THEN " +
+            "UPDATE products SET stock_quantity = stock_quantity + stock_leased WHERE stock_leased > 0; " +
+            "ALTER TABLE products DROP CONSTRAINT IF EXISTS chk_products_stock_non_negative; " +
+            "ALTER TABLE products DROP COLUMN stock_leased; " +
+            "END IF; END $$",
+            // Last line of defence against overselling, whatever code path writes stock
+            "DO $$ BEGIN " +
+            "IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'chk_products_stock_non_negative') THEN " +
+            "ALTER TABLE products ADD CONSTRAINT chk_products_stock_non_negative CHECK (stock_quantity >= 0); " +
+            "END IF; " +
+            "IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'chk_stock_lease_units_non_negative') THEN " +
+            "ALTER TABLE stock_lease ADD CONSTRAINT chk_stock_lease_units_non_negative CHECK (units >= 0); " +
+            "END IF; END $$",
+            // Version counters behind the catalog ETags (see TableVersionService): rows for the tracked
+            // tables, so Last-Modified is the first startup rather than 1970 until their first write
+            "INSERT INTO table_version (table_name, version, last_modified) " +
+            "SELECT t, 0, (extract(epoch FROM date_trunc('second', now())) * 1000)::bigint " +
+            "FROM unnest(ARRAY['products', 'product_images', 'categories', 'stores', 'users', " +
+            "'administrative_structure']) AS t " +
+            "ON CONFLICT (table_name) DO NOTHING",
+
+            // Expiry job scans active reservations by expiry time
+            "CREATE INDEX IF NOT EXISTS idx_stock_reservations_active_expiry " +
+            "ON stock_reservations (expires_at) WHERE status = 'ACTIVE'",
+            "CREATE INDEX IF NOT EXISTS idx_stock_reservations_user " +
+            "ON stock_reservations (user_id, creation_date DESC)",
+
+            // Catalog read model: refresh scopes look products up by store, category and image owner.
+            // Filtered listings use the same keys with a price range or newest first, so the
+            // composites serve both (their leading column replaces the former single-column indexes)
+            "DROP INDEX IF EXISTS idx_products_store",
+            "DROP INDEX IF EXISTS idx_products_category",
+            "CREATE INDEX IF NOT EXISTS idx_products_store_created ON products (store_id, creation_date DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_products_category_price ON products (category_id, product_price)",
+            "CREATE INDEX IF NOT EXISTS idx_products_name ON products (product_name)",
+            "CREATE INDEX IF NOT EXISTS idx_product_images_product ON product_images (product_id)",
+            // ... and entries by the same keys; listings sort by name or newest first
+            "DROP INDEX IF EXISTS idx_catalog_entry_store",
+            "DROP INDEX IF EXISTS idx_catalog_entry_category",
+            "CREATE INDEX IF NOT EXISTS idx_catalog_entry_store_created ON catalog_entry (store_id, creation_date DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_catalog_entry_category_price ON catalog_entry (category_id, product_price)",
+            "CREATE INDEX IF NOT EXISTS idx_catalog_entry_supplier ON catalog_entry (supplier_id)",
+            "CREATE INDEX IF NOT EXISTS idx_catalog_entry_name ON catalog_entry (product_name)",
+            "CREATE INDEX IF NOT EXISTS idx_catalog_entry_created ON catalog_entry (creation_date DESC)",
+            // Substring search; skipped (logged) where the pg_trgm extension cannot be installed
+            "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+            "CREATE INDEX IF NOT EXISTS idx_catalog_entry_search " +
+            "ON catalog_entry USING gin (search_text gin_trgm_ops)"
+    );
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void applySchemaStatements() {
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                System.err.println("Schema statement failed (continuing): " + e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
@@ -53,9 +53,11 @@ public class SecurityConfig {
                                 "/api/auth/companies",
                                 "/api/location/**",
                                 "/api/products/getProducts",  // Public product listings for website
+                                "/api/products/details/*",    // Public product pages (verified suppliers only)
                                 "/api/images/**",              // Product images
                                 "/api/messages/send",          // Public: Allow visitors to send messages to suppliers
                                 "/api/search",                 // Global search (public for products, role-based for other entities)
+                                "/actuator/health",            // Liveness for load balancers (no details)
                                 "/v2/api-docs",
                                 "/v3/api-docs",
                                 "/v3/api-docs/**",
@@ -4,15 +4,18 @@ import jakarta.validation.Valid;
 import org.example.supply_gate_26514.dto.CategoryDto;
 import org.example.supply_gate_26514.dto.CategoryResponseDto;
 import org.example.supply_gate_26514.service.CategoryService;
+import org.example.supply_gate_26514.service.TableVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -21,12 +24,19 @@ import java.util.UUID;
 @RestController
 @RequestMapping("api/categories")
 public class CategoryController {
+    // Endpoint requires authentication, so only the browser may cache it (always revalidated)
+    private static final CacheControl CATEGORIES_CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
     @Autowired
     CategoryService categoryService;
+
+    @Autowired
+    TableVersionService tableVersionService;
     
     /**
      * Get all categories (paginated with search).
      * Requires authentication.
+     * Answers a matching If-None-Match with 304 without querying the database.
      * 
      * @param pageable Pagination parameters (page, size, sort)
      * @param search Optional search term to filter categories
@@ -34,9 +44,20 @@ public class CategoryController {
     @GetMapping("categories")
     public ResponseEntity<Page<CategoryResponseDto>> getCategories(
             @PageableDefault(size = 20, sort = "categoryName") Pageable pageable,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) String search,
+            WebRequest webRequest) {
+        String eTag = tableVersionService.eTag(TableVersionService.CATEGORIES);
+        long lastModified = tableVersionService.lastModified(TableVersionService.CATEGORIES);
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CATEGORIES_CACHE_CONTROL).build();
+        }
+
         Page<CategoryResponseDto> categories = categoryService.getAllCategories(pageable, search);
-        return ResponseEntity.ok(categories);
+        return ResponseEntity.ok()
+                .cacheControl(CATEGORIES_CACHE_CONTROL)
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(categories);
     }
     @PostMapping("createCategory")
     public CategoryResponseDto createCategory(@Valid @RequestBody CategoryDto dto){
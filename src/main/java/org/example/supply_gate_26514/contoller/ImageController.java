@@ -1,16 +1,26 @@
 package org.example.supply_gate_26514.contoller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.example.supply_gate_26514.service.FileStorageService;
+import org.example.supply_gate_26514.service.ImageVariantService;
+import org.example.supply_gate_26514.service.StorageBackend;
+import org.example.supply_gate_26514.util.FileResponseWriter;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 /**
  * Controller for serving uploaded images.
@@ -25,34 +35,156 @@ public class ImageController {
     @Autowired
     private FileStorageService fileStorageService;
     
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private FileResponseWriter fileResponseWriter;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    // Send clients to the storage backend (presigned URL) instead of streaming the bytes through the JVM
+    @Value("${app.storage.redirect-to-presigned:true}")
+    private boolean redirectToPresigned;
+    
+    @Value("${app.storage.presign-ttl-seconds:900}")
+    private long presignTtlSeconds;
+    
+    private static final String VARIANTS_PREFIX = "variants/";
+    
+    // "{sha256}.{ext}" (content-addressed) or "{random UUID}-{name}" (files stored before that)
+    private static final Pattern STORED_FILE_NAME =
+            Pattern.compile("^([0-9a-f]{64}\\.[a-z0-9]+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}-.+)$");
+    
     /**
      * Serves an image file.
+     * Supports conditional requests (content-hash ETag, Last-Modified) and single byte ranges
+     * (resumable downloads of large documents); see FileResponseWriter.
+     * With a remote storage backend (S3) the client is redirected to a short-lived presigned URL
+     * of the object, so the bytes do not pass through the application; the bucket answers
+     * conditional and range requests itself.
      * 
-     * @param path Relative path to the image (e.g., "products/uuid-filename.jpg")
-     * @return Image file as resource
+     * @param path Relative path to the image (e.g., "products/3f/a1/3fa1...c2.jpg"; paths in the
+     *             older flat layout are found as well, see FileStorageService.locate)
+     * @param size Optional variant: thumb (200px), card (600px) or full (1600px).
+     *             Served from a downscaled rendition (for a PDF, its first page as PNG), generated
+     *             now if missing; the original is served if it is already that small or cannot be resized.
+     * @return The file (written directly to the response), 302 to the presigned URL, 400 for an
+     *         unknown size or a path outside the upload directory, 404 if the file does not exist
      */
     @GetMapping
-    public ResponseEntity<Resource> serveImage(@RequestParam String path) {
+    public ResponseEntity<Void> serveImage(@RequestParam String path,
+                                           @RequestParam(required = false) String size,
+                                           HttpServletRequest request,
+                                           HttpServletResponse response) {
         try {
-            Path filePath = fileStorageService.getFilePath(path);
-            Resource resource = new UrlResource(filePath.toUri());
+            String key;
+            String cacheControl;
+            boolean verificationDocument;
+            try {
+                // SECURITY: rejects paths that leave the upload directory
+                // Paths saved before the sharded layout still work, during and after the migration
+                key = fileStorageService.locate(path);
+                // SECURITY: decided on the normalized key of the original, never on the raw parameter
+                // ("./verifications/..." is the same file), and applied to its variants as well,
+                // including a variant requested by its own key ("variants/card/verifications/...")
+                verificationDocument = key != null && isVerificationDocument(key);
+                cacheControl = key != null ? cacheControl(key) : null;
+                if (key != null && size != null && !size.isBlank()) {
+                    key = imageVariantService.getVariant(key, ImageVariantService.Variant.fromName(size));
+                }
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+            if (key == null) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            if (redirectToPresigned) {
+                Duration validity = Duration.ofSeconds(presignTtlSeconds);
+                URI presigned = storageBackend.presignedGetUrl(key, validity);
+                if (presigned != null) {
+                    // The redirect may be reused while the URL is still valid for a while
+                    CacheControl redirectCache = CacheControl.maxAge(validity.dividedBy(2));
+                    return ResponseEntity.status(HttpStatus.FOUND)
+                            .location(presigned)
+                            .cacheControl(verificationDocument ? redirectCache.cachePrivate() : redirectCache.cachePublic())
+                            .build();
+                }
+            }
             
-            if (resource.exists() && resource.isReadable()) {
-                // Determine content type
-                String contentType = determineContentType(path);
-                
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + resource.getFilename() + "\"")
-                        .body(resource);
+            // Determine content type (from the served file: a variant may be re-encoded)
+            String fileName = key.substring(key.lastIndexOf('/') + 1);
+            String contentType = determineContentType(fileName);
+            Path filePath = storageBackend.localPath(key);
+            if (filePath != null) {
+                if (!Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+                    return ResponseEntity.notFound().build();
+                }
+                setFileHeaders(response, fileName);
+                // Verification documents are rarely read twice; keep the memory for product images
+                fileResponseWriter.write(filePath, contentType, cacheControl, !verificationDocument, request, response);
             } else {
-                return ResponseEntity.notFound().build();
+                Optional<StorageBackend.ObjectInfo> info = storageBackend.stat(key);
+                if (info.isEmpty()) {
+                    return ResponseEntity.notFound().build();
+                }
+                setFileHeaders(response, fileName);
+                fileResponseWriter.write(storageBackend, key, info.get(), contentType, cacheControl, request, response);
             }
+            // Response already written
+            return null;
         } catch (Exception e) {
+            if (response.isCommitted()) {
+                // Client went away mid-transfer (or similar): nothing left to report
+                return null;
+            }
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
+    private static void setFileHeaders(HttpServletResponse response, String fileName) {
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"");
+        response.setHeader("X-Content-Type-Options", "nosniff");
+    }
+    
+    /**
+     * Files stored by FileStorageService are named after their content hash (older ones
+     * "{random UUID}-{name}") and never overwritten, so a URL always denotes the same content
+     * and can be cached for good. Variants are derived from that content and cached the same way.
+     * SECURITY: Verification documents are personal data and must not be kept by shared caches.
+     *
+     * @param key Normalized key of the original file, or of a variant requested by its own key
+     *            (see FileStorageService.locate)
+     */
+    static String cacheControl(String key) {
+        String fileName = key.substring(key.lastIndexOf('/') + 1);
+        boolean verificationDocument = isVerificationDocument(key);
+        // Unknown naming: always revalidate (cheap thanks to the ETag)
+        CacheControl cacheControl = STORED_FILE_NAME.matcher(fileName).matches()
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).immutable()
+                : CacheControl.noCache();
+        return (verificationDocument ? cacheControl.cachePrivate() : cacheControl.cachePublic()).getHeaderValue();
+    }
+    
+    /**
+     * Whether a key is a verification document or one of its variants
+     * ("variants/{size}/verifications/..."; see ImageVariantService).
+     *
+     * @param key Normalized key (see FileStorageService.locate)
+     */
+    static boolean isVerificationDocument(String key) {
+        while (key.startsWith(VARIANTS_PREFIX)) {
+            int sizeEnd = key.indexOf('/', VARIANTS_PREFIX.length());
+            if (sizeEnd < 0) {
+                return false;
+            }
+            key = key.substring(sizeEnd + 1);
+        }
+        return key.startsWith("verifications/");
+    }
+    
     /**
      * Determines content type based on file extension.
      * Supports both images and documents (PDF).
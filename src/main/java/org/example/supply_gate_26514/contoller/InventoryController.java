@@ -0,0 +1,123 @@
+package org.example.supply_gate_26514.contoller;
+
+import jakarta.validation.Valid;
+import org.example.supply_gate_26514.dto.StockReservationDto;
+import org.example.supply_gate_26514.dto.StockReservationResponseDto;
+import org.example.supply_gate_26514.dto.StockUpdateDto;
+import org.example.supply_gate_26514.service.InsufficientStockException;
+import org.example.supply_gate_26514.service.InventoryReservationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/inventory")
+public class InventoryController {
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    /**
+     * Reserve units of a product for the authenticated buyer.
+     * The units are held until the reservation is confirmed, released or expires.
+     * Requires authentication.
+     *
+     * @return 201 with the reservation, 404 if the product does not exist, 409 if stock is insufficient
+     */
+    @PostMapping("/reservations")
+    public ResponseEntity<?> reserve(@Valid @RequestBody StockReservationDto reservationDto) {
+        try {
+            StockReservationResponseDto reservation =
+                    inventoryReservationService.reserve(reservationDto.productId(), reservationDto.quantity());
+            return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Get reservations of the authenticated buyer (paginated, newest first).
+     * Requires authentication.
+     */
+    @GetMapping("/reservations")
+    public ResponseEntity<Page<StockReservationResponseDto>> getMyReservations(
+            @PageableDefault(size = 20) Pageable pageable) {
+        try {
+            return ResponseEntity.ok(inventoryReservationService.getMyReservations(pageable));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Confirm an active reservation of the authenticated buyer.
+     * Requires authentication.
+     */
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<?> confirm(@PathVariable UUID reservationId) {
+        try {
+            inventoryReservationService.confirm(reservationId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Release an active reservation of the authenticated buyer; its units go back to stock.
+     * Requires authentication.
+     */
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<?> release(@PathVariable UUID reservationId) {
+        try {
+            inventoryReservationService.release(reservationId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Set the available stock of a product owned by the authenticated supplier.
+     * SECURITY: Only the owner of the product's store can change its stock.
+     */
+    @PutMapping("/products/{productId}/stock")
+    public ResponseEntity<?> updateStock(@PathVariable UUID productId, @Valid @RequestBody StockUpdateDto stockUpdateDto) {
+        try {
+            inventoryReservationService.updateStock(productId, stockUpdateDto.stockQuantity());
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<?> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        var errors = new HashMap<String, String>();
+        ex.getBindingResult().getAllErrors().forEach(error -> {
+            var fieldName = ((FieldError) error).getField();
+            var errorMsg = error.getDefaultMessage();
+            errors.put(fieldName, errorMsg);
+        });
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+}
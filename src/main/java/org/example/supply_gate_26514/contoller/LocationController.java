@@ -2,23 +2,34 @@ package org.example.supply_gate_26514.contoller;
 
 import org.example.supply_gate_26514.model.Location;
 import org.example.supply_gate_26514.service.LocationService;
+import org.example.supply_gate_26514.service.TableVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/location")
 public class LocationController {
+    // Administrative structure is reference data that rarely changes
+    private static final CacheControl STRUCTURES_CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1)).cachePublic();
+
     @Autowired
     private LocationService locationService;
 
+    @Autowired
+    private TableVersionService tableVersionService;
+
     @PostMapping(value = "/addOrganisationStructure", consumes = "application/json", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<?> addOrganisationStructure(@RequestParam(required = false) String parentCode,@RequestBody Location location) {
         String result = locationService.saveGovernmentStructure(parentCode, location);
@@ -43,9 +54,23 @@ public class LocationController {
         return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 
     }
+    /**
+     * Get all government structures.
+     * Public reference data: cacheable for an hour, then revalidated with the version-stamped ETag.
+     */
     @GetMapping("/getGovernmentStructures")
-    public ResponseEntity<?> getGovernmentStructure() {
-        return locationService.getGovernmentStructures();
+    public ResponseEntity<List<Location>> getGovernmentStructure(WebRequest webRequest) {
+        String eTag = tableVersionService.eTag(TableVersionService.LOCATIONS);
+        long lastModified = tableVersionService.lastModified(TableVersionService.LOCATIONS);
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(STRUCTURES_CACHE_CONTROL).build();
+        }
+
+        return ResponseEntity.ok()
+                .cacheControl(STRUCTURES_CACHE_CONTROL)
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(locationService.getGovernmentStructures());
     }
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
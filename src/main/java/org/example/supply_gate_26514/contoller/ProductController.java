@@ -1,18 +1,36 @@
 package org.example.supply_gate_26514.contoller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.example.supply_gate_26514.dto.ProductBulkUpdateDto;
 import org.example.supply_gate_26514.dto.ProductDto;
+import org.example.supply_gate_26514.dto.ProductFilter;
+import org.example.supply_gate_26514.dto.ProductImportResultDto;
 import org.example.supply_gate_26514.dto.ProductResponseDto;
+import org.example.supply_gate_26514.service.ProductBulkUpdateService;
+import org.example.supply_gate_26514.service.ProductEngagementService;
+import org.example.supply_gate_26514.service.ProductExportService;
+import org.example.supply_gate_26514.service.ProductImportService;
 import org.example.supply_gate_26514.service.ProductService;
+import org.example.supply_gate_26514.service.TableVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
@@ -20,33 +38,115 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/api/products")
 public class ProductController {
+    // Tables whose rows appear in a catalog listing (product, images, category, store and supplier names;
+    // USERS only counts changes of those names, not logins)
+    private static final String[] CATALOG_TABLES = {
+            TableVersionService.PRODUCTS, TableVersionService.PRODUCT_IMAGES, TableVersionService.CATEGORIES,
+            TableVersionService.STORES, TableVersionService.USERS
+    };
+
+    // Same response for every visitor; shared caches may store it but must revalidate on each use
+    private static final CacheControl CATALOG_CACHE_CONTROL = CacheControl.noCache().cachePublic();
+
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private ProductImportService productImportService;
+
+    @Autowired
+    private ProductExportService productExportService;
+
+    @Autowired
+    private ProductEngagementService productEngagementService;
+
+    @Autowired
+    private ProductBulkUpdateService productBulkUpdateService;
 
     /**
-     * Get all products (paginated with search).
+     * Get all products (paginated with search and filters).
      * For anonymous users: Returns all products by default, with optional filter for verified suppliers only.
+     * Only the filters that are given are applied; price and stock bounds are inclusive.
+     * Responses carry a version-stamped ETag; a matching If-None-Match is answered with 304
+     * before any query runs.
      * 
      * @param pageable Pagination parameters (page, size, sort)
      * @param search Optional search term to filter products
      * @param verifiedOnly Optional filter to show only products from verified suppliers (default: false)
-     * @return Page of products (all products by default, or only verified if verifiedOnly=true)
+     * @param categoryId Optional category
+     * @param storeId Optional store
+     * @param minPrice Optional lowest price
+     * @param maxPrice Optional highest price
+     * @param createdFrom Optional first creation day (yyyy-MM-dd)
+     * @param createdTo Optional last creation day (yyyy-MM-dd, included)
+     * @param minStock Optional lowest stock quantity
+     * @param maxStock Optional highest stock quantity
+     * @return Page of products (all products by default, or only verified if verifiedOnly=true),
+     *         or 400 if a lower bound is greater than its upper bound
      */
     @GetMapping("/getProducts")
-    public Page<ProductResponseDto> getAllProducts(
+    public ResponseEntity<Page<ProductResponseDto>> getAllProducts(
             @PageableDefault(size = 10, sort = "productName") Pageable pageable,
             @RequestParam(required = false) String search,
-            @RequestParam(required = false, defaultValue = "false") boolean verifiedOnly) {
+            @RequestParam(required = false, defaultValue = "false") boolean verifiedOnly,
+            @RequestParam(required = false) UUID categoryId,
+            @RequestParam(required = false) UUID storeId,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate createdTo,
+            @RequestParam(required = false) Integer minStock,
+            @RequestParam(required = false) Integer maxStock,
+            WebRequest webRequest) {
+        ProductFilter filter;
+        try {
+            filter = new ProductFilter(search, categoryId, storeId, minPrice, maxPrice,
+                    createdFrom, createdTo, minStock, maxStock);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        String eTag = tableVersionService.eTag(CATALOG_TABLES);
+        long lastModified = tableVersionService.lastModified(CATALOG_TABLES);
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CATALOG_CACHE_CONTROL).build();
+        }
+
         // If verifiedOnly is true, filter to only verified suppliers
         // Otherwise, return all products in the system
-        if (verifiedOnly) {
-            return productService.getPublicProducts(pageable, search);
-        } else {
-            return productService.getAllProducts(pageable, search);
-        }
+        Page<ProductResponseDto> products = verifiedOnly
+                ? productService.getPublicProducts(pageable, filter)
+                : productService.getAllProducts(pageable, filter);
+        // Only pages actually sent count as impressions (a 304 means the client already has them)
+        productEngagementService.recordImpressions(
+                products.getContent().stream().map(ProductResponseDto::productId).toList());
+        return ResponseEntity.ok()
+                .cacheControl(CATALOG_CACHE_CONTROL)
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(products);
     }
     
+    /**
+     * Get one product for the public product page, and count it as a product view.
+     * SECURITY: Only products of verified suppliers are returned (same rule as public listings).
+     *
+     * @param id Product ID
+     * @return The product, or 404 if it does not exist or is not public
+     */
+    @GetMapping("/details/{id}")
+    public ResponseEntity<ProductResponseDto> getProductDetails(@PathVariable("id") UUID id) {
+        ProductResponseDto product = productService.getPublicProductById(id);
+        if (product == null) {
+            return ResponseEntity.notFound().build();
+        }
+        productEngagementService.recordView(id);
+        return ResponseEntity.ok(product);
+    }
+
     /**
      * Get all products including unverified suppliers (for authenticated admin/internal use).
      * SECURITY: This endpoint should be protected and only accessible to authorized users.
@@ -61,16 +161,121 @@ public class ProductController {
             @PageableDefault(size = 10, sort = "productName") Pageable pageable,
             @RequestParam(required = false) String search) {
         // For internal/admin use - shows all products regardless of verification status
-        return productService.getAllProducts(pageable, search);
+        return productService.getAllProducts(pageable, ProductFilter.ofSearch(search));
     }
+    /**
+     * Create a product in a store of the authenticated supplier.
+     * SECURITY: Only the owner of the store can add products to it.
+     */
     @PostMapping("createAProduct")
-    @ResponseStatus(HttpStatus.CREATED)
-    public ProductResponseDto createProduct(@RequestBody ProductDto productDto) {
-        return productService.addAProduct(productDto);
+    public ResponseEntity<?> createProduct(@Valid @RequestBody ProductDto productDto) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(productService.addAProduct(productDto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+    /**
+     * Bulk import of products into the authenticated supplier's stores.
+     * The body is streamed: CSV with a header row (Content-Type text/csv) or one JSON object per
+     * line (Content-Type application/x-ndjson). Columns/properties: productName, productDescription,
+     * productPrice, quantity, stockQuantity (optional), categoryId or categoryName,
+     * storeId or storeName (optional with one store).
+     * Requires authentication.
+     *
+     * @param chunkSize Optional number of rows per batch insert and transaction
+     * @return Import summary with per-row errors (invalid rows are skipped, valid rows are imported);
+     *         400 with the summary so far if the file could not be read to the end
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "application/ndjson"})
+    public ResponseEntity<?> importProducts(HttpServletRequest request,
+                                            @RequestParam(required = false) Integer chunkSize) {
+        try {
+            ProductImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                    .isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                    ? ProductImportService.Format.CSV
+                    : ProductImportService.Format.NDJSON;
+            ProductImportResultDto result = productImportService.importProducts(request.getInputStream(), format, chunkSize);
+            // Interrupted: still the report, rows up to lastRowRead are committed
+            return result.complete() ? ResponseEntity.ok(result) : ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Could not read import file: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+    /**
+     * Export the catalog as NDJSON (default) or CSV.
+     * The response is streamed from a database cursor, so it starts immediately and
+     * memory use does not grow with the catalog size.
+     * Requires authentication.
+     *
+     * @param format ndjson or csv
+     * @param verifiedOnly Only export products of verified suppliers (default: false)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(required = false, defaultValue = "ndjson") String format,
+            @RequestParam(required = false, defaultValue = "false") boolean verifiedOnly) {
+        ProductExportService.Format exportFormat;
+        MediaType contentType;
+        if ("csv".equalsIgnoreCase(format)) {
+            exportFormat = ProductExportService.Format.CSV;
+            contentType = MediaType.parseMediaType("text/csv;charset=UTF-8");
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            exportFormat = ProductExportService.Format.NDJSON;
+            contentType = MediaType.APPLICATION_NDJSON;
+        } else {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        }
+
+        String fileName = "catalog-" + LocalDate.now() + "." + exportFormat.name().toLowerCase();
+        StreamingResponseBody body = out -> productExportService.exportProducts(out, exportFormat, verifiedOnly);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
     }
+    /**
+     * Update a product of the authenticated supplier.
+     * SECURITY: Only the owner of the product's store can change it, and only move it to one of
+     * their own stores.
+     */
     @PutMapping("{id}")
-    public ProductResponseDto updateProduct(@PathVariable("id") UUID id, @RequestBody ProductDto productDto) {
-        return productService.updateProduct(id,productDto);
+    public ResponseEntity<?> updateProduct(@PathVariable("id") UUID id, @Valid @RequestBody ProductDto productDto) {
+        try {
+            return ResponseEntity.ok(productService.updateProduct(id,productDto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+    /**
+     * Bulk price and/or stock update of the authenticated supplier's products.
+     * Applied in one transaction: either every change is written or none.
+     * Requires authentication.
+     *
+     * @param bulkUpdate Up to 10000 items of productId with productPrice and/or stockQuantity
+     * @return Summary listing the products that do not exist or belong to another supplier
+     */
+    @PatchMapping("/bulk")
+    public ResponseEntity<?> bulkUpdateProducts(@Valid @RequestBody ProductBulkUpdateDto bulkUpdate) {
+        try {
+            return ResponseEntity.ok(productBulkUpdateService.updateProducts(bulkUpdate.updates()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
     }
     @DeleteMapping("deleteProduct/{id}")
     public void deleteProduct(@PathVariable("id") UUID id) {
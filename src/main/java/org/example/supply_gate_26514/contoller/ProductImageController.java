@@ -1,16 +1,19 @@
 package org.example.supply_gate_26514.contoller;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.example.supply_gate_26514.dto.ProductImageDto;
 import org.example.supply_gate_26514.dto.ProductImageResponseDto;
 import org.example.supply_gate_26514.service.ProductImageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
@@ -25,18 +28,78 @@ public class ProductImageController {
     public List<ProductImageResponseDto> getAllImages(){
         return imageService.getAllProductImages();
     }
+    /**
+     * Add an image by URL to a product of the authenticated supplier.
+     * SECURITY: The URL must be http(s) or an upload already shown on one of the supplier's products.
+     */
     @PostMapping("/addAnImage")
-    public ProductImageResponseDto addAnImage( @Valid @RequestBody ProductImageDto imageDto){
-        return imageService.addProductImage(imageDto);
-
+    public ResponseEntity<?> addAnImage( @Valid @RequestBody ProductImageDto imageDto){
+        try {
+            return ResponseEntity.ok(imageService.addProductImage(imageDto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+    /**
+     * Upload images (JPG, PNG, WEBP or GIF, up to 5 MB each, at most 10) for a product of the
+     * authenticated supplier, as multipart/form-data with one or more file fields.
+     * The body is parsed while it streams in, each file is written to storage once; the
+     * file type is detected from the content.
+     *
+     * @return The added images, with URLs served by /api/images
+     */
+    @PostMapping(value = "/upload/{productId}", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<?> uploadImages(@PathVariable UUID productId, HttpServletRequest request) {
+        try {
+            List<ProductImageResponseDto> images =
+                    imageService.uploadProductImages(productId, request.getInputStream(), request.getContentType());
+            return ResponseEntity.status(HttpStatus.CREATED).body(images);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Could not read upload: " + e.getMessage());
+        }
     }
+    /**
+     * Change the URL and/or product of an image of the authenticated supplier.
+     * SECURITY: Same rules as addAnImage, for both the current and the new product.
+     */
     @PutMapping("/{imageId}")
-    public ProductImageResponseDto updateImageLink(@PathVariable UUID imageId,ProductImageDto imageDto) {
-        return imageService.updateProductImage(imageId, imageDto);
+    public ResponseEntity<?> updateImageLink(@PathVariable UUID imageId, @Valid ProductImageDto imageDto) {
+        try {
+            return ResponseEntity.ok(imageService.updateProductImage(imageId, imageDto));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
     }
+    /**
+     * Delete an image of the authenticated supplier (its file goes with the last image using it).
+     * SECURITY: Only the owner of the image's product can delete it.
+     */
     @DeleteMapping("/deleteImage/{imageId}")
-    public void deleteImage(@PathVariable UUID imageId){
-        imageService.deleteProductImage(imageId);
+    public ResponseEntity<?> deleteImage(@PathVariable UUID imageId){
+        try {
+            imageService.deleteProductImage(imageId);
+            return ResponseEntity.ok().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (SecurityException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
     }
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
@@ -0,0 +1,88 @@
+package org.example.supply_gate_26514.contoller;
+
+import jakarta.validation.Valid;
+import org.example.supply_gate_26514.dto.SavedSearchDto;
+import org.example.supply_gate_26514.dto.SavedSearchResponseDto;
+import org.example.supply_gate_26514.service.SavedSearchService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/saved-searches")
+public class SavedSearchController {
+
+    @Autowired
+    private SavedSearchService savedSearchService;
+
+    /**
+     * Get saved searches of the authenticated user.
+     * Requires authentication.
+     */
+    @GetMapping
+    public ResponseEntity<List<SavedSearchResponseDto>> getMySavedSearches() {
+        try {
+            return ResponseEntity.ok(savedSearchService.getMySavedSearches());
+        } catch (Exception e) {
+            return ResponseEntity.status(401).build();
+        }
+    }
+
+    /**
+     * Save a product search. New products matching it are delivered as notifications.
+     * Requires authentication.
+     *
+     * @param savedSearchDto Search query to save
+     */
+    @PostMapping
+    public ResponseEntity<?> saveSearch(@Valid @RequestBody SavedSearchDto savedSearchDto) {
+        try {
+            SavedSearchResponseDto saved = savedSearchService.saveSearch(savedSearchDto);
+            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            String errorMessage = e.getMessage();
+            if (errorMessage != null && errorMessage.contains("at most")) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(errorMessage);
+            }
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Delete a saved search of the authenticated user.
+     * Requires authentication.
+     */
+    @DeleteMapping("/{savedSearchId}")
+    public ResponseEntity<Void> deleteSavedSearch(@PathVariable UUID savedSearchId) {
+        try {
+            savedSearchService.deleteSavedSearch(savedSearchId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (Exception e) {
+            return ResponseEntity.status(401).build();
+        }
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<?> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        var errors = new HashMap<String, String>();
+        ex.getBindingResult().getAllErrors().forEach(error -> {
+            var fieldName = ((FieldError) error).getField();
+            var errorMsg = error.getDefaultMessage();
+            errors.put(fieldName, errorMsg);
+        });
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.supply_gate_26514.contoller;
+
+import org.example.supply_gate_26514.model.UserEnum;
+import org.example.supply_gate_26514.service.UploadGarbageCollector;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Admin Controller for uploaded files
+ *
+ * Provides endpoints to:
+ * - Report (dry run) or delete uploaded files nothing references any more
+ */
+@RestController
+@RequestMapping("/api/uploads/admin")
+public class UploadAdminController {
+
+    @Autowired
+    private UploadGarbageCollector uploadGarbageCollector;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    /**
+     * Runs the orphaned upload sweep now (it also runs nightly, see UploadGarbageCollector)
+     * POST /api/uploads/admin/sweep?dryRun=true
+     *
+     * SECURITY: Only industry workers can access this endpoint.
+     *
+     * @param dryRun Only report the orphaned files (default), or delete them
+     * @return The sweep report, 409 if a sweep is already running
+     */
+    @PostMapping("/sweep")
+    public ResponseEntity<?> sweep(@RequestParam(defaultValue = "true") boolean dryRun) {
+        try {
+            securityUtils.requireRole(UserEnum.INDUSTRY_WORKER);
+        } catch (IllegalStateException e) {
+            if (e.getMessage() != null && e.getMessage().contains("required role")) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body("Access denied. Industry worker role required.");
+            }
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body("Authentication failed. Please login again.");
+        }
+        try {
+            return ResponseEntity.ok(uploadGarbageCollector.sweep(dryRun));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+}
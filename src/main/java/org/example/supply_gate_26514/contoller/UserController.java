@@ -12,10 +12,12 @@ import org.example.supply_gate_26514.dto.Verify2FADto;
 import org.example.supply_gate_26514.model.User;
 import org.example.supply_gate_26514.service.AuthAuditService;
 import org.example.supply_gate_26514.service.PasswordResetService;
+import org.example.supply_gate_26514.service.TableVersionService;
 import org.example.supply_gate_26514.service.TwoFactorAuthRequiredException;
 import org.example.supply_gate_26514.service.TwoFactorAuthService;
 import org.example.supply_gate_26514.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +26,9 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +37,9 @@ import java.util.UUID;
 @RestController
 @RequestMapping("api/auth")
 public class UserController {
+    // Company list only changes when users register or edit their profile
+    private static final CacheControl COMPANIES_CACHE_CONTROL = CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic();
+
     @Autowired
     private UserService userService;
     
@@ -45,6 +52,9 @@ public class UserController {
     @Autowired
     private TwoFactorAuthService twoFactorAuthService;
 
+    @Autowired
+    private TableVersionService tableVersionService;
+
     /**
      * Authenticates a user and returns access/refresh token pair.
      * Requires 2FA verification before granting access.
@@ -260,13 +270,24 @@ public class UserController {
     /**
      * Gets all distinct company names from registered industry workers.
      * This endpoint is public so suppliers can see available companies during verification.
+     * Cacheable for 5 minutes, then revalidated with the version-stamped ETag (304 if unchanged).
      * 
      * @return List of company names
      */
     @GetMapping(value = "/companies", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<List<String>> getCompanyNames() {
+    public ResponseEntity<List<String>> getCompanyNames(WebRequest webRequest) {
+        String eTag = tableVersionService.eTag(TableVersionService.USERS);
+        long lastModified = tableVersionService.lastModified(TableVersionService.USERS);
+        if (webRequest.checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(COMPANIES_CACHE_CONTROL).build();
+        }
+
         List<String> companyNames = userService.getCompanyNames();
-        return ResponseEntity.ok(companyNames);
+        return ResponseEntity.ok()
+                .cacheControl(COMPANIES_CACHE_CONTROL)
+                .eTag(eTag)
+                .lastModified(lastModified)
+                .body(companyNames);
     }
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<?> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
@@ -1,17 +1,32 @@
 package org.example.supply_gate_26514.contoller;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.example.supply_gate_26514.dto.UploadSessionDto;
+import org.example.supply_gate_26514.dto.UploadSessionResponseDto;
 import org.example.supply_gate_26514.dto.VerificationResponseDto;
 import org.example.supply_gate_26514.dto.VerificationReviewDto;
+import org.example.supply_gate_26514.service.ResumableUploadService;
+import org.example.supply_gate_26514.service.UploadIncompleteException;
+import org.example.supply_gate_26514.service.UploadLimitExceededException;
+import org.example.supply_gate_26514.service.UploadSessionElsewhereException;
 import org.example.supply_gate_26514.service.VerificationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/verification")
@@ -20,6 +35,9 @@ public class VerificationController {
     @Autowired
     private VerificationService verificationService;
 
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
     /**
      * Get all verifications (paginated with search).
      * Requires authentication.
@@ -93,4 +111,107 @@ public class VerificationController {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
     }
+
+    /**
+     * Start a resumable upload of a verification document (PDF, JPG or PNG, up to 10 MB).
+     * Then PUT the bytes in chunks to /uploads/{uploadId}?offset=N and POST /uploads/{uploadId}/complete.
+     * Requires authentication.
+     *
+     * @param uploadSessionDto Document type and total size in bytes
+     * @return The new upload (uploadId, nextOffset 0), 429 if the user has too many uploads open
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<?> initiateUpload(@Valid @RequestBody UploadSessionDto uploadSessionDto) {
+        try {
+            return ResponseEntity.status(HttpStatus.CREATED).body(resumableUploadService.initiate(uploadSessionDto));
+        } catch (UploadLimitExceededException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * State of an upload: received ranges and nextOffset, where an interrupted upload resumes.
+     * Requires authentication (own uploads only).
+     */
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionResponseDto> getUpload(@PathVariable UUID uploadId) {
+        try {
+            return ResponseEntity.ok(resumableUploadService.getSession(uploadId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+    }
+
+    /**
+     * Upload one chunk: the raw request body (Content-Type application/octet-stream) is written
+     * at the given byte offset.
+     * Chunks may arrive in any order and may be retried.
+     * Requires authentication (own uploads only).
+     *
+     * @param offset Position of the first byte of the body in the document
+     * @return The upload state after this chunk, 409 if the upload was started on another node
+     */
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> uploadChunk(@PathVariable UUID uploadId,
+                                         @RequestParam long offset,
+                                         HttpServletRequest request) {
+        try {
+            return ResponseEntity.ok(resumableUploadService.writeChunk(
+                    uploadId, offset, request.getContentLengthLong(), request.getInputStream()));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (UploadSessionElsewhereException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (IOException e) {
+            // Body cut off; the bytes that arrived are kept, GET the upload for where to resume
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Chunk incomplete: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finish an upload: the document is validated, stored and set on the user's verification.
+     * Requires authentication (own uploads only).
+     *
+     * @return The updated verification, 409 if bytes are still missing or the upload was started on
+     *         another node, 400 for an invalid document
+     */
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable UUID uploadId) {
+        try {
+            return ResponseEntity.ok(resumableUploadService.complete(uploadId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().build();
+        } catch (UploadIncompleteException | UploadSessionElsewhereException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<?> handleMethodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        var errors = new HashMap<String, String>();
+        ex.getBindingResult().getAllErrors().forEach(error -> {
+            var fieldName = ((FieldError) error).getField();
+            var errorMsg = error.getDefaultMessage();
+            errors.put(fieldName, errorMsg);
+        });
+        return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
+    }
 }
@@ -8,7 +8,9 @@ public record DashboardStatsDto(
         double followersChange,
         double customersChange,
         double impressionsChange,
-        double notificationsChange
+        double notificationsChange,
+        long totalProductViews,
+        double productViewsChange
 ) {
 }
 
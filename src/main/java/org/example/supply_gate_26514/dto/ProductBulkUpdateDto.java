@@ -0,0 +1,14 @@
+package org.example.supply_gate_26514.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ProductBulkUpdateDto(
+        @NotEmpty
+        @Size(max = 10000)
+        List<@Valid ProductBulkUpdateItemDto> updates
+) {
+}
@@ -0,0 +1,19 @@
+package org.example.supply_gate_26514.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+import java.util.UUID;
+
+/**
+ * New price and/or stock of one product. Omitted (null) fields are left unchanged.
+ */
+public record ProductBulkUpdateItemDto(
+        @NotNull
+        UUID productId,
+        @PositiveOrZero
+        Double productPrice,
+        @PositiveOrZero
+        Integer stockQuantity
+) {
+}
@@ -0,0 +1,17 @@
+package org.example.supply_gate_26514.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a bulk price/stock update.
+ *
+ * @param notUpdated Requested products that do not exist or belong to another supplier
+ */
+public record ProductBulkUpdateResultDto(
+        int requestedRows,
+        int updatedRows,
+        List<UUID> notUpdated,
+        long durationMs
+) {
+}
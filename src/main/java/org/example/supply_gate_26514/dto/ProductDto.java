@@ -2,13 +2,14 @@ package org.example.supply_gate_26514.dto;
 
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
 
 import java.util.UUID;
 
 public record ProductDto(
-        @NotEmpty
+        @NotNull
   UUID categoryId,
-        @NotEmpty
+        @NotNull
   UUID storeId,
         @NotEmpty
   String productName,
@@ -17,6 +18,9 @@ public record ProductDto(
   @NotNull
   Double productPrice,
   @NotEmpty
-  String quantity
+  String quantity,
+  // Units available to reserve; if omitted, taken from the leading number of quantity
+  @PositiveOrZero
+  Integer stockQuantity
 ) {
 }
@@ -0,0 +1,42 @@
+package org.example.supply_gate_26514.dto;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Optional criteria of a product listing. Null fields do not filter.
+ * Price and stock bounds are inclusive; creation dates are whole days (createdTo included).
+ *
+ * @throws IllegalArgumentException if a lower bound is greater than its upper bound
+ */
+public record ProductFilter(
+        String search,                // Text in name, description, category, store or supplier
+        UUID categoryId,
+        UUID storeId,
+        Double minPrice,
+        Double maxPrice,
+        LocalDate createdFrom,
+        LocalDate createdTo,
+        Integer minStock,
+        Integer maxStock
+) {
+    public ProductFilter {
+        search = search != null && !search.trim().isEmpty() ? search.trim() : null;
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new IllegalArgumentException("minPrice must not be greater than maxPrice");
+        }
+        if (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo)) {
+            throw new IllegalArgumentException("createdFrom must not be after createdTo");
+        }
+        if (minStock != null && maxStock != null && minStock > maxStock) {
+            throw new IllegalArgumentException("minStock must not be greater than maxStock");
+        }
+    }
+
+    /**
+     * Filter with only a search term (which may be null or blank).
+     */
+    public static ProductFilter ofSearch(String search) {
+        return new ProductFilter(search, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.supply_gate_26514.dto;
+
+import java.util.UUID;
+
+/**
+ * Read-only projection of a product image URL, used to batch-load images for a page of listings.
+ */
+public record ProductImageUrlRow(
+        UUID productId,
+        String imageUrl
+) {
+}
@@ -0,0 +1,12 @@
+package org.example.supply_gate_26514.dto;
+
+/**
+ * Error for one rejected import row.
+ *
+ * @param row Record number in the file (CSV header is row 1, NDJSON lines start at 1)
+ */
+public record ProductImportErrorDto(
+        long row,
+        String message
+) {
+}
@@ -0,0 +1,25 @@
+package org.example.supply_gate_26514.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a product import.
+ *
+ * @param complete False if the file could not be read to the end (connection lost, malformed
+ *                 CSV); the counts then cover the rows up to lastRowRead, which are committed
+ * @param lastRowRead Last row read: every row up to it is either imported or listed in errors,
+ *                    so an interrupted import can be resumed with the rows after it
+ * @param readError Why reading stopped early, null if complete
+ */
+public record ProductImportResultDto(
+        long totalRows,
+        long importedRows,
+        long failedRows,
+        List<ProductImportErrorDto> errors,
+        boolean errorsTruncated,
+        long durationMs,
+        boolean complete,
+        long lastRowRead,
+        String readError
+) {
+}
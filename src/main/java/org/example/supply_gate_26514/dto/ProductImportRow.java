@@ -0,0 +1,21 @@
+package org.example.supply_gate_26514.dto;
+
+/**
+ * One row of a bulk product import (CSV column or NDJSON property names).
+ * References are kept as text so that bad values are reported per row instead of failing the file.
+ * A category is given by categoryId or categoryName, a store by storeId or storeName
+ * (the store may be omitted when the supplier has a single store). stockQuantity is optional and
+ * defaults to the leading number of quantity.
+ */
+public record ProductImportRow(
+        String productName,
+        String productDescription,
+        String productPrice,
+        String quantity,
+        String stockQuantity,
+        String categoryId,
+        String categoryName,
+        String storeId,
+        String storeName
+) {
+}
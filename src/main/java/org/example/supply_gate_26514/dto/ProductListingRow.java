@@ -0,0 +1,28 @@
+package org.example.supply_gate_26514.dto;
+
+import java.util.UUID;
+
+/**
+ * Read-only projection of one catalog listing row, built directly by JPQL constructor
+ * expressions (see ProductRepository). Carries exactly what ProductResponseDto needs
+ * except image URLs, which are loaded for the whole page with one extra query.
+ */
+public record ProductListingRow(
+        UUID productId,
+        String productName,
+        String productDescription,
+        Double productPrice,
+        String quantity,
+        Integer stockQuantity,
+        UUID categoryId,
+        String categoryName,
+        UUID storeId,
+        String storeName,
+        UUID supplierId,
+        String supplierFirstName,
+        String supplierLastName,
+        String supplierUsername,
+        String supplierEmail,
+        boolean supplierVerified
+) {
+}
@@ -12,6 +12,7 @@ public record ProductResponseDto(
         Double productPrice,
         @NotEmpty
         String quantity,
+        Integer stockQuantity,        // Units available to reserve (null if stock is not tracked)
         UUID categoryId,
         String categoryName,
         UUID storeId,
@@ -0,0 +1,14 @@
+package org.example.supply_gate_26514.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+/**
+ * DTO for saving a product search.
+ */
+public record SavedSearchDto(
+        @NotEmpty(message = "Search query is required")
+        @Size(max = 200, message = "Search query must be at most 200 characters")
+        String query
+) {
+}
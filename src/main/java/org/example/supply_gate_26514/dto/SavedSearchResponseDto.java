@@ -0,0 +1,11 @@
+package org.example.supply_gate_26514.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record SavedSearchResponseDto(
+        UUID savedSearchId,
+        String query,
+        LocalDateTime creationDate
+) {
+}
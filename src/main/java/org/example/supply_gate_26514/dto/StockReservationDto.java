@@ -0,0 +1,17 @@
+package org.example.supply_gate_26514.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+import java.util.UUID;
+
+public record StockReservationDto(
+        @NotNull
+        UUID productId,
+        @NotNull
+        @Positive
+        @Max(10000)
+        Integer quantity
+) {
+}
@@ -0,0 +1,17 @@
+package org.example.supply_gate_26514.dto;
+
+import org.example.supply_gate_26514.model.ReservationStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record StockReservationResponseDto(
+        UUID reservationId,
+        UUID productId,
+        String productName,
+        int quantity,
+        ReservationStatus status,
+        LocalDateTime expiresAt,
+        LocalDateTime creationDate
+) {
+}
@@ -0,0 +1,11 @@
+package org.example.supply_gate_26514.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+public record StockUpdateDto(
+        @NotNull
+        @PositiveOrZero
+        Integer stockQuantity
+) {
+}
@@ -0,0 +1,19 @@
+package org.example.supply_gate_26514.dto;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import org.example.supply_gate_26514.model.VerificationDocumentType;
+
+/**
+ * Starts a resumable upload of a verification document.
+ *
+ * @param size Total size of the document in bytes
+ */
+public record UploadSessionDto(
+        @NotNull
+        VerificationDocumentType documentType,
+        @NotNull
+        @Positive
+        Long size
+) {
+}
@@ -0,0 +1,26 @@
+package org.example.supply_gate_26514.dto;
+
+import org.example.supply_gate_26514.model.VerificationDocumentType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * State of a resumable upload.
+ *
+ * @param receivedRanges Byte ranges received so far, as "start-end" (inclusive, like HTTP ranges)
+ * @param nextOffset First byte not yet received after the start of the file: where to resume
+ * @param expiresAt When the upload is discarded if no further chunk arrives
+ */
+public record UploadSessionResponseDto(
+        UUID uploadId,
+        VerificationDocumentType documentType,
+        long size,
+        long receivedBytes,
+        List<String> receivedRanges,
+        long nextOffset,
+        boolean complete,
+        LocalDateTime expiresAt
+) {
+}
@@ -0,0 +1,34 @@
+package org.example.supply_gate_26514.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Outcome of one run of UploadGarbageCollector.
+ *
+ * @param dryRun Whether orphans were only reported, not deleted
+ * @param scanned Stored files looked at
+ * @param skippedRecent Files younger than the grace period, not checked
+ * @param referenced Files still in use
+ * @param orphaned Files nothing references any more
+ * @param orphanedBytes Total size of the orphaned files
+ * @param deleted Orphans deleted (0 in a dry run)
+ * @param failed Orphans that could not be deleted (tried again on the next run)
+ * @param orphanSample The first orphaned paths, for review
+ * @param complete False if the listing was interrupted (the counts cover what was seen)
+ */
+public record UploadSweepReportDto(
+        boolean dryRun,
+        LocalDateTime startedAt,
+        long durationMs,
+        long scanned,
+        long skippedRecent,
+        long referenced,
+        long orphaned,
+        long orphanedBytes,
+        long deleted,
+        long failed,
+        List<String> orphanSample,
+        boolean complete
+) {
+}
@@ -5,6 +5,11 @@ import org.example.supply_gate_26514.model.VerificationStatus;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+/**
+ * A supplier's verification. Each document URL comes with a preview URL: a PNG of the first
+ * page (of the image, for image documents) of a few hundred kilobytes at most, or null when the
+ * document is missing.
+ */
 public record VerificationResponseDto(
         UUID verificationId,
         UUID userId,
@@ -16,6 +21,10 @@ public record VerificationResponseDto(
         String taxCertificateUrl,
         String bankStatementUrl,
         String identityProofUrl,
+        String businessLicensePreviewUrl,
+        String taxCertificatePreviewUrl,
+        String bankStatementPreviewUrl,
+        String identityProofPreviewUrl,
         LocalDateTime submittedDate,
         LocalDateTime lastUpdatedDate,
         String rejectionReason,
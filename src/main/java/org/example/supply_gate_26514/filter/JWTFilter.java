@@ -84,7 +84,9 @@ public class JWTFilter extends OncePerRequestFilter {
                path.startsWith("/api/location") ||
                path.startsWith("/api/images") ||
                path.startsWith("/api/products/getProducts") ||  // Public product listings
+               path.startsWith("/api/products/details/") ||     // Public product pages
                path.startsWith("/api/messages/send") ||        // Public: Allow visitors to send messages
+               path.equals("/actuator/health") ||
                path.startsWith("/swagger") ||
                path.startsWith("/v3/api-docs") ||
                path.startsWith("/v2/api-docs");
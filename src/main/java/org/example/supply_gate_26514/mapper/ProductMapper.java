@@ -1,7 +1,9 @@
 package org.example.supply_gate_26514.mapper;
 
 import org.example.supply_gate_26514.dto.ProductDto;
+import org.example.supply_gate_26514.dto.ProductListingRow;
 import org.example.supply_gate_26514.dto.ProductResponseDto;
+import org.example.supply_gate_26514.model.CatalogEntry;
 import org.example.supply_gate_26514.model.Category;
 import org.example.supply_gate_26514.model.Product;
 import org.example.supply_gate_26514.model.ProductImage;
@@ -15,11 +17,15 @@ import java.util.Optional;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductMapper {
 
+    private static final Pattern LEADING_NUMBER = Pattern.compile("^\\s*(\\d+)");
+
     @Autowired
     private VerificationRepository verificationRepository;
 
@@ -29,6 +35,9 @@ public class ProductMapper {
         product.setProductName(productDto.productName());
         product.setProductPrice(productDto.productPrice());
         product.setQuantity(productDto.quantity());
+        product.setStockQuantity(productDto.stockQuantity() != null
+                ? productDto.stockQuantity()
+                : parseStockQuantity(productDto.quantity()));
         Category category = new Category();
         category.setCategoryId(productDto.categoryId());
         product.setCategory(category);
@@ -39,6 +48,119 @@ public class ProductMapper {
     }
     
     public ProductResponseDto transformToProductResponseDto(Product product) {
+        // Check if supplier is verified by querying Verification repository
+        boolean isSupplierVerified = false;
+        UUID supplierId = getSupplierId(product);
+        if (supplierId != null) {
+            try {
+                var verificationOpt = verificationRepository.findByUser_UserId(supplierId);
+                if (verificationOpt.isPresent()) {
+                    var verification = verificationOpt.get();
+                    if (verification.getStatus() != null &&
+                        verification.getStatus() == VerificationStatus.APPROVED) {
+                        isSupplierVerified = true;
+                    }
+                }
+            } catch (Exception e) {
+                // If verification doesn't exist or error occurs, supplier is not verified
+                isSupplierVerified = false;
+            }
+        }
+        return buildProductResponseDto(product, isSupplierVerified);
+    }
+
+    /**
+     * Maps a listing projection row to the response DTO.
+     * No entities are involved: the row already carries category, store and supplier data.
+     *
+     * @param row Listing row from a ProductRepository projection query
+     * @param imageUrls Image URLs of the product (batch-loaded for the page)
+     */
+    public ProductResponseDto transformListingRowToProductResponseDto(ProductListingRow row, List<String> imageUrls) {
+        String supplierName = null;
+        if (row.supplierId() != null) {
+            supplierName = formatSupplierName(row.supplierFirstName(), row.supplierLastName(), row.supplierUsername());
+        }
+        return new ProductResponseDto(
+                row.productId(),
+                row.productName(),
+                row.productDescription(),
+                row.productPrice(),
+                row.quantity(),
+                row.stockQuantity(),
+                row.categoryId(),
+                row.categoryName(),
+                row.storeId(),
+                row.storeName(),
+                imageUrls != null ? imageUrls : Collections.emptyList(),
+                row.supplierId(),
+                supplierName,
+                row.supplierEmail(),
+                row.supplierVerified()
+        );
+    }
+
+    /**
+     * Maps a public catalog read model row to the response DTO.
+     * Entries only exist for products of verified suppliers.
+     */
+    public ProductResponseDto transformCatalogEntryToProductResponseDto(CatalogEntry entry) {
+        return new ProductResponseDto(
+                entry.getProductId(),
+                entry.getProductName(),
+                entry.getProductDescription(),
+                entry.getProductPrice(),
+                entry.getQuantity(),
+                entry.getStockQuantity(),
+                entry.getCategoryId(),
+                entry.getCategoryName(),
+                entry.getStoreId(),
+                entry.getStoreName(),
+                entry.getImageUrls() != null ? entry.getImageUrls() : Collections.emptyList(),
+                entry.getSupplierId(),
+                entry.getSupplierName(),
+                entry.getSupplierEmail(),
+                true
+        );
+    }
+
+    private String formatSupplierName(String firstName, String lastName, String username) {
+        String supplierName = ((firstName != null ? firstName : "") +
+                (lastName != null ? " " + lastName : "")).trim();
+        if (supplierName.isEmpty()) {
+            supplierName = username; // Fallback to username
+        }
+        return supplierName;
+    }
+
+    /**
+     * Derives a stock count from a free-form quantity label ("250 kg" -> 250).
+     *
+     * @return The leading whole number, or null if the label does not start with one
+     */
+    public static Integer parseStockQuantity(String quantity) {
+        if (quantity == null) {
+            return null;
+        }
+        Matcher matcher = LEADING_NUMBER.matcher(quantity);
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException e) {
+            return null; // more digits than fit in an int
+        }
+    }
+
+    private UUID getSupplierId(Product product) {
+        if (product.getStore() != null && product.getStore().getUser() != null) {
+            return product.getStore().getUser().getUserId();
+        }
+        return null;
+    }
+
+    private ProductResponseDto buildProductResponseDto(Product product, boolean isSupplierVerified) {
         // Extract image URLs from product images
         java.util.List<String> imageUrls = null;
         if (product.getProductImages() != null && !product.getProductImages().isEmpty()) {
@@ -52,32 +174,12 @@ public class ProductMapper {
         UUID supplierId = null;
         String supplierName = null;
         String supplierEmail = null;
-        Boolean isSupplierVerified = false;
         
         if (product.getStore() != null && product.getStore().getUser() != null) {
             org.example.supply_gate_26514.model.User supplier = product.getStore().getUser();
             supplierId = supplier.getUserId();
-            supplierName = (supplier.getFirstName() != null ? supplier.getFirstName() : "") + 
-                          (supplier.getLastName() != null ? " " + supplier.getLastName() : "").trim();
-            if (supplierName.isEmpty()) {
-                supplierName = supplier.getUsername(); // Fallback to username
-            }
+            supplierName = formatSupplierName(supplier.getFirstName(), supplier.getLastName(), supplier.getUsername());
             supplierEmail = supplier.getEmail();
-            
-            // Check if supplier is verified by querying Verification repository
-            try {
-                var verificationOpt = verificationRepository.findByUser_UserId(supplierId);
-                if (verificationOpt.isPresent()) {
-                    var verification = verificationOpt.get();
-                    if (verification.getStatus() != null &&
-                        verification.getStatus() == VerificationStatus.APPROVED) {
-                        isSupplierVerified = true;
-                    }
-                }
-            } catch (Exception e) {
-                // If verification doesn't exist or error occurs, supplier is not verified
-                isSupplierVerified = false;
-            }
         }
         
         return new ProductResponseDto(
@@ -86,6 +188,7 @@ public class ProductMapper {
                 product.getProductDescription(),
                 product.getProductPrice(),
                 product.getQuantity(),
+                product.getStockQuantity(),
                 product.getCategory() != null ? product.getCategory().getCategoryId() : null,
                 product.getCategory() != null ? product.getCategory().getCategoryName() : null,
                 product.getStore() != null ? product.getStore().getStoreId() : null,
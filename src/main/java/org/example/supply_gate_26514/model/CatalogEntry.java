@@ -0,0 +1,132 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Public catalog read model: one flattened row per product of a verified supplier, holding
+ * everything ProductResponseDto needs (category, store and supplier names, image URLs).
+ *
+ * Rows are written only by CatalogReadModelService (set-based SQL), never through this entity.
+ * Property names match Product, so the same Pageable sort keys work on both.
+ */
+@Entity
+@Immutable
+@Table(name = "catalog_entry")
+public class CatalogEntry {
+    @Id
+    private UUID productId;
+
+    private String productName;
+
+    private String productDescription;
+
+    private Double productPrice;
+
+    private String quantity;
+
+    private Integer stockQuantity;
+
+    private UUID categoryId;
+
+    private String categoryName;
+
+    private UUID storeId;
+
+    private String storeName;
+
+    private UUID supplierId;
+
+    private String supplierName;
+
+    private String supplierEmail;
+
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb not null default '[]'")
+    private List<String> imageUrls;
+
+    // Lowercased name, description, category, store and supplier, matched by public search
+    @Column(columnDefinition = "text")
+    private String searchText;
+
+    private LocalDateTime creationDate;
+
+    private LocalDateTime refreshedAt;
+
+    public CatalogEntry() {
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getProductDescription() {
+        return productDescription;
+    }
+
+    public Double getProductPrice() {
+        return productPrice;
+    }
+
+    public String getQuantity() {
+        return quantity;
+    }
+
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public UUID getCategoryId() {
+        return categoryId;
+    }
+
+    public String getCategoryName() {
+        return categoryName;
+    }
+
+    public UUID getStoreId() {
+        return storeId;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public UUID getSupplierId() {
+        return supplierId;
+    }
+
+    public String getSupplierName() {
+        return supplierName;
+    }
+
+    public String getSupplierEmail() {
+        return supplierEmail;
+    }
+
+    public List<String> getImageUrls() {
+        return imageUrls;
+    }
+
+    public String getSearchText() {
+        return searchText;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public LocalDateTime getRefreshedAt() {
+        return refreshedAt;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.example.supply_gate_26514.service.CatalogReadModelService;
+import org.example.supply_gate_26514.service.CatalogReadModelService.Scope;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * JPA entity listener that marks the catalog entries affected by a write as stale
+ * (see CatalogReadModelService). Instantiated by Hibernate through Spring,
+ * so the service can be injected.
+ */
+public class CatalogEntryListener {
+
+    // Lazy: the service needs the transaction manager, which is built after the entity listeners
+    @Autowired
+    @Lazy
+    private CatalogReadModelService catalogReadModelService;
+
+    @PostPersist
+    @PostRemove
+    public void onWrite(Object entity) {
+        if (entity instanceof Product product) {
+            catalogReadModelService.markChanged(Scope.PRODUCT, product.getProductId());
+        } else if (entity instanceof ProductImage image && image.getProduct() != null) {
+            catalogReadModelService.markChanged(Scope.PRODUCT, image.getProduct().getProductId());
+        } else if (entity instanceof Store store) {
+            catalogReadModelService.markChanged(Scope.STORE, store.getStoreId());
+        } else if (entity instanceof Category category) {
+            catalogReadModelService.markChanged(Scope.CATEGORY, category.getCategoryId());
+        } else if (entity instanceof Verification verification && verification.getUser() != null) {
+            // Approval or rejection shows or hides all products of the supplier
+            catalogReadModelService.markChanged(Scope.SUPPLIER, verification.getUser().getUserId());
+        } else if (entity instanceof User user) {
+            catalogReadModelService.markChanged(Scope.SUPPLIER_PROFILE, user.getUserId());
+        }
+    }
+
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        // Logins write the users row too; only name and email changes reach the catalog
+        if (entity instanceof User user && !user.isPublicProfileChanged()) {
+            return;
+        }
+        onWrite(entity);
+    }
+}
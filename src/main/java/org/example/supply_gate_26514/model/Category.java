@@ -3,11 +3,17 @@ package org.example.supply_gate_26514.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 import java.util.UUID;
 @Entity
+// Second-level cache (region in ehcache.xml): read by product writes and listings, rarely changed
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "categories")
 @Table(name ="categories")
+@EntityListeners({TableVersionListener.class, CatalogEntryListener.class})
 public class Category {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
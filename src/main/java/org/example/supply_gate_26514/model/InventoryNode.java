@@ -0,0 +1,36 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A running application node that may hold stock leases (see StockLease).
+ * A node whose heartbeat is older than app.inventory.node-timeout-seconds is presumed dead
+ * and its leases are returned to stock by the other nodes.
+ *
+ * Rows are written only by InventoryReservationService (JDBC), never through this entity.
+ */
+@Entity
+@Table(name = "inventory_node")
+public class InventoryNode {
+    // Random per process start, so a restarted node never mistakes the leases of its previous run for its own
+    @Id
+    @Column(length = 64)
+    private String nodeId;
+
+    // Database time (now()), so clock skew between nodes does not matter
+    @Column(nullable = false)
+    private LocalDateTime heartbeatAt;
+
+    public InventoryNode() {
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public LocalDateTime getHeartbeatAt() {
+        return heartbeatAt;
+    }
+}
@@ -2,11 +2,17 @@ package org.example.supply_gate_26514.model;
 
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.List;
 import java.util.UUID;
 @Entity
+// Second-level cache (region in ehcache.xml): reference data, almost never changed
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "locations")
 @Table(name = "administrative_structure")
+@EntityListeners(TableVersionListener.class)
 public class Location {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
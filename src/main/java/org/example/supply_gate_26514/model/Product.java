@@ -3,6 +3,7 @@ package org.example.supply_gate_26514.model;
 import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonManagedReference;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -11,6 +12,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "products")
+@EntityListeners({TableVersionListener.class, CatalogEntryListener.class})
 public class Product {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -37,7 +39,9 @@ public class Product {
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
     @JsonManagedReference("product-review")
     private List<Review> review;
+    // Batch size lets a page of products load all its images with one query instead of one per product
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL)
+    @BatchSize(size = 50)
     @JsonManagedReference("image-product")
     private List<ProductImage> productImages;
 
@@ -116,8 +120,46 @@ public class Product {
         this.quantity = quantity;
     }
 
+    public Integer getStockQuantity() {
+        return stockQuantity;
+    }
+
+    public void setStockQuantity(Integer stockQuantity) {
+        this.stockQuantity = stockQuantity;
+    }
+
+    public long getStockGeneration() {
+        return stockGeneration;
+    }
+
+    public boolean isSupplierVerified() {
+        return supplierVerified;
+    }
+
+    public void setSupplierVerified(boolean supplierVerified) {
+        this.supplierVerified = supplierVerified;
+    }
+
     private String productName;
     private String productDescription;
     private Double productPrice;
     private String quantity;
+
+    // Units available to reserve (null = stock not tracked). quantity stays the display label.
+    // Not updatable through the entity: stock only changes through guarded SQL updates in
+    // InventoryReservationService, so a product save can never overwrite a concurrent decrement.
+    @Column(name = "stock_quantity", updatable = false)
+    private Integer stockQuantity;
+
+    // Incremented by every absolute stock write (ProductRepository.updateStockQuantity*). Units
+    // leased into reservation pools before it are void and never go back to stock (see StockLease).
+    @Column(name = "stock_generation", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint not null default 0")
+    private long stockGeneration;
+
+    // Denormalized copy of "the store owner's verification is APPROVED".
+    // Maintained by VerificationService.reviewVerification so public listings can filter on
+    // this column alone instead of joining store -> user -> verification on every request.
+    @Column(name = "supplier_verified", nullable = false, columnDefinition = "boolean not null default false")
+    private boolean supplierVerified;
 }
@@ -0,0 +1,72 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Daily impression and view counts of a product.
+ * An impression is the product appearing in a catalog listing page; a view is a detail read.
+ *
+ * Rows are written only by ProductEngagementService (batched JDBC upserts), never through this entity.
+ * There is no foreign key to products, so a flush never fails because a product was deleted meanwhile;
+ * rows of deleted products simply stop being counted by the dashboard joins.
+ */
+@Entity
+@Table(name = "product_engagement_daily")
+@IdClass(ProductEngagement.Key.class)
+public class ProductEngagement {
+    @Id
+    private UUID productId;
+
+    @Id
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long impressions;
+
+    @Column(nullable = false)
+    private long views;
+
+    public ProductEngagement() {
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public long getImpressions() {
+        return impressions;
+    }
+
+    public long getViews() {
+        return views;
+    }
+
+    public static class Key implements Serializable {
+        private UUID productId;
+        private LocalDate day;
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key key)) return false;
+            return Objects.equals(productId, key.productId) && Objects.equals(day, key.day);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productId, day);
+        }
+    }
+}
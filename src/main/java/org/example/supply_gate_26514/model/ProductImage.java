@@ -8,6 +8,7 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "product_images")
+@EntityListeners({TableVersionListener.class, CatalogEntryListener.class})
 public class ProductImage {
     public UUID getImageId() {
         return imageId;
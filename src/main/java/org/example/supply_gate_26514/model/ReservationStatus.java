@@ -0,0 +1,8 @@
+package org.example.supply_gate_26514.model;
+
+public enum ReservationStatus {
+    ACTIVE,
+    CONFIRMED,
+    RELEASED,
+    EXPIRED
+}
@@ -0,0 +1,67 @@
+package org.example.supply_gate_26514.model;
+
+import com.fasterxml.jackson.annotation.JsonBackReference;
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A product search stored by a buyer so that newly listed products matching it
+ * can be pushed to them as notifications instead of being polled for.
+ */
+@Entity
+@Table(name = "saved_searches")
+@EntityListeners(TableVersionListener.class)
+public class SavedSearch {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID savedSearchId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @JsonBackReference("user-saved-search")
+    private User user;
+
+    @Column(nullable = false)
+    private String query;
+
+    @CreationTimestamp
+    private LocalDateTime creationDate;
+
+    public SavedSearch() {
+    }
+
+    public UUID getSavedSearchId() {
+        return savedSearchId;
+    }
+
+    public void setSavedSearchId(UUID savedSearchId) {
+        this.savedSearchId = savedSearchId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+}
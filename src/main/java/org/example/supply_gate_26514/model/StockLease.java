@@ -0,0 +1,70 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Units of one product leased by one application node into its in-memory reservation pool
+ * (see InventoryReservationService), not yet written as reservation rows or given back.
+ *
+ * Rows are written only by InventoryReservationService (JDBC), never through this entity.
+ */
+@Entity
+@Table(name = "stock_lease")
+@IdClass(StockLease.Key.class)
+public class StockLease {
+    // InventoryNode.nodeId of the node holding the units
+    @Id
+    @Column(length = 64)
+    private String nodeId;
+
+    @Id
+    private UUID productId;
+
+    // Product.stockGeneration the units were taken from; an absolute stock write voids older leases
+    @Column(nullable = false)
+    private long generation;
+
+    @Column(nullable = false)
+    private int units;
+
+    public StockLease() {
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public UUID getProductId() {
+        return productId;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getUnits() {
+        return units;
+    }
+
+    public static class Key implements Serializable {
+        private String nodeId;
+        private UUID productId;
+
+        public Key() {
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key key && Objects.equals(nodeId, key.nodeId) && Objects.equals(productId, key.productId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(nodeId, productId);
+        }
+    }
+}
@@ -10,7 +10,10 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
+// Not in the second-level cache: it is per node, and ownership checks must see stores created or
+// deleted on other nodes at once
 @Table(name = "stores")
+@EntityListeners({TableVersionListener.class, CatalogEntryListener.class})
 public class Store {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -0,0 +1,68 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stored file in the content-addressed upload layout (see FileStorageService).
+ * The path contains the SHA-256 of the content, so identical uploads share one file;
+ * refCount counts the stored paths handed out for it (product images, documents).
+ *
+ * Rows are written only by FileStorageService (JDBC upserts and guarded decrements),
+ * never through this entity.
+ */
+@Entity
+@Table(name = "stored_blob")
+public class StoredBlob {
+    // Relative path under the upload directory: {subdirectory}/ab/cd/{sha256}.{extension}, see FileStorageService.shardedPath
+    @Id
+    private String path;
+
+    @Column(nullable = false, length = 64)
+    private String sha256;
+
+    @Column(nullable = false)
+    private long size;
+
+    private String contentType;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    private LocalDateTime creationDate;
+
+    // Last time a reference was added; UploadGarbageCollector leaves recently referenced files alone
+    private LocalDateTime lastReferenceDate;
+
+    public StoredBlob() {
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public LocalDateTime getLastReferenceDate() {
+        return lastReferenceDate;
+    }
+}
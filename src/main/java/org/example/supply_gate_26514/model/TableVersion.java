@@ -0,0 +1,38 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Modification counter of one table (see TableVersionService), shared by all application nodes.
+ *
+ * Rows are written only by TableVersionService (JDBC upserts), never through this entity.
+ */
+@Entity
+@Table(name = "table_version")
+public class TableVersion {
+    @Id
+    @Column(length = 64)
+    private String tableName;
+
+    @Column(nullable = false)
+    private long version;
+
+    // Epoch millis of the last committed write, rounded down to seconds (Last-Modified precision)
+    @Column(nullable = false)
+    private long lastModified;
+
+    public TableVersion() {
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+}
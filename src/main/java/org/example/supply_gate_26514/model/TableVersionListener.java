@@ -0,0 +1,43 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.Table;
+import org.example.supply_gate_26514.service.TableVersionService;
+import org.hibernate.Hibernate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+/**
+ * JPA entity listener that bumps the table version (see TableVersionService) whenever an
+ * entity is inserted, updated or deleted. Instantiated by Hibernate through Spring,
+ * so the service can be injected.
+ *
+ * Updates of a user only count when a publicly shown field changed (see
+ * User.isPublicProfileChanged): the users table is written on every login.
+ */
+public class TableVersionListener {
+
+    // Lazy: the service needs the transaction manager, which is built after the entity listeners
+    @Autowired
+    @Lazy
+    private TableVersionService tableVersionService;
+
+    @PostPersist
+    @PostRemove
+    public void onWrite(Object entity) {
+        Table table = Hibernate.getClass(entity).getAnnotation(Table.class);
+        if (table != null) {
+            tableVersionService.bump(table.name());
+        }
+    }
+
+    @PostUpdate
+    public void onUpdate(Object entity) {
+        if (entity instanceof User user && !user.isPublicProfileChanged()) {
+            return;
+        }
+        onWrite(entity);
+    }
+}
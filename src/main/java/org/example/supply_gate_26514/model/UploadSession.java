@@ -0,0 +1,101 @@
+package org.example.supply_gate_26514.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A resumable upload of a verification document in progress (see ResumableUploadService).
+ * The bytes go into a pre-allocated file named after the uploadId; receivedRanges records
+ * which byte ranges of it have been written, so an interrupted upload continues where it stopped.
+ */
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+    // Assigned by ResumableUploadService (also names the partial file)
+    @Id
+    private UUID uploadId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private User user;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private VerificationDocumentType documentType;
+
+    @Column(nullable = false)
+    private long totalSize;
+
+    // Received byte ranges, sorted and merged: "start-end,start-end" (end exclusive)
+    @Column(nullable = false, length = 4000)
+    private String receivedRanges = "";
+
+    private LocalDateTime creationDate;
+
+    @Column(nullable = false)
+    private LocalDateTime lastActivityDate;
+
+    public UploadSession() {
+    }
+
+    public UUID getUploadId() {
+        return uploadId;
+    }
+
+    public void setUploadId(UUID uploadId) {
+        this.uploadId = uploadId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public VerificationDocumentType getDocumentType() {
+        return documentType;
+    }
+
+    public void setDocumentType(VerificationDocumentType documentType) {
+        this.documentType = documentType;
+    }
+
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    public void setTotalSize(long totalSize) {
+        this.totalSize = totalSize;
+    }
+
+    public String getReceivedRanges() {
+        return receivedRanges;
+    }
+
+    public void setReceivedRanges(String receivedRanges) {
+        this.receivedRanges = receivedRanges;
+    }
+
+    public LocalDateTime getCreationDate() {
+        return creationDate;
+    }
+
+    public void setCreationDate(LocalDateTime creationDate) {
+        this.creationDate = creationDate;
+    }
+
+    public LocalDateTime getLastActivityDate() {
+        return lastActivityDate;
+    }
+
+    public void setLastActivityDate(LocalDateTime lastActivityDate) {
+        this.lastActivityDate = lastActivityDate;
+    }
+}
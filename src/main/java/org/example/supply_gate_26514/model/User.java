@@ -6,11 +6,13 @@ import jakarta.persistence.*;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 
 @Entity
 @Table(name = "users")
+@EntityListeners({TableVersionListener.class, CatalogEntryListener.class})
 public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -46,6 +48,10 @@ public class User {
     @CreationTimestamp
     private LocalDateTime creationDate;
 
+    // Fields shown publicly as last loaded or written, see isPublicProfileChanged
+    @Transient
+    private List<Object> savedPublicProfile;
+
     public LocalDateTime getCreationDate() {
         return creationDate;
     }
@@ -211,4 +217,26 @@ public class User {
 
     public User() {
     }
+
+    /**
+     * Whether a field shown publicly (supplier names and email in the catalog, company names)
+     * differs from the database row. Logins, 2FA and password resets write the row all the time
+     * without changing any of them; the entity listeners use this to ignore those writes.
+     * Always true for a user that was not loaded from the database.
+     */
+    public boolean isPublicProfileChanged() {
+        return savedPublicProfile == null || !savedPublicProfile.equals(publicProfile());
+    }
+
+    // Entity listeners run first, so they still compare with the state before this write
+    @PostLoad
+    @PostPersist
+    @PostUpdate
+    void rememberPublicProfile() {
+        savedPublicProfile = publicProfile();
+    }
+
+    private List<Object> publicProfile() {
+        return Arrays.asList(userType, username, firstName, lastName, email, companyName);
+    }
 }
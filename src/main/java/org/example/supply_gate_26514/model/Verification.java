@@ -13,6 +13,7 @@ import java.util.UUID;
  */
 @Entity
 @Table(name = "verifications")
+@EntityListeners(CatalogEntryListener.class)
 public class Verification {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -0,0 +1,11 @@
+package org.example.supply_gate_26514.model;
+
+/**
+ * The documents a supplier submits for verification (one URL field each on Verification).
+ */
+public enum VerificationDocumentType {
+    BUSINESS_LICENSE,
+    TAX_CERTIFICATE,
+    BANK_STATEMENT,
+    IDENTITY_PROOF
+}
@@ -0,0 +1,16 @@
+package org.example.supply_gate_26514.repository;
+
+import org.example.supply_gate_26514.model.CatalogEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * Public catalog entries. Listings are queried with ProductSpecifications.catalogEntries,
+ * which only adds predicates for the filters that are set.
+ */
+@Repository
+public interface CatalogEntryRepository extends JpaRepository<CatalogEntry, UUID>, JpaSpecificationExecutor<CatalogEntry> {
+}
@@ -1,13 +1,25 @@
 package org.example.supply_gate_26514.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.supply_gate_26514.model.Location;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 @Repository
 public interface LocationRepository extends JpaRepository<Location, UUID> {
+    // Results are kept in the query cache until the next write to the table (see ehcache.xml)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Boolean existsLocationByStructureCode(String structureCode);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Location> findByStructureCode(String structureCode);
+
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Location> findAll();
 }
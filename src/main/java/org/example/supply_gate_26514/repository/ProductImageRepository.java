@@ -1,11 +1,29 @@
 package org.example.supply_gate_26514.repository;
 
+import org.example.supply_gate_26514.dto.ProductImageUrlRow;
 import org.example.supply_gate_26514.model.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface ProductImageRepository extends JpaRepository<ProductImage, UUID> {
+    /**
+     * Loads image URLs of several products in one query (no entities are hydrated).
+     */
+    @Query("SELECT new org.example.supply_gate_26514.dto.ProductImageUrlRow(pi.product.productId, pi.imageUrl) " +
+           "FROM ProductImage pi WHERE pi.product.productId IN :productIds")
+    List<ProductImageUrlRow> findImageUrlsByProductIds(@Param("productIds") Collection<UUID> productIds);
+
+    /**
+     * Checks whether an image URL is used by a product of the given supplier (via store).
+     */
+    @Query("SELECT COUNT(pi) > 0 FROM ProductImage pi " +
+           "WHERE pi.imageUrl = :imageUrl AND pi.product.store.user.userId = :userId")
+    boolean existsByImageUrlAndSupplier(@Param("imageUrl") String imageUrl, @Param("userId") UUID userId);
 }
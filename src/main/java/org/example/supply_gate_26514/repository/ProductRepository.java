@@ -1,17 +1,83 @@
 package org.example.supply_gate_26514.repository;
 
+import org.example.supply_gate_26514.dto.ProductListingRow;
+import jakarta.persistence.QueryHint;
 import org.example.supply_gate_26514.model.Product;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, UUID> {
+public interface ProductRepository extends JpaRepository<Product, UUID>, ProductRepositoryCustom {
+
+    /**
+     * Projection used by catalog listings: one flat row per product, no managed entities.
+     */
+    String LISTING_SELECT = "SELECT new org.example.supply_gate_26514.dto.ProductListingRow(" +
+           "p.productId, p.productName, p.productDescription, p.productPrice, p.quantity, p.stockQuantity, " +
+           "c.categoryId, c.categoryName, s.storeId, s.storeName, " +
+           "u.userId, u.firstName, u.lastName, u.username, u.email, p.supplierVerified) " +
+           "FROM Product p " +
+           "LEFT JOIN p.category c " +
+           "LEFT JOIN p.store s " +
+           "LEFT JOIN s.user u ";
+
+    /**
+     * Rows fetched per round trip when streaming exports through a server-side cursor.
+     */
+    String EXPORT_FETCH_SIZE = "500";
+
+    /**
+     * Loads one product with everything its detail view shows (category, store, supplier, images)
+     * in a single query.
+     */
+    @EntityGraph(attributePaths = {"category", "store", "store.user", "productImages"})
+    Optional<Product> findDetailsByProductId(UUID productId);
+
+    /**
+     * Listing rows of the given products (read-only projection), in no particular order.
+     * Second step of filtered listings: the page of IDs comes from findProductIds.
+     */
+    @Query(LISTING_SELECT + "WHERE p.productId IN :productIds")
+    List<ProductListingRow> findListingRowsByIds(@Param("productIds") Collection<UUID> productIds);
+
+    /**
+     * Streams listing rows of all products, for exports.
+     * Must be consumed inside a (read-only) transaction and closed: PostgreSQL only uses a
+     * server-side cursor when auto-commit is off, and then fetches EXPORT_FETCH_SIZE rows at a time
+     * instead of materializing the whole result. Rows are DTOs, so nothing accumulates in the
+     * persistence context while streaming.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(LISTING_SELECT + "ORDER BY p.productId")
+    Stream<ProductListingRow> streamListingRows();
+
+    /**
+     * Streams listing rows of products of verified suppliers, for exports (see streamListingRows).
+     * SECURITY: Filters on the denormalized supplierVerified flag (APPROVED verification).
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(LISTING_SELECT + "WHERE p.supplierVerified = true ORDER BY p.productId")
+    Stream<ProductListingRow> streamVerifiedListingRows();
     
     /**
      * Finds all products with store and user relationships loaded.
@@ -24,10 +90,19 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
            "LEFT JOIN FETCH p.productImages")
     java.util.List<Product> findAllWithRelationships();
     
+    /**
+     * Finds a page of products with category, store and supplier fetched in the same query.
+     * Images are loaded in batches (see Product.productImages) to keep pagination in the database.
+     */
+    @Override
+    @EntityGraph(attributePaths = {"category", "store", "store.user"})
+    Page<Product> findAll(Pageable pageable);
+
     /**
      * Finds products with search across multiple fields.
      * Searches in: productName, productDescription, categoryName, storeName, supplier name/email
      */
+    @EntityGraph(attributePaths = {"category", "store", "store.user"})
     @Query("SELECT DISTINCT p FROM Product p " +
            "LEFT JOIN p.store s " +
            "LEFT JOIN s.user u " +
@@ -42,36 +117,78 @@ public interface ProductRepository extends JpaRepository<Product, UUID> {
     
     /**
      * Finds products from verified suppliers only (APPROVED status).
-     * SECURITY: Uses INNER JOIN to ensure only products from suppliers with APPROVED verification are returned.
+     * SECURITY: Filters on the denormalized supplierVerified flag, which is kept in sync with the
+     * supplier's verification by VerificationService.reviewVerification.
      * For public/procurement pages - only shows products from verified suppliers.
+     * Filtering and counting touch the products table only (partial index idx_products_verified_name).
      */
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "INNER JOIN p.store s " +
-           "INNER JOIN s.user u " +
-           "LEFT JOIN p.category c " +
-           "INNER JOIN org.example.supply_gate_26514.model.Verification v ON v.user.userId = u.userId " +
-           "WHERE v.status = org.example.supply_gate_26514.model.VerificationStatus.APPROVED")
+    @Query(value = "SELECT p FROM Product p WHERE p.supplierVerified = true",
+           countQuery = "SELECT COUNT(p) FROM Product p WHERE p.supplierVerified = true")
+    @EntityGraph(attributePaths = {"category", "store", "store.user"})
     Page<Product> findByVerifiedSuppliers(Pageable pageable);
     
     /**
      * Finds products from verified suppliers with search.
-     * SECURITY: Uses INNER JOIN to ensure only products from suppliers with APPROVED verification are returned.
-     * Only returns products from suppliers with APPROVED verification status.
+     * SECURITY: Only returns products whose supplierVerified flag is set (APPROVED verification).
+     * Store, supplier and category are joined only because the search covers their names.
      */
-    @Query("SELECT DISTINCT p FROM Product p " +
-           "INNER JOIN p.store s " +
-           "INNER JOIN s.user u " +
+    @Query("SELECT p FROM Product p " +
+           "LEFT JOIN p.store s " +
+           "LEFT JOIN s.user u " +
            "LEFT JOIN p.category c " +
-           "INNER JOIN org.example.supply_gate_26514.model.Verification v ON v.user.userId = u.userId " +
-           "WHERE v.status = org.example.supply_gate_26514.model.VerificationStatus.APPROVED " +
+           "WHERE p.supplierVerified = true " +
            "AND (LOWER(p.productName) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(COALESCE(p.productDescription, '')) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(COALESCE(c.categoryName, '')) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(COALESCE(s.storeName, '')) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(COALESCE(u.firstName, '') || ' ' || COALESCE(u.lastName, '')) LIKE LOWER(CONCAT('%', :search, '%')) " +
            "OR LOWER(COALESCE(u.email, '')) LIKE LOWER(CONCAT('%', :search, '%')))")
+    @EntityGraph(attributePaths = {"category", "store", "store.user"})
     Page<Product> findByVerifiedSuppliersAndSearch(@Param("search") String search, Pageable pageable);
+
+    /**
+     * Sets the denormalized supplierVerified flag on every product of a supplier's store(s).
+     * Called in the same transaction as the verification review.
+     *
+     * @return Number of products updated
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.supplierVerified = :verified " +
+           "WHERE p.store.storeId IN (SELECT s.storeId FROM Store s WHERE s.user.userId = :userId)")
+    int updateSupplierVerifiedBySupplier(@Param("userId") UUID userId, @Param("verified") boolean verified);
+
+    /**
+     * Searchable text of a supplier's products, for saved search percolation.
+     * Each row is [productId, productName, productDescription].
+     */
+    @Query("SELECT p.productId, p.productName, p.productDescription FROM Product p WHERE p.store.user.userId = :userId")
+    List<Object[]> findTermsBySupplier(@Param("userId") UUID userId);
     
+    /**
+     * Overwrites the available stock of a product of the given supplier.
+     * Stock is not updatable through the entity (see Product.stockQuantity), only through bulk updates.
+     * Starts a new stock generation; call it through InventoryReservationService, which also
+     * discards the leases of the previous one.
+     *
+     * @return 1 if updated, 0 if the product does not exist or belongs to another supplier
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = :stockQuantity, p.stockGeneration = p.stockGeneration + 1 " +
+           "WHERE p.productId = :productId " +
+           "AND p.store.storeId IN (SELECT s.storeId FROM Store s WHERE s.user.userId = :userId)")
+    int updateStockQuantityBySupplier(@Param("productId") UUID productId, @Param("userId") UUID userId,
+                                      @Param("stockQuantity") Integer stockQuantity);
+
+    /**
+     * Overwrites the available stock of a product (product edit form).
+     * Same contract as {@link #updateStockQuantityBySupplier}, without the ownership check:
+     * the caller checks that the current user owns the product.
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.stockQuantity = :stockQuantity, p.stockGeneration = p.stockGeneration + 1 " +
+           "WHERE p.productId = :productId")
+    int updateStockQuantity(@Param("productId") UUID productId, @Param("stockQuantity") Integer stockQuantity);
+
     /**
      * Counts products owned by a specific supplier (via store).
      */
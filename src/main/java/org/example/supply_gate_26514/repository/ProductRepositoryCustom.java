@@ -0,0 +1,20 @@
+package org.example.supply_gate_26514.repository;
+
+import org.example.supply_gate_26514.model.Product;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.UUID;
+
+/**
+ * Listing queries that Spring Data cannot derive (see ProductRepositoryCustomImpl).
+ */
+public interface ProductRepositoryCustom {
+    /**
+     * Finds one page of product IDs matching the specification, in the requested order.
+     * Only the IDs are selected, so the query reads no more columns or joins than the filter needs;
+     * callers load the listing rows of the page afterwards.
+     */
+    Page<UUID> findProductIds(Specification<Product> specification, Pageable pageable);
+}
@@ -0,0 +1,112 @@
+package org.example.supply_gate_26514.repository;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.From;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.example.supply_gate_26514.dto.ProductFilter;
+import org.example.supply_gate_26514.model.CatalogEntry;
+import org.example.supply_gate_26514.model.Product;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds listing queries from a ProductFilter, adding only the predicates (and joins) the filter uses.
+ *
+ * Structured filters are plain column predicates on products (category and store are compared on the
+ * foreign key, no join), so they run on the composite indexes from DatabaseSchemaInitializer.
+ * Only a search term joins category, store and supplier for the multi-column LIKE.
+ */
+public final class ProductSpecifications {
+
+    private ProductSpecifications() {
+    }
+
+    /**
+     * Criteria on products (all suppliers).
+     */
+    public static Specification<Product> products(ProductFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.categoryId() != null) {
+                predicates.add(cb.equal(root.get("category").get("categoryId"), filter.categoryId()));
+            }
+            if (filter.storeId() != null) {
+                predicates.add(cb.equal(root.get("store").get("storeId"), filter.storeId()));
+            }
+            addRanges(predicates, root, cb, filter);
+            if (filter.search() != null) {
+                Join<Object, Object> category = root.join("category", JoinType.LEFT);
+                Join<Object, Object> store = root.join("store", JoinType.LEFT);
+                Join<Object, Object> supplier = store.join("user", JoinType.LEFT);
+                String pattern = likePattern(filter.search());
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.<String>get("productName")), pattern),
+                        cb.like(cb.lower(cb.coalesce(root.<String>get("productDescription"), "")), pattern),
+                        cb.like(cb.lower(cb.coalesce(category.<String>get("categoryName"), "")), pattern),
+                        cb.like(cb.lower(cb.coalesce(store.<String>get("storeName"), "")), pattern),
+                        cb.like(cb.lower(cb.concat(cb.concat(
+                                cb.coalesce(supplier.<String>get("firstName"), ""), " "),
+                                cb.coalesce(supplier.<String>get("lastName"), ""))), pattern),
+                        cb.like(cb.lower(cb.coalesce(supplier.<String>get("email"), "")), pattern)));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Criteria on the public catalog read model (one flat table, never joins).
+     */
+    public static Specification<CatalogEntry> catalogEntries(ProductFilter filter) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (filter.categoryId() != null) {
+                predicates.add(cb.equal(root.get("categoryId"), filter.categoryId()));
+            }
+            if (filter.storeId() != null) {
+                predicates.add(cb.equal(root.get("storeId"), filter.storeId()));
+            }
+            addRanges(predicates, root, cb, filter);
+            if (filter.search() != null) {
+                // searchText is stored lowercased
+                predicates.add(cb.like(root.<String>get("searchText"), likePattern(filter.search())));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Price, creation date and stock bounds; the attribute names are the same on Product and CatalogEntry
+    private static void addRanges(List<Predicate> predicates, From<?, ?> root, CriteriaBuilder cb, ProductFilter filter) {
+        Path<Double> price = root.get("productPrice");
+        if (filter.minPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(price, filter.minPrice()));
+        }
+        if (filter.maxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(price, filter.maxPrice()));
+        }
+        Path<LocalDateTime> creationDate = root.get("creationDate");
+        if (filter.createdFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(creationDate, filter.createdFrom().atStartOfDay()));
+        }
+        if (filter.createdTo() != null) {
+            predicates.add(cb.lessThan(creationDate, filter.createdTo().plusDays(1).atStartOfDay()));
+        }
+        Expression<Integer> stock = root.get("stockQuantity");
+        if (filter.minStock() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(stock, filter.minStock()));
+        }
+        if (filter.maxStock() != null) {
+            predicates.add(cb.lessThanOrEqualTo(stock, filter.maxStock()));
+        }
+    }
+
+    private static String likePattern(String search) {
+        return "%" + search.toLowerCase() + "%";
+    }
+}
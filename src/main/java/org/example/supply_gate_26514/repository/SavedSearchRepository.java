@@ -0,0 +1,30 @@
+package org.example.supply_gate_26514.repository;
+
+import org.example.supply_gate_26514.model.SavedSearch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SavedSearchRepository extends JpaRepository<SavedSearch, UUID> {
+    /**
+     * Finds all saved searches of a user, newest first.
+     */
+    List<SavedSearch> findByUser_UserIdOrderByCreationDateDesc(UUID userId);
+
+    /**
+     * Counts saved searches of a user (used to enforce the per-user limit).
+     */
+    long countByUser_UserId(UUID userId);
+
+    /**
+     * Loads every saved search with its owner id only.
+     * Used to rebuild the in-memory term index on startup without hydrating users.
+     * Each row is [savedSearchId, userId, query].
+     */
+    @Query("SELECT s.savedSearchId, s.user.userId, s.query FROM SavedSearch s")
+    List<Object[]> findAllForIndex();
+}
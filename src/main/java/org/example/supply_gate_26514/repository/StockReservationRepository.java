@@ -0,0 +1,26 @@
+package org.example.supply_gate_26514.repository;
+
+import org.example.supply_gate_26514.dto.StockReservationResponseDto;
+import org.example.supply_gate_26514.model.StockReservation;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, UUID> {
+    /**
+     * Reservations of a buyer, newest first, as read-only DTOs.
+     */
+    @Query(value = "SELECT new org.example.supply_gate_26514.dto.StockReservationResponseDto(" +
+           "r.reservationId, p.productId, p.productName, r.quantity, r.status, r.expiresAt, r.creationDate) " +
+           "FROM StockReservation r JOIN r.product p " +
+           "WHERE r.user.userId = :userId " +
+           "ORDER BY r.creationDate DESC",
+           countQuery = "SELECT COUNT(r) FROM StockReservation r WHERE r.user.userId = :userId")
+    Page<StockReservationResponseDto> findResponseDtosByUser(@Param("userId") UUID userId, Pageable pageable);
+}
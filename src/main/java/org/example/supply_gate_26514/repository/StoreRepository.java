@@ -8,10 +8,14 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface StoreRepository extends JpaRepository<Store, UUID> {
+    // Not query-cached: imports and ownership checks must see stores written on other nodes
+    List<Store> findByUser_UserId(UUID userId);
+
     /**
      * Finds stores with search across multiple fields.
      * Searches in: storeName, storeEmail, phoneNumber
@@ -0,0 +1,34 @@
+package org.example.supply_gate_26514.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.supply_gate_26514.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+
+    /**
+     * Loads a session with a row lock, so concurrent chunks of one upload record their ranges one after another.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM UploadSession s WHERE s.uploadId = :uploadId")
+    Optional<UploadSession> findByIdForUpdate(@Param("uploadId") UUID uploadId);
+
+    /**
+     * Counts the sessions of a user with activity since the cutoff (older ones are about to be deleted).
+     */
+    @Query("SELECT COUNT(s) FROM UploadSession s WHERE s.user.userId = :userId AND s.lastActivityDate >= :cutoff")
+    long countActiveByUser(@Param("userId") UUID userId, @Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT s.uploadId FROM UploadSession s WHERE s.lastActivityDate < :cutoff")
+    List<UUID> findIdsInactiveSince(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,17 +2,27 @@ package org.example.supply_gate_26514.repository;
 
 import org.example.supply_gate_26514.model.User;
 import org.example.supply_gate_26514.model.UserEnum;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, UUID> {
     Boolean existsByUserId(UUID userId);
 
+    /**
+     * Loads a user with a row lock, so per-user limits are checked and applied one request at a time.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.userId = :userId")
+    Optional<User> findByIdForUpdate(@org.springframework.data.repository.query.Param("userId") UUID userId);
+
     User findByUsername(String username);
     
     User findByEmail(String email);
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -18,6 +20,25 @@ public interface VerificationRepository extends JpaRepository<Verification, UUID
      * Used to check if a supplier is verified.
      */
     Optional<Verification> findByUser_UserId(UUID userId);
+
+    /**
+     * Returns which of the given users have an APPROVED verification.
+     * Used to resolve supplier verification status for a whole page of products in one query.
+     */
+    @Query("SELECT v.user.userId FROM Verification v " +
+           "WHERE v.user.userId IN :userIds " +
+           "AND v.status = org.example.supply_gate_26514.model.VerificationStatus.APPROVED")
+    List<UUID> findApprovedUserIdsIn(@Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * Checks whether the owner of a store has an APPROVED verification.
+     * Used to initialize Product.supplierVerified when a product is created or moved to another store.
+     */
+    @Query("SELECT CASE WHEN COUNT(v) > 0 THEN true ELSE false END FROM Verification v " +
+           "JOIN Store s ON s.user = v.user " +
+           "WHERE s.storeId = :storeId " +
+           "AND v.status = org.example.supply_gate_26514.model.VerificationStatus.APPROVED")
+    boolean isStoreOwnerApproved(@Param("storeId") UUID storeId);
     
     /**
      * Finds verifications with search across multiple fields.
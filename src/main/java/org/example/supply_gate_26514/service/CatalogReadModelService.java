@@ -0,0 +1,337 @@
+package org.example.supply_gate_26514.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Maintains the public catalog read model (table catalog_entry, see CatalogEntry).
+ *
+ * Writes mark the affected rows as stale instead of refreshing them inline: JPA writes through
+ * CatalogEntryListener, JDBC and bulk writes by calling {@link #markChanged} themselves.
+ * Marks are collected per transaction and only queued after commit, so the refresh never
+ * reads data that is not visible yet. A scheduled job drains the queue about once a second
+ * and refreshes each scope with one set-based upsert, so a burst of writes to the same
+ * products (imports, reservations) costs one refresh.
+ *
+ * The upsert skips rows whose values did not change, so refreshing a large scope (a supplier
+ * with many products) only writes what actually differs. A full rebuild runs at startup (marks
+ * queued before a restart are lost) and nightly, and also removes rows of deleted products.
+ *
+ * The same marks invalidate the product detail cache (see ProductDetailCache). Except for stock
+ * changes ({@link #markStockChanged}) they also bump the product details version, which tells the
+ * other nodes to drop their detail caches.
+ *
+ * After every refresh the products table version is bumped again: ETags of the public catalog
+ * are derived from it, and a client must not cache the pre-refresh listing under the new ETag.
+ */
+@Service
+public class CatalogReadModelService {
+
+    /**
+     * What a change affects: its ID column in the products query and in catalog_entry.
+     */
+    public enum Scope {
+        PRODUCT("p.product_id", "ce.product_id"),
+        STORE("p.store_id", "ce.store_id"),
+        CATEGORY("p.category_id", "ce.category_id"),
+        // Verification status: shows or hides every product of the supplier
+        SUPPLIER("s.user_id", "ce.supplier_id"),
+        // Name or email of a supplier: only the supplier columns are rewritten
+        SUPPLIER_PROFILE(null, "ce.supplier_id");
+
+        private final String productColumn;
+        private final String entryColumn;
+
+        Scope(String productColumn, String entryColumn) {
+            this.productColumn = productColumn;
+            this.entryColumn = entryColumn;
+        }
+    }
+
+    private static final int REFRESH_BATCH_SIZE = 1000;
+    private static final int MAX_BATCHES_PER_RUN = 100;
+    private static final int REBUILD_BATCH_SIZE = 5000;
+
+    private static final Object PENDING_CHANGES_KEY = CatalogReadModelService.class.getName() + ".pendingChanges";
+
+    // Same result as ProductMapper.formatSupplierName
+    private static final String SUPPLIER_NAME =
+            "COALESCE(NULLIF(TRIM(COALESCE(u.first_name, '') || COALESCE(' ' || u.last_name, '')), ''), u.username)";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO catalog_entry (product_id, product_name, product_description, product_price, quantity, " +
+            "stock_quantity, category_id, category_name, store_id, store_name, supplier_id, supplier_name, " +
+            "supplier_email, image_urls, search_text, creation_date, refreshed_at) " +
+            "SELECT p.product_id, p.product_name, p.product_description, p.product_price, p.quantity, " +
+            "p.stock_quantity, c.category_id, c.category_name, s.store_id, s.store_name, u.user_id, " +
+            SUPPLIER_NAME + ", u.email, " +
+            "COALESCE((SELECT jsonb_agg(i.image_url ORDER BY i.image_id) FROM product_images i " +
+            "  WHERE i.product_id = p.product_id AND i.image_url <> ''), '[]'::jsonb), " +
+            "LOWER(CONCAT_WS(' ', p.product_name, p.product_description, c.category_name, s.store_name, " +
+            "  u.first_name, u.last_name, u.email)), " +
+            "p.creation_date, now() " +
+            "FROM products p " +
+            "LEFT JOIN categories c ON c.category_id = p.category_id " +
+            "LEFT JOIN stores s ON s.store_id = p.store_id " +
+            "LEFT JOIN users u ON u.user_id = s.user_id " +
+            "WHERE p.supplier_verified AND %s = ANY(?) " +
+            "ON CONFLICT (product_id) DO UPDATE SET product_name = EXCLUDED.product_name, " +
+            "product_description = EXCLUDED.product_description, product_price = EXCLUDED.product_price, " +
+            "quantity = EXCLUDED.quantity, stock_quantity = EXCLUDED.stock_quantity, " +
+            "category_id = EXCLUDED.category_id, category_name = EXCLUDED.category_name, " +
+            "store_id = EXCLUDED.store_id, store_name = EXCLUDED.store_name, " +
+            "supplier_id = EXCLUDED.supplier_id, supplier_name = EXCLUDED.supplier_name, " +
+            "supplier_email = EXCLUDED.supplier_email, image_urls = EXCLUDED.image_urls, " +
+            "search_text = EXCLUDED.search_text, creation_date = EXCLUDED.creation_date, " +
+            "refreshed_at = EXCLUDED.refreshed_at " +
+            "WHERE (catalog_entry.product_name, catalog_entry.product_description, catalog_entry.product_price, " +
+            "catalog_entry.quantity, catalog_entry.stock_quantity, catalog_entry.category_id, " +
+            "catalog_entry.category_name, catalog_entry.store_id, catalog_entry.store_name, " +
+            "catalog_entry.supplier_id, catalog_entry.supplier_name, catalog_entry.supplier_email, " +
+            "catalog_entry.image_urls, catalog_entry.creation_date) IS DISTINCT FROM " +
+            "(EXCLUDED.product_name, EXCLUDED.product_description, EXCLUDED.product_price, " +
+            "EXCLUDED.quantity, EXCLUDED.stock_quantity, EXCLUDED.category_id, " +
+            "EXCLUDED.category_name, EXCLUDED.store_id, EXCLUDED.store_name, " +
+            "EXCLUDED.supplier_id, EXCLUDED.supplier_name, EXCLUDED.supplier_email, " +
+            "EXCLUDED.image_urls, EXCLUDED.creation_date)";
+
+    private static final String PROFILE_SQL =
+            "UPDATE catalog_entry ce SET supplier_name = " + SUPPLIER_NAME + ", supplier_email = u.email, " +
+            "search_text = LOWER(CONCAT_WS(' ', ce.product_name, ce.product_description, ce.category_name, " +
+            "  ce.store_name, u.first_name, u.last_name, u.email)), refreshed_at = now() " +
+            "FROM users u " +
+            "WHERE ce.supplier_id = u.user_id AND u.user_id = ANY(?) " +
+            "AND (ce.supplier_name, ce.supplier_email) IS DISTINCT FROM (" + SUPPLIER_NAME + ", u.email)";
+
+    // Rows in scope whose product is gone or no longer public
+    private static final String DELETE_SQL =
+            "DELETE FROM catalog_entry ce WHERE %s = ANY(?) AND NOT EXISTS (" +
+            "SELECT 1 FROM products p WHERE p.product_id = ce.product_id AND p.supplier_verified)";
+
+    private static final String DELETE_ORPHANS_SQL =
+            "DELETE FROM catalog_entry ce WHERE NOT EXISTS (" +
+            "SELECT 1 FROM products p WHERE p.product_id = ce.product_id AND p.supplier_verified)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private ProductDetailCache productDetailCache;
+
+    // Committed changes waiting for the next refresh, per scope
+    private final Map<Scope, Set<UUID>> pending = new EnumMap<>(Scope.class);
+
+    // Refresh and rebuild upsert overlapping rows; serializing them avoids deadlocks between the two
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    public CatalogReadModelService() {
+        for (Scope scope : Scope.values()) {
+            pending.put(scope, ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    /**
+     * Marks the catalog entries in a scope as stale. Inside a transaction they are queued after
+     * commit (and dropped on rollback); otherwise they are queued immediately.
+     */
+    public void markChanged(Scope scope, UUID id) {
+        if (id != null) {
+            markChanged(scope, List.of(id));
+        }
+    }
+
+    public void markChanged(Scope scope, Collection<UUID> ids) {
+        if (!ids.isEmpty()) {
+            tableVersionService.bump(TableVersionService.PRODUCT_DETAILS);
+            mark(scope, ids);
+        }
+    }
+
+    /**
+     * Marks products whose stock changed. Unlike {@link #markChanged} this leaves the product
+     * details version alone: stock moves with every reservation and would keep flushing the detail
+     * caches of all nodes. Other nodes show the new stock once their entry expires.
+     */
+    public void markStockChanged(UUID productId) {
+        markStockChanged(List.of(productId));
+    }
+
+    public void markStockChanged(Collection<UUID> productIds) {
+        mark(Scope.PRODUCT, productIds);
+    }
+
+    private void mark(Scope scope, Collection<UUID> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending.get(scope).addAll(ids);
+            invalidateDetails(scope, ids);
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Map<Scope, Set<UUID>> changes = (Map<Scope, Set<UUID>>) TransactionSynchronizationManager.getResource(PENDING_CHANGES_KEY);
+        if (changes == null) {
+            Map<Scope, Set<UUID>> transactionChanges = new EnumMap<>(Scope.class);
+            changes = transactionChanges;
+            TransactionSynchronizationManager.bindResource(PENDING_CHANGES_KEY, transactionChanges);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    transactionChanges.forEach((changedScope, changedIds) -> {
+                        pending.get(changedScope).addAll(changedIds);
+                        invalidateDetails(changedScope, changedIds);
+                    });
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_CHANGES_KEY);
+                }
+            });
+        }
+        changes.computeIfAbsent(scope, s -> new HashSet<>()).addAll(ids);
+    }
+
+    /**
+     * Detail views are not derived from the read model, so they are invalidated right after commit
+     * instead of waiting for the refresh.
+     */
+    private void invalidateDetails(Scope scope, Collection<UUID> ids) {
+        switch (scope) {
+            case PRODUCT -> productDetailCache.invalidateProducts(ids);
+            case STORE -> productDetailCache.invalidateStores(ids);
+            case CATEGORY -> productDetailCache.invalidateCategories(ids);
+            case SUPPLIER, SUPPLIER_PROFILE -> productDetailCache.invalidateSuppliers(ids);
+        }
+    }
+
+    /**
+     * Refreshes the catalog entries marked as stale since the last run.
+     * Failed batches go back to the queue and are retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.catalog.refresh-interval-ms:1000}")
+    public void refreshPending() {
+        boolean refreshed = false;
+        for (Scope scope : Scope.values()) {
+            Set<UUID> queue = pending.get(scope);
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN && !queue.isEmpty(); batch++) {
+                List<UUID> ids = drain(queue);
+                try {
+                    refresh(scope, ids);
+                    refreshed = true;
+                } catch (DataAccessException e) {
+                    queue.addAll(ids);
+                    System.err.println("Catalog refresh of " + ids.size() + " " + scope + " changes failed (will retry): " +
+                            e.getMostSpecificCause().getMessage());
+                    break;
+                }
+            }
+        }
+        if (refreshed) {
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+        }
+    }
+
+    /**
+     * Rebuilds the whole read model in batches of products, then removes rows of products that
+     * no longer exist or are no longer public. Unchanged rows are not rewritten.
+     */
+    @Scheduled(cron = "${app.catalog.rebuild-cron:0 30 3 * * *}")
+    public void rebuildCatalog() {
+        long startTime = System.currentTimeMillis();
+        long products = 0;
+        try {
+            List<UUID> ids = jdbcTemplate.queryForList(
+                    "SELECT product_id FROM products ORDER BY product_id LIMIT ?", UUID.class, REBUILD_BATCH_SIZE);
+            while (!ids.isEmpty()) {
+                refresh(Scope.PRODUCT, ids);
+                products += ids.size();
+                if (ids.size() < REBUILD_BATCH_SIZE) {
+                    break;
+                }
+                ids = jdbcTemplate.queryForList(
+                        "SELECT product_id FROM products WHERE product_id > ? ORDER BY product_id LIMIT ?",
+                        UUID.class, ids.get(ids.size() - 1), REBUILD_BATCH_SIZE);
+            }
+
+            refreshLock.lock();
+            try {
+                jdbcTemplate.update(DELETE_ORPHANS_SQL);
+            } finally {
+                refreshLock.unlock();
+            }
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+            System.out.println(String.format("Catalog read model rebuilt: %d products checked in %d ms",
+                    products, System.currentTimeMillis() - startTime));
+        } catch (DataAccessException e) {
+            System.err.println("Catalog rebuild failed after " + products + " products: " +
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Brings the read model up to date in the background after startup
+     * (fills it on first run, and picks up changes queued before the last shutdown).
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuildCatalog();
+    }
+
+    private void refresh(Scope scope, List<UUID> ids) {
+        refreshLock.lock();
+        try {
+            newTransaction().executeWithoutResult(status -> {
+                if (scope == Scope.SUPPLIER_PROFILE) {
+                    updateWithIds(PROFILE_SQL, ids);
+                } else {
+                    updateWithIds(String.format(UPSERT_SQL, scope.productColumn), ids);
+                    updateWithIds(String.format(DELETE_SQL, scope.entryColumn), ids);
+                }
+            });
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private void updateWithIds(String sql, List<UUID> ids) {
+        jdbcTemplate.update(sql, ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray())));
+    }
+
+    private static List<UUID> drain(Set<UUID> queue) {
+        List<UUID> ids = new ArrayList<>(REFRESH_BATCH_SIZE);
+        Iterator<UUID> iterator = queue.iterator();
+        while (iterator.hasNext() && ids.size() < REFRESH_BATCH_SIZE) {
+            ids.add(iterator.next());
+            iterator.remove();
+        }
+        return ids;
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+}
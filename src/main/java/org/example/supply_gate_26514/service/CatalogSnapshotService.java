@@ -0,0 +1,258 @@
+package org.example.supply_gate_26514.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.supply_gate_26514.dto.ProductFilter;
+import org.example.supply_gate_26514.dto.ProductResponseDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Renders the hottest public catalog requests into static files, so a plain web server
+ * (nginx, a CDN origin) can answer them without reaching the application.
+ *
+ * For the whole catalog and for each category, the first few pages in each listing order are
+ * written as the same JSON that GET /api/products/getProducts?verifiedOnly=true returns, plus a
+ * pre-gzipped copy for gzip_static / precompressed serving. Layout:
+ * {directory}/{all|categoryId}/{sort}/{page}.json and .json.gz.
+ *
+ * The job runs every few seconds but does nothing while the products table version is unchanged.
+ * Otherwise it compares a per-category fingerprint of catalog_entry (row count and latest
+ * refresh time; every upsert sets refreshed_at and every delete lowers the count) with the one of
+ * the last run and only renders the categories that differ, plus the whole catalog. Files whose
+ * content did not change are not rewritten, and new files replace old ones atomically, so the
+ * web server never serves a partly written file.
+ */
+@Service
+public class CatalogSnapshotService {
+
+    /**
+     * Listing orders that get snapshots: directory name and the sort of the equivalent API request.
+     */
+    private enum SnapshotSort {
+        NAME("name", Sort.by("productName")),
+        NEWEST("newest", Sort.by(Sort.Direction.DESC, "creationDate"));
+
+        private final String directory;
+        private final Sort sort;
+
+        SnapshotSort(String directory, Sort sort) {
+            this.directory = directory;
+            this.sort = sort;
+        }
+    }
+
+    private static final String ALL_CATEGORIES = "all";
+
+    private static final String FINGERPRINT_SQL =
+            "SELECT category_id, COUNT(*), MAX(refreshed_at) FROM catalog_entry GROUP BY category_id";
+
+    private record Fingerprint(long entries, Timestamp lastRefreshed) {
+    }
+
+    @Value("${app.catalog-snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.catalog-snapshot.directory:catalog-snapshots}")
+    private String directory;
+
+    @Value("${app.catalog-snapshot.pages:5}")
+    private int pages;
+
+    @Value("${app.catalog-snapshot.page-size:10}")
+    private int pageSize;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Fingerprints of the snapshots on disk; only touched by the scheduled job
+    private Map<UUID, Fingerprint> rendered = new HashMap<>();
+    private String renderedVersion;
+    private boolean allCategoriesDirty = true;
+
+    /**
+     * Regenerates the snapshots of the categories whose catalog entries changed since the last run.
+     * A category that fails is retried on the next run.
+     */
+    @Scheduled(fixedDelayString = "${app.catalog-snapshot.interval-ms:5000}",
+               initialDelayString = "${app.catalog-snapshot.initial-delay-ms:30000}")
+    public void refreshSnapshots() {
+        if (!enabled) {
+            return;
+        }
+        String version = tableVersionService.eTag(TableVersionService.PRODUCTS);
+        if (version.equals(renderedVersion)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        Path root = Paths.get(directory).toAbsolutePath().normalize();
+        Map<UUID, Fingerprint> current = new HashMap<>();
+        try {
+            jdbcTemplate.query(FINGERPRINT_SQL, rs -> {
+                current.put(rs.getObject(1, UUID.class), new Fingerprint(rs.getLong(2), rs.getTimestamp(3)));
+            });
+        } catch (DataAccessException e) {
+            System.err.println("Catalog snapshot check failed: " + e.getMostSpecificCause().getMessage());
+            return;
+        }
+
+        Map<UUID, Fingerprint> done = new HashMap<>();
+        int renderedCategories = 0;
+        boolean failed = false;
+        for (Map.Entry<UUID, Fingerprint> entry : current.entrySet()) {
+            // Products without a category only appear in the whole catalog
+            if (entry.getKey() == null || entry.getValue().equals(rendered.get(entry.getKey()))) {
+                done.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+            if (render(root, entry.getKey().toString(), entry.getKey())) {
+                done.put(entry.getKey(), entry.getValue());
+                renderedCategories++;
+            } else {
+                failed = true;
+            }
+        }
+        // The whole catalog changes whenever any category does
+        if (allCategoriesDirty || !current.equals(rendered)) {
+            allCategoriesDirty = !render(root, ALL_CATEGORIES, null);
+            failed |= allCategoriesDirty;
+        }
+        deleteStaleCategories(root, current.keySet());
+
+        rendered = done;
+        // Left unset after a failure, so the next run retries even without further writes
+        renderedVersion = failed ? null : version;
+        if (renderedCategories > 0) {
+            System.out.println(String.format("Catalog snapshots: %d categories regenerated in %d ms",
+                    renderedCategories, System.currentTimeMillis() - startTime));
+        }
+    }
+
+    /**
+     * Writes the snapshot pages of one category (or of the whole catalog for a null categoryId).
+     *
+     * @return false if rendering failed
+     */
+    private boolean render(Path root, String name, UUID categoryId) {
+        ProductFilter filter = new ProductFilter(null, categoryId, null, null, null, null, null, null, null);
+        try {
+            for (SnapshotSort snapshotSort : SnapshotSort.values()) {
+                // All snapshot pages with one query, then split into the pages the API would return
+                Sort sort = snapshotSort.sort.and(Sort.by("productId"));
+                Page<ProductResponseDto> firstPages =
+                        productService.getPublicProducts(PageRequest.of(0, pages * pageSize, sort), filter);
+                List<ProductResponseDto> content = firstPages.getContent();
+
+                Path sortDirectory = root.resolve(name).resolve(snapshotSort.directory);
+                Files.createDirectories(sortDirectory);
+                Set<String> written = new HashSet<>();
+                int pageCount = Math.max(1, Math.min(pages, (content.size() + pageSize - 1) / pageSize));
+                for (int page = 0; page < pageCount; page++) {
+                    List<ProductResponseDto> pageContent =
+                            content.subList(Math.min(page * pageSize, content.size()), Math.min((page + 1) * pageSize, content.size()));
+                    Page<ProductResponseDto> snapshotPage = new PageImpl<>(pageContent,
+                            PageRequest.of(page, pageSize, snapshotSort.sort), firstPages.getTotalElements());
+                    byte[] json = objectMapper.writeValueAsBytes(snapshotPage);
+                    writeIfChanged(sortDirectory.resolve(page + ".json"), json);
+                    writeIfChanged(sortDirectory.resolve(page + ".json.gz"), gzip(json));
+                    written.add(page + ".json");
+                    written.add(page + ".json.gz");
+                }
+                // Pages past the end of a shrunk category
+                try (Stream<Path> files = Files.list(sortDirectory)) {
+                    for (Path file : files.toList()) {
+                        if (!written.contains(file.getFileName().toString())) {
+                            Files.deleteIfExists(file);
+                        }
+                    }
+                }
+            }
+            return true;
+        } catch (IOException | UncheckedIOException | DataAccessException e) {
+            System.err.println("Catalog snapshot of " + name + " failed (will retry): " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Replaces a file atomically (write to a temporary file, then rename) unless it already
+     * has this content, so unchanged files keep their modification time and cache validators.
+     */
+    private static void writeIfChanged(Path file, byte[] content) throws IOException {
+        if (Files.exists(file) && Arrays.equals(Files.readAllBytes(file), content)) {
+            return;
+        }
+        // Not Files.createTempFile: its owner-only permissions would make the file unreadable to the web server
+        Path temp = file.resolveSibling(".snapshot-" + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Removes the snapshots of categories without public products (also those left over from
+     * before a restart), so their pages are no longer served.
+     */
+    private static void deleteStaleCategories(Path root, Set<UUID> categoryIds) {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path path : directories.toList()) {
+                String name = path.getFileName().toString();
+                if (!name.equals(ALL_CATEGORIES) && categoryIds.stream().noneMatch(id -> id != null && id.toString().equals(name))) {
+                    deleteDirectory(path);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list catalog snapshots in " + root + ": " + e.getMessage());
+        }
+    }
+
+    private static void deleteDirectory(Path path) {
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Could not delete catalog snapshot " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -5,13 +5,13 @@ import org.example.supply_gate_26514.model.User;
 import org.example.supply_gate_26514.model.UserEnum;
 import org.example.supply_gate_26514.repository.MessageRepository;
 import org.example.supply_gate_26514.repository.NotificationRepository;
-import org.example.supply_gate_26514.repository.ProductRepository;
 import org.example.supply_gate_26514.repository.ReviewRepository;
 import org.example.supply_gate_26514.repository.StoreRepository;
 import org.example.supply_gate_26514.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -22,11 +22,14 @@ public class DashboardService {
     @Autowired
     private StoreRepository storeRepository;
     @Autowired
-    private ProductRepository productRepository;
-    @Autowired
     private MessageRepository messageRepository;
     @Autowired
     private NotificationRepository notificationRepository;
+    @Autowired
+    private ProductEngagementService productEngagementService;
+
+    // Engagement changes compare the last 7 days with the 7 days before
+    private static final int ENGAGEMENT_PERIOD_DAYS = 7;
 
     public DashboardStatsDto getSupplierDashboardStats(UUID userId) {
         User user = userRepository.findById(userId)
@@ -45,8 +48,15 @@ public class DashboardService {
         // Total Customers: Same as followers (unique message senders)
         long totalCustomers = totalFollowers;
         
-        // Total Impressions: Count of products owned by this supplier
-        long totalImpressions = productRepository.countByStore_User_UserId(userId);
+        // Total Impressions / Product Views: times the supplier's products were listed / opened
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        LocalDate periodStart = tomorrow.minusDays(ENGAGEMENT_PERIOD_DAYS);
+        var allTime = productEngagementService.getSupplierTotals(userId, LocalDate.EPOCH, tomorrow);
+        var currentPeriod = productEngagementService.getSupplierTotals(userId, periodStart, tomorrow);
+        var previousPeriod = productEngagementService.getSupplierTotals(userId,
+                periodStart.minusDays(ENGAGEMENT_PERIOD_DAYS), periodStart);
+        long totalImpressions = allTime.impressions();
+        long totalProductViews = allTime.views();
         
         // Total Notifications: Unread notifications count
         long totalNotifications = notificationRepository.countByUser_UserIdAndIsReadFalse(userId);
@@ -55,8 +65,9 @@ public class DashboardService {
         // In production, you could compare with previous period
         double followersChange = 0.0;
         double customersChange = 0.0;
-        double impressionsChange = 0.0;
+        double impressionsChange = percentChange(previousPeriod.impressions(), currentPeriod.impressions());
         double notificationsChange = 0.0;
+        double productViewsChange = percentChange(previousPeriod.views(), currentPeriod.views());
 
         return new DashboardStatsDto(
                 totalFollowers,
@@ -66,10 +77,23 @@ public class DashboardService {
                 followersChange,
                 customersChange,
                 impressionsChange,
-                notificationsChange
+                notificationsChange,
+                totalProductViews,
+                productViewsChange
         );
     }
 
+    /**
+     * Change from the previous to the current period in percent, rounded to one decimal
+     * (100% when there was no activity before).
+     */
+    private static double percentChange(long previous, long current) {
+        if (previous == 0) {
+            return current > 0 ? 100.0 : 0.0;
+        }
+        return Math.round((current - previous) * 1000.0 / previous) / 10.0;
+    }
+
     public DashboardStatsDto getIndustryDashboardStats() {
         // For industry workers, show verification-related stats
         long pendingVerifications = 0; // Will be calculated in controller
@@ -82,7 +106,8 @@ public class DashboardService {
                 approvedVerifications,
                 rejectedVerifications,
                 totalNotifications,
-                0, 0, 0, 0
+                0, 0, 0, 0,
+                0, 0
         );
     }
 }
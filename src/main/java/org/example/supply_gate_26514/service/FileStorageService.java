@@ -1,34 +1,63 @@
 package org.example.supply_gate_26514.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * Service for handling file storage operations.
  * 
  * Follows enterprise standards for file management:
- * - Validates file types and sizes
- * - Generates unique filenames to prevent collisions
- * - Stores files in organized directory structure
+ * - Validates file types (from the content's magic bytes) and sizes while the upload streams in
+ * - Stores files content-addressed: the name is the SHA-256 of the content, computed while the
+ *   upload is written, so identical uploads share one file
+ * - Stores files in a two-level sharded directory structure ({subdirectory}/ab/cd/{name}, see
+ *   shardedPath), so no directory grows past a few thousand entries
  * - Provides secure file access
+ *
+ * Every stored path is reference counted in stored_blob (see StoredBlob): storing content that
+ * already exists only increments the count, and deleteFile only removes the bytes when the last
+ * reference is deleted. Files from before this layout (UUID-named, no stored_blob row) are deleted
+ * directly.
+ *
+ * Older layouts (flat {subdirectory}/{name}, one level {subdirectory}/ab/{name}) are moved to the
+ * sharded one by UploadLayoutMigrationService; until then locate finds a file in any layout.
+ *
+ * The bytes themselves are kept by the configured StorageBackend (local directory or S3 bucket).
+ * Uploads are staged in the local upload directory while they are validated and hashed, whichever
+ * backend is used.
  */
 @Service
 public class FileStorageService {
     
-    // Allowed image MIME types
+    // Allowed image MIME types (as detected from the content)
     private static final List<String> ALLOWED_IMAGE_TYPES = List.of(
         "image/jpeg",
-        "image/jpg",
         "image/png",
         "image/webp",
         "image/gif"
@@ -37,7 +66,6 @@ public class FileStorageService {
     // Allowed document MIME types (for verification documents)
     private static final List<String> ALLOWED_DOCUMENT_TYPES = List.of(
         "image/jpeg",
-        "image/jpg",
         "image/png",
         "application/pdf"
     );
@@ -46,222 +74,398 @@ public class FileStorageService {
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024;
     
     // Maximum document size: 10MB (in bytes) - for verification documents
-    private static final long MAX_DOCUMENT_SIZE = 10 * 1024 * 1024;
+    public static final long MAX_DOCUMENT_SIZE = 10 * 1024 * 1024;
+    
+    private static final Map<String, String> CONTENT_TYPE_EXTENSIONS = Map.of(
+        "image/jpeg", "jpg",
+        "image/png", "png",
+        "image/webp", "webp",
+        "image/gif", "gif",
+        "application/pdf", "pdf"
+    );
+    
+    private static final String ADD_REFERENCE_SQL =
+        "INSERT INTO stored_blob (path, sha256, size, content_type, ref_count, creation_date, last_reference_date) " +
+        "VALUES (?, ?, ?, ?, 1, now(), now()) " +
+        "ON CONFLICT (path) DO UPDATE SET ref_count = stored_blob.ref_count + 1, last_reference_date = now()";
+    
+    // Increments the first of the given spellings that has a live row (never brings back a deleted file)
+    private static final String ADD_EXISTING_REFERENCE_SQL =
+        "UPDATE stored_blob SET ref_count = ref_count + 1, last_reference_date = now() WHERE path = (" +
+        "  SELECT path FROM stored_blob WHERE path = ANY(?) AND ref_count > 0 " +
+        "  ORDER BY array_position(?, path) LIMIT 1) " +
+        "AND ref_count > 0";
+    
+    // Decrements the first of the given spellings that has a row (current layout first, see referenceCandidates)
+    private static final String REMOVE_REFERENCE_SQL =
+        "UPDATE stored_blob SET ref_count = ref_count - 1 WHERE path = (" +
+        "  SELECT path FROM stored_blob WHERE path = ANY(?) AND ref_count > 0 " +
+        "  ORDER BY array_position(?, path) LIMIT 1 FOR UPDATE) " +
+        "RETURNING path, ref_count";
     
     @Value("${file.upload-dir:uploads}")
     private String uploadDir;
     
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private ImageVariantService imageVariantService;
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
     /**
-     * Validates an image file.
+     * Stores an image and returns the relative path.
+     * The content is read once, straight from the given stream (e.g. a multipart part as it
+     * arrives); the type is detected from its first bytes, not from what the client claims.
      * 
-     * @param file The file to validate
-     * @throws IllegalArgumentException if file is invalid
+     * @param content The image content
+     * @param subdirectory Subdirectory within uploads (e.g., "products")
+     * @return Relative path to the stored file (e.g., "products/3f/a1/3fa1...c2.jpg", see storeContent)
+     * @throws IllegalArgumentException if the content is empty, too large or not a JPG, PNG, WEBP or GIF image
+     * @throws IOException if file storage fails
      */
-    public void validateImageFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new IllegalArgumentException("Image file is required");
-        }
+    public String storeImage(InputStream content, String subdirectory) throws IOException {
+        String relativePath = storeContent(content, subdirectory, ALLOWED_IMAGE_TYPES, MAX_FILE_SIZE,
+                "Invalid file type. Allowed types: JPG, PNG, WEBP, GIF");
         
-        // Check file size
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new IllegalArgumentException(
-                String.format("File size exceeds maximum allowed size of %d MB", MAX_FILE_SIZE / (1024 * 1024))
-            );
-        }
+        // Thumbnails and other sizes are rendered in the background (skipped if they already exist)
+        imageVariantService.generateVariantsAsync(relativePath);
         
-        // Check content type
-        String contentType = file.getContentType();
-        if (contentType == null || !ALLOWED_IMAGE_TYPES.contains(contentType.toLowerCase())) {
-            throw new IllegalArgumentException(
-                "Invalid file type. Allowed types: JPG, PNG, WEBP, GIF"
-            );
-        }
-        
-        // Additional validation: check file extension
-        String originalFilename = file.getOriginalFilename();
-        if (originalFilename == null) {
-            throw new IllegalArgumentException("File must have a filename");
-        }
-        
-        String extension = getFileExtension(originalFilename).toLowerCase();
-        List<String> allowedExtensions = List.of("jpg", "jpeg", "png", "webp", "gif");
-        if (!allowedExtensions.contains(extension)) {
-            throw new IllegalArgumentException(
-                "Invalid file extension. Allowed extensions: .jpg, .jpeg, .png, .webp, .gif"
-            );
-        }
+        // Return relative path for database storage
+        return relativePath;
     }
     
     /**
-     * Stores an image file and returns the relative path.
+     * Normalizes a relative path into a storage key ("products/3f/a1/3fa1...c2.jpg").
+     * SECURITY: "..", absolute paths and anything else that would leave the upload directory
+     * are rejected, so callers may pass client input.
      * 
-     * @param file The file to store
-     * @param subdirectory Subdirectory within uploads (e.g., "products")
-     * @return Relative path to the stored file (e.g., "products/uuid-filename.jpg")
-     * @throws IOException if file storage fails
+     * @throws IllegalArgumentException if the path points outside the upload directory
      */
-    public String storeImage(MultipartFile file, String subdirectory) throws IOException {
-        validateImageFile(file);
-        
-        // Create directory structure if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir, subdirectory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Generate unique filename to prevent collisions
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + "-" + sanitizeFilename(originalFilename);
-        
-        // Store file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // Return relative path for database storage
-        return subdirectory + "/" + uniqueFilename;
+    public static String normalizeKey(String relativePath) {
+        Path root = Paths.get("").toAbsolutePath();
+        return root.relativize(resolveWithin(root, relativePath)).toString().replace(File.separatorChar, '/');
     }
     
     /**
-     * Stores multiple image files.
+     * Finds a stored file in whichever directory layout it currently is (see shardedPath),
+     * so paths saved before or during the layout migration keep working.
      * 
-     * @param files List of files to store
-     * @param subdirectory Subdirectory within uploads
-     * @return List of relative paths to stored files
-     * @throws IOException if file storage fails
+     * @param relativePath Relative path from database, in any layout
+     * @return The normalized key where the file exists, or null if it exists nowhere
+     * @throws IllegalArgumentException if the path points outside the upload directory
+     * @throws IOException if the storage backend cannot be reached
      */
-    public List<String> storeImages(List<MultipartFile> files, String subdirectory) throws IOException {
-        List<String> storedPaths = new ArrayList<>();
-        for (MultipartFile file : files) {
-            if (file != null && !file.isEmpty()) {
-                storedPaths.add(storeImage(file, subdirectory));
+    public String locate(String relativePath) throws IOException {
+        String key = normalizeKey(relativePath);
+        if (storageBackend.exists(key)) {
+            return key;
+        }
+        for (String candidate : layoutCandidates(key)) {
+            if (!candidate.equals(key) && storageBackend.exists(candidate)) {
+                return candidate;
             }
         }
-        return storedPaths;
+        return null;
     }
     
     /**
-     * Gets the full path to a stored file.
-     * 
-     * @param relativePath Relative path from database (e.g., "products/uuid-filename.jpg")
-     * @return Full path to the file
+     * Path of a file in the sharded layout: {subdirectory}/ab/cd/{fileName}.
+     * ab and cd are the first four characters of the name when they are hex digits (content
+     * hashes, UUID-prefixed names), otherwise of the SHA-256 of the name, so the shard of
+     * any name can be computed without a lookup.
      */
-    public Path getFilePath(String relativePath) {
-        return Paths.get(uploadDir, relativePath);
+    public static String shardedPath(String subdirectory, String fileName) {
+        String shard = fileName.length() >= 4 && fileName.substring(0, 4).matches("[0-9a-f]{4}")
+                ? fileName.substring(0, 4)
+                : HexFormat.of().formatHex(sha256().digest(fileName.getBytes(StandardCharsets.UTF_8))).substring(0, 4);
+        return subdirectory + "/" + shard.substring(0, 2) + "/" + shard.substring(2, 4) + "/" + fileName;
     }
     
     /**
-     * Validates a document file (PDF or image).
-     * 
-     * @param file The file to validate
-     * @throws IllegalArgumentException if file is invalid
+     * Where a file may be in each layout, current layout first: sharded, flat ({subdirectory}/{name})
+     * and the earlier one-level layout ({subdirectory}/{first two characters}/{name}).
+     * The subdirectory is the first path segment.
      */
-    public void validateDocumentFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new IllegalArgumentException("Document file is required");
+    public static List<String> layoutCandidates(String relativePath) {
+        int firstSlash = relativePath.indexOf('/');
+        if (firstSlash <= 0) {
+            return List.of(relativePath);
         }
-        
-        // Check file size
-        if (file.getSize() > MAX_DOCUMENT_SIZE) {
-            throw new IllegalArgumentException(
-                String.format("File size exceeds maximum allowed size of %d MB", MAX_DOCUMENT_SIZE / (1024 * 1024))
-            );
-        }
-        
-        // Check content type
-        String contentType = file.getContentType();
-        if (contentType == null || !ALLOWED_DOCUMENT_TYPES.contains(contentType.toLowerCase())) {
-            throw new IllegalArgumentException(
-                "Invalid file type. Allowed types: PDF, JPG, PNG"
-            );
+        String subdirectory = relativePath.substring(0, firstSlash);
+        String fileName = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+        List<String> candidates = new ArrayList<>();
+        candidates.add(shardedPath(subdirectory, fileName));
+        candidates.add(subdirectory + "/" + fileName);
+        if (fileName.length() > 2) {
+            candidates.add(subdirectory + "/" + fileName.substring(0, 2) + "/" + fileName);
         }
-        
-        // Additional validation: check file extension
-        String originalFilename = file.getOriginalFilename();
-        if (originalFilename == null) {
-            throw new IllegalArgumentException("File must have a filename");
+        return candidates;
+    }
+    
+    /**
+     * The stored_blob paths a normalized key may be recorded under: the key itself, then its
+     * spellings in each layout (rows are moved to the sharded layout by the migration).
+     */
+    static List<String> referenceCandidates(String key) {
+        Set<String> candidates = new LinkedHashSet<>();
+        candidates.add(key);
+        candidates.addAll(layoutCandidates(key));
+        return new ArrayList<>(candidates);
+    }
+    
+    /**
+     * Resolves a relative path against a root directory, refusing to leave it.
+     * 
+     * @throws IllegalArgumentException if the result is not inside root
+     */
+    public static Path resolveWithin(Path root, String relativePath) {
+        Path normalizedRoot = root.toAbsolutePath().normalize();
+        Path resolved;
+        try {
+            resolved = normalizedRoot.resolve(relativePath).normalize();
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid file path");
         }
-        
-        String extension = getFileExtension(originalFilename).toLowerCase();
-        List<String> allowedExtensions = List.of("pdf", "jpg", "jpeg", "png");
-        if (!allowedExtensions.contains(extension)) {
-            throw new IllegalArgumentException(
-                "Invalid file extension. Allowed extensions: .pdf, .jpg, .jpeg, .png"
-            );
+        if (!resolved.startsWith(normalizedRoot) || resolved.equals(normalizedRoot)) {
+            throw new IllegalArgumentException("Invalid file path");
         }
+        return resolved;
     }
     
     /**
-     * Stores a document file (PDF or image) and returns the relative path.
+     * Stores a document (PDF or image) and returns the relative path.
      * Used for verification documents.
      * 
-     * @param file The file to store
+     * @param content The document content
      * @param subdirectory Subdirectory within uploads (e.g., "verifications")
-     * @return Relative path to the stored file (e.g., "verifications/uuid-filename.pdf")
+     * @return Relative path to the stored file (e.g., "verifications/9b/04/9b04...e1.pdf", see storeContent)
+     * @throws IllegalArgumentException if the content is empty, too large or not a PDF, JPG or PNG file
      * @throws IOException if file storage fails
      */
-    public String storeDocument(MultipartFile file, String subdirectory) throws IOException {
-        validateDocumentFile(file);
-        
-        // Create directory structure if it doesn't exist
-        Path uploadPath = Paths.get(uploadDir, subdirectory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    public String storeDocument(InputStream content, String subdirectory) throws IOException {
+        // Return relative path for database storage
+        return storeContent(content, subdirectory, ALLOWED_DOCUMENT_TYPES, MAX_DOCUMENT_SIZE,
+                "Invalid file type. Allowed types: PDF, JPG, PNG");
+    }
+    
+    /**
+     * Writes content under its SHA-256 and adds a reference to it.
+     * Type detection, the size limit and hashing all happen while the content is copied to a
+     * temporary file in the local upload directory, which is then handed to the storage backend
+     * (a rename for the filesystem, an upload for S3); an upload that fails validation is dropped
+     * as soon as the limit is crossed. If the content is already stored, the temporary file is
+     * dropped and only the count changes.
+     * 
+     * @return Relative path of the content ({subdirectory}/ab/cd/{sha256}.{ext})
+     * @throws IllegalArgumentException if the content is empty, too large or of a type not allowed
+     */
+    private String storeContent(InputStream input, String subdirectory, List<String> allowedTypes,
+                                long maxSize, String invalidTypeMessage) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        int head = input.readNBytes(buffer, 0, buffer.length);
+        if (head == 0) {
+            throw new IllegalArgumentException("File is required");
+        }
+        String contentType = sniffContentType(buffer, head);
+        if (contentType == null || !allowedTypes.contains(contentType)) {
+            throw new IllegalArgumentException(invalidTypeMessage);
         }
         
-        // Generate unique filename to prevent collisions
-        String originalFilename = file.getOriginalFilename();
-        String extension = getFileExtension(originalFilename);
-        String uniqueFilename = UUID.randomUUID().toString() + "-" + sanitizeFilename(originalFilename);
-        
-        // Store file
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        // Return relative path for database storage
-        return subdirectory + "/" + uniqueFilename;
+        Path uploadPath = resolveWithin(Paths.get(uploadDir), subdirectory);
+        Files.createDirectories(uploadPath);
+        Path temp = uploadPath.resolve(".upload-" + UUID.randomUUID() + ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (OutputStream out = Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (int read = head; read > 0; read = input.read(buffer)) {
+                    size += read;
+                    if (size > maxSize) {
+                        throw new IllegalArgumentException(
+                            String.format("File size exceeds maximum allowed size of %d MB", maxSize / (1024 * 1024))
+                        );
+                    }
+                    digest.update(buffer, 0, read);
+                    out.write(buffer, 0, read);
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            String relativePath = shardedPath(subdirectory, hash + "." + CONTENT_TYPE_EXTENSIONS.get(contentType));
+            
+            // Reference first: a concurrent delete of the last reference either completes before
+            // (and the bytes are put back below) or sees this reference and keeps the bytes
+            jdbcTemplate.update(ADD_REFERENCE_SQL, relativePath, hash, size, contentType);
+            
+            if (!storageBackend.exists(relativePath)) {
+                // Same content stored concurrently is simply written twice, with the same bytes
+                storageBackend.put(relativePath, temp, contentType);
+            }
+            return relativePath;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private record Reference(String path, int remaining) {
     }
     
     /**
-     * Deletes a stored file.
+     * Adds a reference to a file that is already stored, for a second row pointing at the same
+     * upload (each reference is released by its own deleteFile). Joins the caller's transaction.
+     * 
+     * @param relativePath Relative path to the file, in any spelling (see deleteFile)
+     * @return Whether a reference was added; false if the file is not reference counted
+     *         (stored before reference counting) or its last reference is being deleted
+     * @throws IllegalArgumentException if the path points outside the upload directory
+     */
+    public boolean addReference(String relativePath) {
+        String[] candidates = referenceCandidates(normalizeKey(relativePath)).toArray(String[]::new);
+        return jdbcTemplate.update(ADD_EXISTING_REFERENCE_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("text", candidates));
+            ps.setArray(2, ps.getConnection().createArrayOf("text", candidates));
+        }) == 1;
+    }
+    
+    /**
+     * Deletes a reference to a stored file; the file and its image variants are removed with the
+     * last reference (or directly, for files stored before reference counting).
+     * The path is normalized once and the stored_blob row is looked up by that key in every layout,
+     * so "./products/...", "products/x/../..." or a path saved before sharding all release the
+     * same reference as the key the file was stored under.
      * 
      * @param relativePath Relative path to the file
+     * @throws IllegalArgumentException if the path points outside the upload directory
      * @throws IOException if file deletion fails
      */
     public void deleteFile(String relativePath) throws IOException {
-        Path filePath = getFilePath(relativePath);
-        if (Files.exists(filePath)) {
-            Files.delete(filePath);
+        String key = normalizeKey(relativePath);
+        String[] candidates = referenceCandidates(key).toArray(String[]::new);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Boolean counted = transactionTemplate.execute(status -> {
+                List<Reference> released = jdbcTemplate.query(REMOVE_REFERENCE_SQL, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("text", candidates));
+                    ps.setArray(2, ps.getConnection().createArrayOf("text", candidates));
+                }, (rs, rowNum) -> new Reference(rs.getString(1), rs.getInt(2)));
+                if (released.isEmpty()) {
+                    return false;
+                }
+                if (released.get(0).remaining() == 0) {
+                    String blobPath = released.get(0).path();
+                    // Row stays locked until commit, so no new reference can be added while the bytes go
+                    jdbcTemplate.update("DELETE FROM stored_blob WHERE path = ?", blobPath);
+                    try {
+                        String storedPath = locate(blobPath);
+                        if (storedPath != null) {
+                            deleteBytes(storedPath);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return true;
+            });
+            if (Boolean.FALSE.equals(counted)) {
+                // Not reference counted: may have been moved by the layout migration since it was saved
+                String storedPath = locate(key);
+                if (storedPath != null) {
+                    deleteBytes(storedPath);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
     
     /**
-     * Extracts file extension from filename.
+     * Deletes a file that nothing references any more (see UploadGarbageCollector), with its
+     * image variants and its stored_blob row whatever the count says, unless a reference was
+     * added after referencedBefore: an upload of the same content may be about to save the row
+     * that points to it.
+     * 
+     * @return Whether the file was deleted
+     * @throws IOException if file deletion fails
      */
-    private String getFileExtension(String filename) {
-        int lastDotIndex = filename.lastIndexOf('.');
-        if (lastDotIndex > 0 && lastDotIndex < filename.length() - 1) {
-            return filename.substring(lastDotIndex + 1);
+    public boolean deleteOrphan(String key, LocalDateTime referencedBefore) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                // Locked until commit: a concurrent upload of this content waits, then stores the bytes again
+                List<LocalDateTime> lastReference = jdbcTemplate.queryForList(
+                        "SELECT COALESCE(last_reference_date, creation_date) FROM stored_blob WHERE path = ? FOR UPDATE",
+                        LocalDateTime.class, key);
+                if (!lastReference.isEmpty()) {
+                    if (lastReference.get(0) != null && lastReference.get(0).isAfter(referencedBefore)) {
+                        return false;
+                    }
+                    jdbcTemplate.update("DELETE FROM stored_blob WHERE path = ?", key);
+                }
+                deleteBytes(key);
+                return true;
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    private void deleteBytes(String key) {
+        try {
+            storageBackend.delete(key);
+            imageVariantService.deleteVariants(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return "";
     }
     
     /**
-     * Sanitizes filename to prevent path traversal and other security issues.
+     * Detects the type from the file signature ("magic bytes").
+     * SECURITY: The client's Content-Type and filename are never trusted; a file is stored and
+     * later served with the type its content actually has.
+     * 
+     * @return The MIME type, or null if the content is none of the supported types
      */
-    private String sanitizeFilename(String filename) {
-        // Remove path separators and other dangerous characters
-        return filename.replaceAll("[^a-zA-Z0-9._-]", "_");
+    private static String sniffContentType(byte[] head, int length) {
+        if (startsWith(head, length, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 0, 'G', 'I', 'F', '8', '7', 'a') || startsWith(head, length, 0, 'G', 'I', 'F', '8', '9', 'a')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 0, 'R', 'I', 'F', 'F') && startsWith(head, length, 8, 'W', 'E', 'B', 'P')) {
+            return "image/webp";
+        }
+        if (startsWith(head, length, 0, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] head, int length, int offset, int... signature) {
+        if (length < offset + signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
-
-
-
-
-
-
-
-
-
-
-
@@ -0,0 +1,136 @@
+package org.example.supply_gate_26514.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores uploads in the local upload directory (file.upload-dir), one file per key.
+ * Only suitable for a single node (or a shared filesystem mounted on every node).
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "filesystem", matchIfMissing = true)
+public class FileSystemStorageBackend implements StorageBackend {
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(localPath(key), BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            return Optional.of(new ObjectInfo(attributes.size(), attributes.lastModifiedTime().toMillis(), null));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Moves the source into place (a rename: callers stage files inside the upload directory).
+     */
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        Path target = localPath(key);
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(localPath(key), StandardOpenOption.READ);
+        channel.position(offset);
+        InputStream content = Channels.newInputStream(channel);
+        if (length < 0) {
+            return content;
+        }
+        return new FilterInputStream(content) {
+            private long remaining = length;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int read = super.read(buffer, offset, (int) Math.min(count, remaining));
+                if (read > 0) {
+                    remaining -= read;
+                }
+                return read;
+            }
+        };
+    }
+
+    /**
+     * Walks the upload directory; files removed while walking are skipped.
+     */
+    @Override
+    public Stream<ListedObject> list(String prefix) throws IOException {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            return Stream.empty();
+        }
+        return Files.walk(root)
+                .flatMap(file -> {
+                    String key = root.relativize(file).toString().replace(File.separatorChar, '/');
+                    if (!key.startsWith(prefix)) {
+                        return Stream.empty();
+                    }
+                    try {
+                        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                        return attributes.isRegularFile()
+                                ? Stream.of(new ListedObject(key, attributes.size(), attributes.lastModifiedTime().toMillis()))
+                                : Stream.empty();
+                    } catch (IOException e) {
+                        return Stream.empty();
+                    }
+                });
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(localPath(key));
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return FileStorageService.resolveWithin(Paths.get(uploadDir), key);
+    }
+
+    @Override
+    public URI presignedGetUrl(String key, Duration validity) {
+        return null;
+    }
+}
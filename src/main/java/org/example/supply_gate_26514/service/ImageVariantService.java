@@ -0,0 +1,366 @@
+package org.example.supply_gate_26514.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.encryption.InvalidPasswordException;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Downscaled renditions of uploaded images, so listings do not download multi-megabyte originals.
+ *
+ * Each image gets fixed-size variants (see {@link Variant}) stored in the StorageBackend under
+ * variants/{size}/{original path}.{jpg|png}: JPEG for opaque images, PNG when the image has
+ * transparency. Variants are generated in the background after upload on a small bounded pool
+ * (a full queue drops the task, the variant is then generated on first request), and lazily when
+ * a missing variant is requested. Concurrent requests for the same missing variant share one
+ * generation.
+ *
+ * Large originals are decoded with source subsampling, so decoding memory depends on the
+ * variant size rather than on the original resolution. Originals already within the variant
+ * size are served as they are instead of being re-encoded.
+ *
+ * PDFs (verification documents) get a preview instead: their first page rendered to a PNG of
+ * the variant size, so a review list does not download the whole document.
+ */
+@Service
+public class ImageVariantService {
+
+    /**
+     * Variant sizes: the longest side of the image is scaled down to this many pixels.
+     */
+    public enum Variant {
+        THUMB(200),
+        CARD(600),
+        FULL(1600);
+
+        private final int maxDimension;
+
+        Variant(int maxDimension) {
+            this.maxDimension = maxDimension;
+        }
+
+        /**
+         * @throws IllegalArgumentException for an unknown size name
+         */
+        public static Variant fromName(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final String VARIANTS_DIRECTORY = "variants";
+
+    // Images whose header claims more pixels than this are not decoded (decompression bombs)
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+
+    // Pages smaller than the variant are rendered at most at this zoom (1 = 72 dpi)
+    private static final float MAX_PAGE_SCALE = 4f;
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.image-variants.workers:2}")
+    private int workers;
+
+    @Value("${app.image-variants.queue-capacity:500}")
+    private int queueCapacity;
+
+    @Value("${app.image-variants.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private ThreadPoolExecutor executor;
+
+    // Generations in progress by variant key, so concurrent requests for one variant wait for the same result
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants");
+                    thread.setDaemon(true);
+                    // Below request threads: renditions are background work
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues generation of all variants of a newly stored image.
+     *
+     * @param relativePath Path of the original, as returned by FileStorageService.storeImage
+     */
+    public void generateVariantsAsync(String relativePath) {
+        generateVariantsAsync(relativePath, Variant.values());
+    }
+
+    /**
+     * Queues generation of some variants of a newly stored image or PDF.
+     *
+     * @param relativePath Path of the original, as returned by FileStorageService
+     */
+    public void generateVariantsAsync(String relativePath, Variant... variants) {
+        executor.execute(() -> {
+            for (Variant variant : variants) {
+                try {
+                    getVariant(relativePath, variant);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not generate " + variant + " variant of " + relativePath + ": " + e.getMessage());
+                    return;
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the object to serve for an image in the given size: the stored variant, generated
+     * now if it is missing, or the original if it is already small enough or cannot be decoded
+     * (formats ImageIO cannot read, such as WebP, and password protected PDFs).
+     *
+     * @param relativePath Storage key of the original (see FileStorageService.locate)
+     * @return Storage key of the object to serve, or null if the original does not exist
+     * @throws IOException if the variant cannot be written
+     * @throws IllegalArgumentException if the path points outside the upload directory
+     */
+    public String getVariant(String relativePath, Variant variant) throws IOException {
+        if (!storageBackend.exists(relativePath)) {
+            return null;
+        }
+        String jpeg = variantKey(relativePath, variant, "jpg");
+        if (storageBackend.exists(jpeg)) {
+            return jpeg;
+        }
+        String png = variantKey(relativePath, variant, "png");
+        if (storageBackend.exists(png)) {
+            return png;
+        }
+
+        CompletableFuture<String> generation = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(jpeg, generation);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            generation.complete(generate(relativePath, variant));
+        } catch (IOException | RuntimeException e) {
+            generation.completeExceptionally(e);
+        } finally {
+            inFlight.remove(jpeg);
+        }
+        return await(generation);
+    }
+
+    /**
+     * Deletes the variants of an image (when the original is deleted).
+     */
+    public void deleteVariants(String relativePath) throws IOException {
+        for (Variant variant : Variant.values()) {
+            storageBackend.delete(variantKey(relativePath, variant, "jpg"));
+            storageBackend.delete(variantKey(relativePath, variant, "png"));
+        }
+    }
+
+    /**
+     * Moves the variants of an image along with the original (directory layout migration),
+     * so they do not have to be rendered again. Only local files are migrated; with a remote
+     * backend there is nothing to do.
+     */
+    public void moveVariants(String fromRelativePath, String toRelativePath) throws IOException {
+        for (Variant variant : Variant.values()) {
+            for (String extension : new String[]{"jpg", "png"}) {
+                Path source = storageBackend.localPath(variantKey(fromRelativePath, variant, extension));
+                if (source == null || !Files.exists(source)) {
+                    continue;
+                }
+                Path target = storageBackend.localPath(variantKey(toRelativePath, variant, extension));
+                if (Files.exists(target)) {
+                    Files.deleteIfExists(source);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        }
+    }
+
+    private String generate(String relativePath, Variant variant) throws IOException {
+        if (relativePath.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+            return generatePreview(relativePath, variant);
+        }
+        // Local originals are read in place; remote ones are streamed (ImageIO caches what it seeks back to)
+        Path local = storageBackend.localPath(relativePath);
+        try (InputStream remote = local == null ? storageBackend.open(relativePath, 0, -1) : null;
+             ImageInputStream input = ImageIO.createImageInputStream(local != null ? local.toFile() : remote)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return relativePath;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    System.err.println("Not resizing " + relativePath + ": " + width + "x" + height + " pixels");
+                    return relativePath;
+                }
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                int longestSide = Math.max(width, height);
+                if (longestSide <= variant.maxDimension && (format.equals("jpeg") || format.equals("png"))) {
+                    return relativePath;
+                }
+
+                // Decode every n-th pixel, keeping at least twice the target size for a smooth downscale
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, longestSide / (variant.maxDimension * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage source = reader.read(0, param);
+
+                boolean transparent = source.getColorModel().hasAlpha();
+                BufferedImage scaled = scale(source, variant.maxDimension, transparent);
+                String target = variantKey(relativePath, variant, transparent ? "png" : "jpg");
+                write(scaled, target, transparent);
+                return target;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Renders the first page of a PDF so that its longest side has the variant size.
+     * Remote documents are read into memory (documents are at most 10 MB, see FileStorageService).
+     */
+    private String generatePreview(String relativePath, Variant variant) throws IOException {
+        Path local = storageBackend.localPath(relativePath);
+        try (InputStream remote = local == null ? storageBackend.open(relativePath, 0, -1) : null;
+             PDDocument document = local != null
+                     ? Loader.loadPDF(local.toFile())
+                     : Loader.loadPDF(new RandomAccessReadBuffer(remote))) {
+            if (document.getNumberOfPages() == 0) {
+                return relativePath;
+            }
+            PDRectangle page = document.getPage(0).getCropBox();
+            float longestSide = Math.max(page.getWidth(), page.getHeight());
+            if (longestSide <= 0) {
+                return relativePath;
+            }
+            float scale = Math.min(MAX_PAGE_SCALE, variant.maxDimension / longestSide);
+            BufferedImage rendered = new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+            // PNG keeps text sharp, and pages of text compress well
+            String target = variantKey(relativePath, variant, "png");
+            write(rendered, target, true);
+            return target;
+        } catch (InvalidPasswordException e) {
+            System.err.println("Not rendering " + relativePath + ": the document is password protected");
+            return relativePath;
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxDimension, boolean transparent) {
+        double ratio = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+        BufferedImage scaled = new BufferedImage(width, height,
+                transparent ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Encodes to a temporary file and hands it to the storage backend, so a partly written variant
+     * is never served.
+     */
+    private void write(BufferedImage image, String target, boolean png) throws IOException {
+        Path staging = Paths.get(uploadDir, VARIANTS_DIRECTORY);
+        Files.createDirectories(staging);
+        // Not Files.createTempFile: its owner-only permissions would make the variant unreadable to a web server
+        Path temp = staging.resolve(".variant-" + UUID.randomUUID() + ".tmp");
+        try {
+            if (png) {
+                ImageIO.write(image, "png", temp.toFile());
+            } else {
+                ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+                try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+                    writer.setOutput(output);
+                    ImageWriteParam param = writer.getDefaultWriteParam();
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(jpegQuality);
+                    writer.write(null, new IIOImage(image, null, null), param);
+                } finally {
+                    writer.dispose();
+                }
+            }
+            storageBackend.put(target, temp, png ? "image/png" : "image/jpeg");
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String await(CompletableFuture<String> generation) throws IOException {
+        try {
+            return generation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static String variantKey(String relativePath, Variant variant, String extension) {
+        return VARIANTS_DIRECTORY + "/" + variant.name().toLowerCase(Locale.ROOT) + "/"
+                + FileStorageService.normalizeKey(relativePath) + "." + extension;
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.supply_gate_26514.service;
+
+/**
+ * Thrown when a reservation cannot be made because the product does not have enough
+ * available stock (or its stock is not tracked). Controllers map it to 409 Conflict.
+ */
+public class InsufficientStockException extends RuntimeException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
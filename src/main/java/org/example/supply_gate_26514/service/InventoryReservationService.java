@@ -0,0 +1,803 @@
+package org.example.supply_gate_26514.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.supply_gate_26514.dto.StockReservationResponseDto;
+import org.example.supply_gate_26514.model.ReservationStatus;
+import org.example.supply_gate_26514.repository.ProductRepository;
+import org.example.supply_gate_26514.repository.StockReservationRepository;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stock reservations (holds) that cannot oversell under concurrent buyers.
+ *
+ * products.stock_quantity is the number of units still available. Units only ever leave it
+ * through a guarded update (UPDATE ... WHERE stock_quantity >= :n), so the database refuses any
+ * decrement that would go below zero, whatever the number of concurrent requests or nodes.
+ *
+ * Hot products: taking units from the database on every reservation would serialize all buyers
+ * of a popular product on one row lock. Instead the service leases blocks of units from the row
+ * into an in-memory pool per product (units and their stock generation in one value, taken with
+ * compare-and-set). Reservations are served from the pool without touching the database and
+ * their rows are written in batches by a scheduled flush. Leased units are recorded per node in
+ * stock_lease in the same statement as the guarded update, so they are never lost: the flush
+ * moves them from the lease to reservation rows and idle pools give them back.
+ * Refilling a pool is serialized per product with striped locks, so a burst triggers one lease.
+ * A product only gets an extra lease block when it was refilled less than a second ago.
+ *
+ * Several nodes: each node registers in inventory_node and renews its heartbeat; a node only
+ * ever consumes or returns its own lease rows. The leases of a node whose heartbeat is older than
+ * app.inventory.node-timeout-seconds (crashed, or restarted under a new node id) are returned to
+ * stock by whichever node notices first. A node that finds itself declared dead drops its pools.
+ *
+ * Absolute stock writes (supplier stock form, product edit, bulk update) start a new stock
+ * generation and delete the product's lease rows, so units leased before the write never go back
+ * to stock on top of the new number. Pools of the old generation are dropped: at once on the writing
+ * node, within one flush interval on the others. Holds taken from them but not yet written are
+ * covered from the new stock if it allows, and dropped (logged) otherwise.
+ *
+ * Trade-off: a reservation is acknowledged before its row is written (at most one flush interval,
+ * 200 ms by default). If the process dies in that window the hold is lost and its units go back to
+ * stock once the node times out; stock is never oversold or leaked.
+ *
+ * Expired holds are released by a scheduled set-based update that returns their units to stock.
+ */
+@Service
+public class InventoryReservationService {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int EXPIRY_BATCH_SIZE = 1000;
+    private static final int FLUSH_BATCH_SIZE = 1000;
+    private static final long HOT_REFILL_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Takes units from stock and adds them to this node's lease of the current stock generation
+    private static final String LEASE_SQL =
+            "WITH taken AS (" +
+            "  UPDATE products SET stock_quantity = stock_quantity - ? " +
+            "  WHERE product_id = ? AND stock_quantity >= ? " +
+            "  RETURNING product_id, stock_generation) " +
+            "INSERT INTO stock_lease (node_id, product_id, generation, units) " +
+            "SELECT ?, product_id, stock_generation, ? FROM taken " +
+            "ON CONFLICT (node_id, product_id) DO UPDATE SET " +
+            "units = CASE WHEN stock_lease.generation = EXCLUDED.generation " +
+            "THEN stock_lease.units + EXCLUDED.units ELSE EXCLUDED.units END, " +
+            "generation = EXCLUDED.generation " +
+            "RETURNING generation";
+
+    // Gives leased units back, unless an absolute stock write voided them meanwhile
+    private static final String RETURN_LEASE_SQL =
+            "WITH returned AS (" +
+            "  UPDATE stock_lease SET units = units - ? " +
+            "  WHERE node_id = ? AND product_id = ? AND generation = ? AND units >= ? " +
+            "  RETURNING product_id, generation) " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity + ? " +
+            "FROM returned r WHERE p.product_id = r.product_id AND p.stock_generation = r.generation";
+
+    private static final String INSERT_RESERVATION_SQL =
+            "INSERT INTO stock_reservations (reservation_id, product_id, user_id, quantity, status, expires_at, creation_date) " +
+            "VALUES (?, ?, ?, ?, 'ACTIVE', ?, ?)";
+
+    private static final String CONSUME_LEASE_SQL =
+            "UPDATE stock_lease SET units = units - ? " +
+            "WHERE node_id = ? AND product_id = ? AND generation = ? AND units >= ?";
+
+    // Holds whose lease was voided are covered from stock directly
+    private static final String TAKE_STOCK_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE product_id = ? AND stock_quantity >= ?";
+
+    private static final String GENERATIONS_SQL =
+            "SELECT product_id, stock_generation FROM products WHERE product_id = ANY(?)";
+
+    private static final String REGISTER_NODE_SQL =
+            "INSERT INTO inventory_node (node_id, heartbeat_at) VALUES (?, now()) " +
+            "ON CONFLICT (node_id) DO UPDATE SET heartbeat_at = now()";
+
+    private static final String HEARTBEAT_SQL =
+            "UPDATE inventory_node SET heartbeat_at = now() WHERE node_id = ?";
+
+    // Returns the leases of timed-out nodes (and of nodes no longer registered) to stock
+    private static final String RECLAIM_SQL =
+            "WITH dead AS (" +
+            "  DELETE FROM inventory_node WHERE heartbeat_at < now() - ? * interval '1 second' " +
+            "  RETURNING node_id), " +
+            "reclaimed AS (" +
+            "  DELETE FROM stock_lease l WHERE l.node_id IN (SELECT node_id FROM dead) " +
+            "  OR NOT EXISTS (SELECT 1 FROM inventory_node n WHERE n.node_id = l.node_id) " +
+            "  RETURNING l.product_id, l.generation, l.units), " +
+            "totals AS (SELECT product_id, generation, SUM(units) AS units FROM reclaimed GROUP BY product_id, generation), " +
+            "restocked AS (" +
+            "  UPDATE products p SET stock_quantity = p.stock_quantity + t.units " +
+            "  FROM totals t WHERE p.product_id = t.product_id AND p.stock_generation = t.generation " +
+            "  RETURNING p.product_id) " +
+            "SELECT (SELECT COUNT(*) FROM dead), ARRAY(SELECT product_id FROM restocked)";
+
+    private static final String RELEASE_SQL =
+            "WITH released AS (" +
+            "  UPDATE stock_reservations SET status = 'RELEASED' " +
+            "  WHERE reservation_id = ? AND user_id = ? AND status = 'ACTIVE' " +
+            "  RETURNING product_id, quantity) " +
+            "UPDATE products p SET stock_quantity = p.stock_quantity + r.quantity " +
+            "FROM released r WHERE p.product_id = r.product_id " +
+            "RETURNING p.product_id";
+
+    private static final String CONFIRM_SQL =
+            "UPDATE stock_reservations SET status = 'CONFIRMED' " +
+            "WHERE reservation_id = ? AND user_id = ? AND status = 'ACTIVE' AND expires_at > ?";
+
+    // One statement: expire a batch of holds and return their units to stock, product by product
+    private static final String EXPIRE_SQL =
+            "WITH expired AS (" +
+            "  UPDATE stock_reservations SET status = 'EXPIRED' " +
+            "  WHERE reservation_id IN (" +
+            "    SELECT reservation_id FROM stock_reservations " +
+            "    WHERE status = 'ACTIVE' AND expires_at < ? " +
+            "    ORDER BY expires_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "  RETURNING product_id, quantity), " +
+            "totals AS (SELECT product_id, SUM(quantity) AS quantity FROM expired GROUP BY product_id), " +
+            // Data-modifying CTEs always run to completion, even though the final SELECT ignores it
+            "restocked AS (" +
+            "  UPDATE products p SET stock_quantity = p.stock_quantity + t.quantity " +
+            "  FROM totals t WHERE p.product_id = t.product_id) " +
+            "SELECT (SELECT COUNT(*) FROM expired), ARRAY(SELECT product_id FROM totals)";
+
+    @Value("${app.inventory.reservation-ttl-minutes:15}")
+    private long reservationTtlMinutes;
+
+    @Value("${app.inventory.lease-size:50}")
+    private int leaseSize;
+
+    @Value("${app.inventory.lease-idle-seconds:5}")
+    private long leaseIdleSeconds;
+
+    @Value("${app.inventory.node-timeout-seconds:60}")
+    private long nodeTimeoutSeconds;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private CatalogReadModelService catalogReadModelService;
+
+    // Owner of this process's stock_lease rows, see InventoryNode
+    private final String nodeId = UUID.randomUUID().toString();
+
+    // productId -> leased units not yet assigned to a reservation
+    private final Map<UUID, StockPool> pools = new ConcurrentHashMap<>();
+
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    // Acknowledged reservations waiting to be written
+    private final Queue<PendingReservation> pending = new ConcurrentLinkedQueue<>();
+
+    private final Object flushLock = new Object();
+
+    // Returned by StockPool.tryTake when the pool has too few units
+    private static final long NOT_TAKEN = Long.MIN_VALUE;
+
+    /**
+     * Leased units not yet assigned to a reservation, with the stock generation they were leased from.
+     * Both change together (one immutable value, replaced by CAS), so a taker always records the
+     * generation of the units it actually took, even if a refill switches generations meanwhile.
+     */
+    private record PoolUnits(long generation, int available) {
+    }
+
+    private static final class StockPool {
+        // Generation -1 until the first lease; a new generation is only set under the stripe lock
+        private final AtomicReference<PoolUnits> units = new AtomicReference<>(new PoolUnits(-1, 0));
+        private volatile long lastUsedNanos = System.nanoTime();
+        private volatile long lastRefillNanos;
+
+        /**
+         * @return the stock generation of the taken units, or NOT_TAKEN if there are not enough
+         */
+        private long tryTake(int quantity) {
+            while (true) {
+                PoolUnits current = units.get();
+                if (current.available() < quantity) {
+                    return NOT_TAKEN;
+                }
+                if (units.compareAndSet(current, new PoolUnits(current.generation(), current.available() - quantity))) {
+                    lastUsedNanos = System.nanoTime();
+                    return current.generation();
+                }
+            }
+        }
+
+        /**
+         * Adds leased units; units of another (voided) generation are discarded, their lease row is gone.
+         */
+        private void add(long generation, int leased) {
+            units.updateAndGet(current -> current.generation() == generation
+                    ? new PoolUnits(generation, current.available() + leased)
+                    : new PoolUnits(generation, leased));
+        }
+
+        /**
+         * Empties the pool, keeping its generation.
+         *
+         * @return what it held
+         */
+        private PoolUnits drain() {
+            return units.getAndUpdate(current -> new PoolUnits(current.generation(), 0));
+        }
+
+        private long generation() {
+            return units.get().generation();
+        }
+    }
+
+    private record PendingReservation(UUID reservationId, UUID productId, long generation, UUID userId,
+                                      int quantity, LocalDateTime expiresAt, LocalDateTime creationDate) {
+    }
+
+    private record Lease(UUID productId, long generation) {
+    }
+
+    public InventoryReservationService() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Registers this node before it takes any lease, so other nodes do not reclaim its leases.
+     */
+    @PostConstruct
+    public void registerNode() {
+        try {
+            jdbcTemplate.update(REGISTER_NODE_SQL, nodeId);
+        } catch (DataAccessException e) {
+            // Leases taken meanwhile may be reclaimed; the heartbeat then drops the pools
+            System.err.println("Could not register inventory node " + nodeId + ": " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Reserves units of a product for the current authenticated user.
+     *
+     * @throws IllegalArgumentException if the product does not exist
+     * @throws InsufficientStockException if not enough units are available or stock is not tracked
+     * @throws IllegalStateException if no user is authenticated
+     */
+    public StockReservationResponseDto reserve(UUID productId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        UUID userId = securityUtils.getCurrentUserId();
+
+        StockPool pool = pools.computeIfAbsent(productId, id -> new StockPool());
+        // Generation of the units actually taken; if the pool is dropped meanwhile the hold is covered from stock on flush
+        long generation = pool.tryTake(quantity);
+        if (generation == NOT_TAKEN) {
+            generation = refillAndTake(productId, quantity);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        PendingReservation reservation = new PendingReservation(UUID.randomUUID(), productId, generation, userId,
+                quantity, now.plusMinutes(reservationTtlMinutes), now);
+        pending.add(reservation);
+        // Product name is left out: the fast path does not read the product row
+        return new StockReservationResponseDto(reservation.reservationId(), productId, null, quantity,
+                ReservationStatus.ACTIVE, reservation.expiresAt(), reservation.creationDate());
+    }
+
+    /**
+     * Leases units from the database into the product's pool and takes the requested quantity.
+     * Serialized per product (striped lock) so concurrent misses trigger a single lease.
+     *
+     * @return the stock generation the units were taken from
+     */
+    private long refillAndTake(UUID productId, int quantity) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            StockPool pool = pools.computeIfAbsent(productId, id -> new StockPool());
+            // Another thread may have refilled while we waited
+            long generation = pool.tryTake(quantity);
+            if (generation != NOT_TAKEN) {
+                return generation;
+            }
+
+            boolean hot = pool.lastRefillNanos != 0 && System.nanoTime() - pool.lastRefillNanos < HOT_REFILL_WINDOW_NANOS;
+            int extra = hot ? leaseSize : 0;
+            int leased = 0;
+            Long leasedGeneration = extra > 0 ? lease(productId, quantity + extra) : null;
+            if (leasedGeneration != null) {
+                leased = quantity + extra;
+            } else if ((leasedGeneration = lease(productId, quantity)) != null) {
+                leased = quantity;
+            }
+            if (leased == 0) {
+                throw stockUnavailable(productId, quantity);
+            }
+
+            // Leftover units of a voided generation are dropped: their lease row is gone, nothing to give back
+            pool.add(leasedGeneration, leased - quantity);
+            pool.lastRefillNanos = System.nanoTime();
+            pool.lastUsedNanos = pool.lastRefillNanos;
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+            catalogReadModelService.markStockChanged(productId);
+            return leasedGeneration;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the stock generation the units were leased from, or null if there is not enough stock
+     */
+    private Long lease(UUID productId, int units) {
+        List<Long> generation = jdbcTemplate.query(LEASE_SQL, ps -> {
+            ps.setInt(1, units);
+            ps.setObject(2, productId, Types.OTHER);
+            ps.setInt(3, units);
+            ps.setString(4, nodeId);
+            ps.setInt(5, units);
+        }, (rs, rowNum) -> rs.getLong(1));
+        return generation.isEmpty() ? null : generation.get(0);
+    }
+
+    private RuntimeException stockUnavailable(UUID productId, int quantity) {
+        List<Integer> stock = jdbcTemplate.query("SELECT stock_quantity FROM products WHERE product_id = ?",
+                (rs, rowNum) -> (Integer) rs.getObject(1), productId);
+        if (stock.isEmpty()) {
+            return new IllegalArgumentException("Product not found with ID: " + productId);
+        }
+        if (stock.get(0) == null) {
+            return new InsufficientStockException("Stock is not tracked for this product");
+        }
+        return new InsufficientStockException("Only " + stock.get(0) + " units available, requested " + quantity);
+    }
+
+    /**
+     * Confirms an active reservation of the current user (the held units stay out of stock).
+     *
+     * @throws IllegalArgumentException if the reservation does not exist, belongs to another user,
+     *                                  or is no longer active
+     */
+    public void confirm(UUID reservationId) {
+        UUID userId = securityUtils.getCurrentUserId();
+        flushPending();
+        int updated = jdbcTemplate.update(CONFIRM_SQL, ps -> {
+            ps.setObject(1, reservationId, Types.OTHER);
+            ps.setObject(2, userId, Types.OTHER);
+            ps.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
+        });
+        if (updated == 0) {
+            throw new IllegalArgumentException("Active reservation not found with ID: " + reservationId);
+        }
+    }
+
+    /**
+     * Cancels an active reservation of the current user and returns its units to stock.
+     *
+     * @throws IllegalArgumentException if the reservation does not exist, belongs to another user,
+     *                                  or is no longer active
+     */
+    public void release(UUID reservationId) {
+        UUID userId = securityUtils.getCurrentUserId();
+        flushPending();
+        List<UUID> restocked = jdbcTemplate.query(RELEASE_SQL, ps -> {
+            ps.setObject(1, reservationId, Types.OTHER);
+            ps.setObject(2, userId, Types.OTHER);
+        }, (rs, rowNum) -> rs.getObject(1, UUID.class));
+        if (restocked.isEmpty()) {
+            throw new IllegalArgumentException("Active reservation not found with ID: " + reservationId);
+        }
+        tableVersionService.bump(TableVersionService.PRODUCTS);
+        catalogReadModelService.markStockChanged(restocked);
+    }
+
+    /**
+     * Gets reservations of the current authenticated user, newest first.
+     * Pending holds are written first so the list includes them.
+     */
+    public Page<StockReservationResponseDto> getMyReservations(Pageable pageable) {
+        UUID userId = securityUtils.getCurrentUserId();
+        flushPending();
+        return stockReservationRepository.findResponseDtosByUser(userId, pageable);
+    }
+
+    /**
+     * Sets the available stock of a product owned by the current supplier.
+     * Units currently held by reservations are not included in this number; units leased into
+     * reservation pools are, so they are voided rather than returned on top of it.
+     *
+     * @throws IllegalArgumentException if the product does not exist or belongs to another supplier
+     */
+    @Transactional
+    public void updateStock(UUID productId, int stockQuantity) {
+        UUID userId = securityUtils.getCurrentUserId();
+        if (productRepository.updateStockQuantityBySupplier(productId, userId, stockQuantity) == 0) {
+            throw new IllegalArgumentException("Product not found with ID: " + productId);
+        }
+        voidLeases(productId);
+    }
+
+    /**
+     * Sets the available stock of a product without an ownership check. Same semantics as
+     * {@link #updateStock}. Must run inside the caller's transaction.
+     *
+     * SECURITY: The caller must have checked that the current user owns the product's store
+     * (ProductService.updateProduct does so before calling this).
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void overwriteStock(UUID productId, int stockQuantity) {
+        if (productRepository.updateStockQuantity(productId, stockQuantity) > 0) {
+            voidLeases(productId);
+        }
+    }
+
+    private void voidLeases(UUID productId) {
+        voidLeases(List.of(productId));
+        tableVersionService.bump(TableVersionService.PRODUCTS);
+        catalogReadModelService.markStockChanged(productId);
+    }
+
+    /**
+     * Deletes the leases of the previous stock generation (of every node) and drops this node's
+     * pools once the new stock is committed. Other nodes drop theirs on their next flush.
+     * For callers that wrote stock_quantity and bumped stock_generation themselves (bulk updates),
+     * in the same transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void voidLeases(Collection<UUID> productIds) {
+        Object[] ids = productIds.toArray();
+        jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids)));
+        Map<UUID, Long> generations = readGenerations(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                generations.forEach(InventoryReservationService.this::dropStalePool);
+            }
+        });
+    }
+
+    private Map<UUID, Long> readGenerations(Object[] productIds) {
+        Map<UUID, Long> generations = new HashMap<>();
+        jdbcTemplate.query(GENERATIONS_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", productIds)),
+                rs -> {
+                    generations.put(rs.getObject(1, UUID.class), rs.getLong(2));
+                });
+        return generations;
+    }
+
+    /**
+     * Drops the pool of a product if its units are older than the given stock generation
+     * (null: the product is gone). Its lease rows were deleted with the absolute stock write.
+     */
+    private void dropStalePool(UUID productId, Long currentGeneration) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            StockPool pool = pools.get(productId);
+            if (pool != null && (currentGeneration == null || pool.generation() < currentGeneration)) {
+                pool.drain();
+                pools.remove(productId, pool);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes acknowledged reservations in batches and moves their units from this node's leases
+     * to reservation rows. Also drops pools voided by other nodes and gives idle pools back to stock.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.flush-interval-ms:200}")
+    public void flushPending() {
+        synchronized (flushLock) {
+            List<PendingReservation> batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+            PendingReservation reservation;
+            while ((reservation = pending.poll()) != null) {
+                batch.add(reservation);
+                if (batch.size() >= FLUSH_BATCH_SIZE) {
+                    writeReservations(batch);
+                    batch = new ArrayList<>(FLUSH_BATCH_SIZE);
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeReservations(batch);
+            }
+        }
+        dropStalePools();
+        returnIdleLeases();
+    }
+
+    private void writeReservations(List<PendingReservation> batch) {
+        try {
+            newTransaction().executeWithoutResult(status -> insertReservations(batch));
+        } catch (DataAccessException e) {
+            // One bad row (e.g. product deleted meanwhile) must not drop the whole batch
+            System.err.println("Reservation batch failed, retrying row by row: " + e.getMostSpecificCause().getMessage());
+            for (PendingReservation reservation : batch) {
+                try {
+                    newTransaction().executeWithoutResult(status -> insertReservations(List.of(reservation)));
+                } catch (DataAccessException rowError) {
+                    System.err.println("Dropping reservation " + reservation.reservationId() + ": " +
+                            rowError.getMostSpecificCause().getMessage());
+                    returnUnits(reservation.productId(), reservation.generation(), reservation.quantity());
+                }
+            }
+        }
+    }
+
+    private void insertReservations(List<PendingReservation> batch) {
+        Map<Lease, List<PendingReservation>> byLease = new LinkedHashMap<>();
+        for (PendingReservation reservation : batch) {
+            byLease.computeIfAbsent(new Lease(reservation.productId(), reservation.generation()), lease -> new ArrayList<>())
+                    .add(reservation);
+        }
+        List<Map.Entry<Lease, List<PendingReservation>>> leases = new ArrayList<>(byLease.entrySet());
+        int[] consumed = jdbcTemplate.batchUpdate(CONSUME_LEASE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Lease lease = leases.get(i).getKey();
+                int units = leases.get(i).getValue().stream().mapToInt(PendingReservation::quantity).sum();
+                ps.setInt(1, units);
+                ps.setString(2, nodeId);
+                ps.setObject(3, lease.productId(), Types.OTHER);
+                ps.setLong(4, lease.generation());
+                ps.setInt(5, units);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return leases.size();
+            }
+        });
+
+        List<PendingReservation> covered = new ArrayList<>(batch.size());
+        for (int i = 0; i < leases.size(); i++) {
+            if (consumed[i] == 1) {
+                covered.addAll(leases.get(i).getValue());
+                continue;
+            }
+            // The lease was voided (absolute stock write) or reclaimed (this node timed out)
+            for (PendingReservation reservation : leases.get(i).getValue()) {
+                if (jdbcTemplate.update(TAKE_STOCK_SQL, reservation.quantity(), reservation.productId(), reservation.quantity()) == 1) {
+                    covered.add(reservation);
+                    tableVersionService.bump(TableVersionService.PRODUCTS);
+                    catalogReadModelService.markStockChanged(reservation.productId());
+                } else {
+                    System.err.println("Dropping reservation " + reservation.reservationId() +
+                            ": its leased stock was reset and the new stock does not cover it");
+                }
+            }
+        }
+
+        if (covered.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_RESERVATION_SQL, covered, FLUSH_BATCH_SIZE, (ps, reservation) -> {
+            ps.setObject(1, reservation.reservationId(), Types.OTHER);
+            ps.setObject(2, reservation.productId(), Types.OTHER);
+            ps.setObject(3, reservation.userId(), Types.OTHER);
+            ps.setInt(4, reservation.quantity());
+            ps.setTimestamp(5, Timestamp.valueOf(reservation.expiresAt()));
+            ps.setTimestamp(6, Timestamp.valueOf(reservation.creationDate()));
+        });
+    }
+
+    /**
+     * Drops pools whose stock generation was superseded by an absolute stock write on another node.
+     */
+    private void dropStalePools() {
+        if (pools.isEmpty()) {
+            return;
+        }
+        Object[] productIds = pools.keySet().toArray();
+        Map<UUID, Long> generations;
+        try {
+            generations = readGenerations(productIds);
+        } catch (DataAccessException e) {
+            System.err.println("Could not check stock generations: " + e.getMostSpecificCause().getMessage());
+            return;
+        }
+        for (Object productId : productIds) {
+            StockPool pool = pools.get(productId);
+            Long generation = generations.get(productId);
+            if (pool != null && (generation == null || pool.generation() < generation)) {
+                dropStalePool((UUID) productId, generation);
+            }
+        }
+    }
+
+    private void returnIdleLeases() {
+        long idleNanos = TimeUnit.SECONDS.toNanos(leaseIdleSeconds);
+        long now = System.nanoTime();
+        for (Map.Entry<UUID, StockPool> entry : pools.entrySet()) {
+            StockPool pool = entry.getValue();
+            if (now - pool.lastUsedNanos < idleNanos) {
+                continue;
+            }
+            ReentrantLock lock = stripe(entry.getKey());
+            lock.lock();
+            try {
+                PoolUnits units = pool.drain();
+                if (units.available() > 0) {
+                    returnUnits(entry.getKey(), units.generation(), units.available());
+                }
+                // Removed under the stripe lock, so no refill can target a pool that is gone
+                pools.remove(entry.getKey(), pool);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void returnUnits(UUID productId, long generation, int units) {
+        try {
+            jdbcTemplate.update(RETURN_LEASE_SQL, ps -> {
+                ps.setInt(1, units);
+                ps.setString(2, nodeId);
+                ps.setObject(3, productId, Types.OTHER);
+                ps.setLong(4, generation);
+                ps.setInt(5, units);
+                ps.setInt(6, units);
+            });
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+            catalogReadModelService.markStockChanged(productId);
+        } catch (DataAccessException e) {
+            // Still recorded in this node's lease, returned when the node shuts down or times out
+            System.err.println("Could not return " + units + " leased units of product " + productId + ": " +
+                    e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Renews this node's heartbeat and returns the leases of nodes that stopped renewing theirs.
+     * A node that was itself declared dead drops its pools (their units are back in stock) and
+     * registers again; its unwritten holds are covered from stock on the next flush.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.node-heartbeat-ms:10000}")
+    public void heartbeat() {
+        try {
+            if (jdbcTemplate.update(HEARTBEAT_SQL, nodeId) == 0) {
+                System.err.println("Inventory node " + nodeId + " timed out, dropping its stock pools");
+                dropAllPools();
+            }
+            reclaimLeases();
+        } catch (DataAccessException e) {
+            System.err.println("Inventory heartbeat failed: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Drops every pool and gives this node's remaining leases back, then registers again.
+     * Holds all stripe locks, so no refill can lease under the old registration meanwhile.
+     */
+    private void dropAllPools() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            pools.values().forEach(StockPool::drain);
+            pools.clear();
+            jdbcTemplate.update("DELETE FROM inventory_node WHERE node_id = ?", nodeId);
+            reclaimLeases();
+            jdbcTemplate.update(REGISTER_NODE_SQL, nodeId);
+        } finally {
+            for (ReentrantLock lock : stripes) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void reclaimLeases() {
+        jdbcTemplate.query(RECLAIM_SQL, rs -> {
+            rs.next();
+            UUID[] productIds = (UUID[]) rs.getArray(2).getArray();
+            if (rs.getLong(1) > 0) {
+                System.out.println("Removed " + rs.getLong(1) + " timed out inventory nodes");
+            }
+            if (productIds.length > 0) {
+                System.out.println("Returned leased stock of " + productIds.length + " products to stock");
+                tableVersionService.bump(TableVersionService.PRODUCTS);
+                catalogReadModelService.markStockChanged(Arrays.asList(productIds));
+            }
+            return null;
+        }, nodeTimeoutSeconds);
+    }
+
+    /**
+     * Expires reservations past their expiry time and returns their units to stock, in batches.
+     */
+    @Scheduled(fixedDelayString = "${app.inventory.expiry-interval-ms:30000}")
+    public void releaseExpiredReservations() {
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            long total = 0;
+            long expired;
+            do {
+                expired = jdbcTemplate.query(EXPIRE_SQL, rs -> {
+                    rs.next();
+                    // Restocked products are shown with their new stock in the public catalog
+                    UUID[] productIds = (UUID[]) rs.getArray(2).getArray();
+                    catalogReadModelService.markStockChanged(Arrays.asList(productIds));
+                    return rs.getLong(1);
+                }, now, EXPIRY_BATCH_SIZE);
+                total += expired;
+            } while (expired == EXPIRY_BATCH_SIZE);
+
+            if (total > 0) {
+                tableVersionService.bump(TableVersionService.PRODUCTS);
+                System.out.println("Released " + total + " expired stock reservations");
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Releasing expired reservations failed: " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Writes pending reservations, returns all pooled units and unregisters the node before shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        leaseIdleSeconds = 0;
+        flushPending();
+        try {
+            jdbcTemplate.update("DELETE FROM inventory_node WHERE node_id = ?", nodeId);
+            reclaimLeases();
+        } catch (DataAccessException e) {
+            System.err.println("Could not unregister inventory node " + nodeId + ": " + e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Never join a caller's (possibly read-only) transaction
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
+    private ReentrantLock stripe(UUID productId) {
+        return stripes[(productId.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+}
@@ -3,9 +3,9 @@ package org.example.supply_gate_26514.service;
 import org.example.supply_gate_26514.model.Location;
 import org.example.supply_gate_26514.repository.LocationRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -46,7 +46,7 @@ public class LocationService {
         return locationRepo.findByStructureCode(lowerOrgCode);
     }
 
-    public ResponseEntity<?> getGovernmentStructures() {
-        return ResponseEntity.ok(locationRepo.findAll());
+    public List<Location> getGovernmentStructures() {
+        return locationRepo.findAll();
     }
 }
@@ -15,7 +15,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.regex.Matcher;
@@ -135,6 +137,38 @@ public class NotificationService {
         return mapToResponseDto(saved);
     }
 
+    /**
+     * Creates notifications for many users in one batch.
+     * Recipients are resolved with a single query and rows are written with saveAll,
+     * so Hibernate can group the inserts into JDBC batches.
+     * Unknown user IDs are skipped.
+     *
+     * @param messagesByUserId Notification messages per recipient
+     * @param type Notification type
+     * @return Number of notifications created
+     */
+    @Transactional
+    public int createNotifications(Map<UUID, List<String>> messagesByUserId, String type) {
+        if (messagesByUserId == null || messagesByUserId.isEmpty()) {
+            return 0;
+        }
+
+        List<Notification> notifications = new ArrayList<>();
+        for (User user : userRepository.findAllById(messagesByUserId.keySet())) {
+            for (String message : messagesByUserId.getOrDefault(user.getUserId(), List.of())) {
+                Notification notification = new Notification();
+                notification.setUser(user);
+                notification.setMessage(message);
+                notification.setType(type != null ? type : "general");
+                notification.setRead(false);
+                notifications.add(notification);
+            }
+        }
+
+        notificationRepository.saveAll(notifications);
+        return notifications.size();
+    }
+
     /**
      * Gets sender email for a message notification.
      * For message notifications, tries to find the corresponding message and return sender email.
@@ -0,0 +1,141 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.ProductBulkUpdateItemDto;
+import org.example.supply_gate_26514.dto.ProductBulkUpdateResultDto;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Bulk price and stock changes for suppliers with large catalogs.
+ *
+ * Each chunk of up to CHUNK_SIZE products is applied with one set-based statement:
+ * the new values are passed as a VALUES list and joined to products in a single
+ * UPDATE ... FROM, instead of loading, dirty-checking and saving each entity.
+ * All chunks run in one transaction, so a request is applied completely or not at all.
+ *
+ * Stock changes are absolute writes like the supplier stock form: they start a new stock
+ * generation and void the units leased into reservation pools (see InventoryReservationService),
+ * which would otherwise come back on top of the new stock.
+ *
+ * SECURITY: Ownership is part of the same UPDATE (the product's store must belong to the
+ * authenticated user); products of other suppliers simply do not match and are reported
+ * as not updated, without revealing whether they exist.
+ */
+@Service
+public class ProductBulkUpdateService {
+
+    // 3 parameters per row: stays far below the PostgreSQL limit of 65535 bind parameters
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final String UPDATE_SQL_PREFIX =
+            "UPDATE products p SET " +
+            "product_price = COALESCE(v.product_price, p.product_price), " +
+            "stock_quantity = COALESCE(v.stock_quantity, p.stock_quantity), " +
+            "stock_generation = p.stock_generation + CASE WHEN v.stock_quantity IS NULL THEN 0 ELSE 1 END " +
+            "FROM (VALUES ";
+    private static final String UPDATE_SQL_ROW = "(?::uuid, ?::double precision, ?::integer)";
+    private static final String UPDATE_SQL_SUFFIX =
+            ") AS v (product_id, product_price, stock_quantity), stores s " +
+            "WHERE p.product_id = v.product_id AND s.store_id = p.store_id AND s.user_id = ? " +
+            "RETURNING p.product_id, v.stock_quantity IS NOT NULL";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private CatalogReadModelService catalogReadModelService;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    /**
+     * Applies price and/or stock changes to products of the current authenticated user.
+     *
+     * @param updates New values per product; null fields are left unchanged
+     * @return Counts and the IDs of products that were not updated
+     * @throws IllegalArgumentException if a product is listed twice or an item changes nothing
+     * @throws IllegalStateException if no user is authenticated
+     */
+    @Transactional
+    public ProductBulkUpdateResultDto updateProducts(List<ProductBulkUpdateItemDto> updates) {
+        long startTime = System.currentTimeMillis();
+        UUID userId = securityUtils.getCurrentUserId();
+
+        Set<UUID> requestedIds = new HashSet<>();
+        for (ProductBulkUpdateItemDto update : updates) {
+            if (!requestedIds.add(update.productId())) {
+                // UPDATE ... FROM would apply an arbitrary one of the duplicates
+                throw new IllegalArgumentException("Product listed more than once: " + update.productId());
+            }
+            if (update.productPrice() == null && update.stockQuantity() == null) {
+                throw new IllegalArgumentException("Nothing to update for product " + update.productId() +
+                        ": productPrice or stockQuantity is required");
+            }
+        }
+
+        Set<UUID> updatedIds = new HashSet<>();
+        Set<UUID> restockedIds = new HashSet<>();
+        for (int from = 0; from < updates.size(); from += CHUNK_SIZE) {
+            updateChunk(updates.subList(from, Math.min(from + CHUNK_SIZE, updates.size())), userId, updatedIds, restockedIds);
+        }
+        if (!restockedIds.isEmpty()) {
+            inventoryReservationService.voidLeases(restockedIds);
+        }
+
+        if (!updatedIds.isEmpty()) {
+            // JDBC writes bypass the entity listeners
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+            catalogReadModelService.markChanged(CatalogReadModelService.Scope.PRODUCT, new ArrayList<>(updatedIds));
+        }
+
+        List<UUID> notUpdated = new ArrayList<>();
+        for (ProductBulkUpdateItemDto update : updates) {
+            if (!updatedIds.contains(update.productId())) {
+                notUpdated.add(update.productId());
+            }
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println(String.format("Bulk product update by user %s: %d requested, %d updated in %d ms",
+                userId, updates.size(), updatedIds.size(), duration));
+        return new ProductBulkUpdateResultDto(updates.size(), updatedIds.size(), notUpdated, duration);
+    }
+
+    /**
+     * Adds the updated products to updatedIds, and those whose stock was written to restockedIds.
+     */
+    private void updateChunk(List<ProductBulkUpdateItemDto> chunk, UUID userId, Set<UUID> updatedIds, Set<UUID> restockedIds) {
+        StringBuilder sql = new StringBuilder(UPDATE_SQL_PREFIX);
+        Object[] args = new Object[chunk.size() * 3 + 1];
+        int i = 0;
+        for (ProductBulkUpdateItemDto update : chunk) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPDATE_SQL_ROW);
+            args[i++] = update.productId();
+            args[i++] = update.productPrice();
+            args[i++] = update.stockQuantity();
+        }
+        sql.append(UPDATE_SQL_SUFFIX);
+        args[i] = userId;
+        jdbcTemplate.query(sql.toString(), rs -> {
+            UUID productId = rs.getObject(1, UUID.class);
+            updatedIds.add(productId);
+            if (rs.getBoolean(2)) {
+                restockedIds.add(productId);
+            }
+        }, args);
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.supply_gate_26514.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.example.supply_gate_26514.dto.ProductResponseDto;
+import org.example.supply_gate_26514.mapper.ProductMapper;
+import org.example.supply_gate_26514.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache of product detail views, keyed by product ID.
+ *
+ * Bounded (least recently/frequently used entries are evicted past max-size) and entries expire
+ * after a TTL as a safety net. Concurrent misses on the same product are coalesced: the cache
+ * computes each key atomically, so one request loads the product while the others wait for its
+ * result instead of all querying the same row. Missing products are cached too (as empty), so
+ * requests for an unknown ID cannot stampede either.
+ *
+ * Entries are invalidated after commit by CatalogReadModelService.markChanged, which every
+ * product, image, store, category, verification and supplier write already goes through
+ * (entity listener for JPA, explicit calls for JDBC writes). Store, category and supplier
+ * changes remove the cached products that show them.
+ *
+ * Those invalidations only reach this node. Writes made on other nodes are noticed through the
+ * shared product details version (see TableVersionService): when another node bumped it, the
+ * whole cache is dropped. Every mark except stock changes bumps it, so another node serves a
+ * product taken out of the public catalog (verification revoked, product changed or deleted) for
+ * at most app.table-versions.refresh-ms, not for the TTL. Stock written by another node (which
+ * moves with every reservation) only shows here once the entry expires; reservations check the
+ * actual stock anyway.
+ *
+ * Exposed as cache.* metrics with cache=productDetails.
+ */
+@Service
+public class ProductDetailCache {
+
+    @Value("${app.product-detail-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.product-detail-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    private Cache<UUID, Optional<ProductResponseDto>> cache;
+
+    // Incremented by every scan invalidation (store/category/supplier) and flush for another node's writes, see get
+    private final AtomicLong invalidations = new AtomicLong();
+
+    // Writes of other nodes to product details the cached entries were loaded after (-1: none checked yet)
+    private volatile long seenOtherNodeWrites = -1;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "productDetails");
+    }
+
+    /**
+     * Returns the detail view of a product, loading it on a miss.
+     *
+     * @return The product, or empty if it does not exist
+     */
+    public Optional<ProductResponseDto> get(UUID productId) {
+        long otherNodeWrites = tableVersionService.otherNodeWrites(TableVersionService.PRODUCT_DETAILS);
+        if (otherNodeWrites != seenOtherNodeWrites) {
+            // Another node changed products meanwhile and could not invalidate our entries.
+            // Counted as an invalidation, so loads in progress are not kept either
+            invalidations.incrementAndGet();
+            cache.invalidateAll();
+            seenOtherNodeWrites = otherNodeWrites;
+        }
+        long[] loadedAfter = {-1};
+        Optional<ProductResponseDto> product = cache.get(productId, id -> {
+            loadedAfter[0] = invalidations.get();
+            return load(id);
+        });
+        // An invalidation by store/category/supplier scans the cached entries and cannot see a load
+        // still in progress; if one happened meanwhile, do not keep what may be a stale result
+        if (loadedAfter[0] >= 0 && invalidations.get() != loadedAfter[0]) {
+            cache.asMap().remove(productId, product);
+        }
+        return product;
+    }
+
+    public void invalidateProducts(Collection<UUID> productIds) {
+        // Waits for a load of the same key in progress, so its result is removed as well
+        cache.invalidateAll(productIds);
+    }
+
+    public void invalidateStores(Collection<UUID> storeIds) {
+        invalidateMatching(product -> storeIds.contains(product.storeId()));
+    }
+
+    public void invalidateCategories(Collection<UUID> categoryIds) {
+        invalidateMatching(product -> categoryIds.contains(product.categoryId()));
+    }
+
+    public void invalidateSuppliers(Collection<UUID> supplierIds) {
+        invalidateMatching(product -> supplierIds.contains(product.supplierId()));
+    }
+
+    private void invalidateMatching(Predicate<ProductResponseDto> affected) {
+        invalidations.incrementAndGet();
+        cache.asMap().values().removeIf(product -> product.isPresent() && affected.test(product.get()));
+    }
+
+    private Optional<ProductResponseDto> load(UUID productId) {
+        // Own transaction: a caller's uncommitted writes must never end up in the shared cache
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.setReadOnly(true);
+        return transactionTemplate.execute(status -> productRepository.findDetailsByProductId(productId)
+                .map(productMapper::transformToProductResponseDto));
+    }
+}
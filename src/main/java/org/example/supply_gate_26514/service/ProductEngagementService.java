@@ -0,0 +1,146 @@
+package org.example.supply_gate_26514.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Product impression and view counting.
+ *
+ * Requests only increment in-memory counters: one pair of LongAdders per product, which spread
+ * concurrent increments over internal cells instead of contending on a single value, so a popular
+ * product does not serialize its visitors. Nothing touches the database per request.
+ * A scheduled job drains the counters (sumThenReset) and adds them to the daily counter table
+ * with one batched upsert; a failed flush puts the counts back and is retried on the next run.
+ *
+ * Counts are approximate by design: up to one flush interval is lost if the process dies, and
+ * an increment racing with the removal of an idle product's counters may be dropped.
+ */
+@Service
+public class ProductEngagementService {
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO product_engagement_daily (product_id, day, impressions, views) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (product_id, day) DO UPDATE SET " +
+            "impressions = product_engagement_daily.impressions + EXCLUDED.impressions, " +
+            "views = product_engagement_daily.views + EXCLUDED.views";
+
+    private static final String SUPPLIER_TOTALS_SQL =
+            "SELECT COALESCE(SUM(e.impressions), 0), COALESCE(SUM(e.views), 0) " +
+            "FROM product_engagement_daily e " +
+            "JOIN products p ON p.product_id = e.product_id " +
+            "JOIN stores s ON s.store_id = p.store_id " +
+            "WHERE s.user_id = ? AND e.day >= ? AND e.day < ?";
+
+    private static final int FLUSH_BATCH_SIZE = 1000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<UUID, Counters> counters = new ConcurrentHashMap<>();
+
+    private static final class Counters {
+        private final LongAdder impressions = new LongAdder();
+        private final LongAdder views = new LongAdder();
+    }
+
+    private record Increment(UUID productId, long impressions, long views) {
+    }
+
+    /**
+     * Impression and view totals of a supplier's products over a period.
+     */
+    public record Totals(long impressions, long views) {
+    }
+
+    /**
+     * Counts one impression for each product shown in a listing page.
+     */
+    public void recordImpressions(Collection<UUID> productIds) {
+        for (UUID productId : productIds) {
+            if (productId != null) {
+                counters.computeIfAbsent(productId, id -> new Counters()).impressions.increment();
+            }
+        }
+    }
+
+    /**
+     * Counts one detail view of a product.
+     */
+    public void recordView(UUID productId) {
+        counters.computeIfAbsent(productId, id -> new Counters()).views.increment();
+    }
+
+    /**
+     * Adds the counts collected since the last run to today's rows, in batches.
+     * Products without activity since the last run are dropped from memory.
+     */
+    @Scheduled(fixedDelayString = "${app.engagement.flush-interval-ms:10000}")
+    public void flush() {
+        List<Increment> increments = new ArrayList<>();
+        for (Map.Entry<UUID, Counters> entry : counters.entrySet()) {
+            Counters productCounters = entry.getValue();
+            long impressions = productCounters.impressions.sumThenReset();
+            long views = productCounters.views.sumThenReset();
+            if (impressions == 0 && views == 0) {
+                // Idle: drop it, then pick up anything counted just before the removal
+                counters.remove(entry.getKey(), productCounters);
+                impressions = productCounters.impressions.sumThenReset();
+                views = productCounters.views.sumThenReset();
+            }
+            if (impressions != 0 || views != 0) {
+                increments.add(new Increment(entry.getKey(), impressions, views));
+            }
+        }
+        if (increments.isEmpty()) {
+            return;
+        }
+
+        // Same row order in every batch, so concurrent flushes (shutdown) cannot deadlock
+        increments.sort(Comparator.comparing(Increment::productId));
+        Date today = Date.valueOf(LocalDate.now());
+        for (int from = 0; from < increments.size(); from += FLUSH_BATCH_SIZE) {
+            List<Increment> batch = increments.subList(from, Math.min(from + FLUSH_BATCH_SIZE, increments.size()));
+            try {
+                jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, increment) -> {
+                    ps.setObject(1, increment.productId(), Types.OTHER);
+                    ps.setDate(2, today);
+                    ps.setLong(3, increment.impressions());
+                    ps.setLong(4, increment.views());
+                });
+            } catch (DataAccessException e) {
+                System.err.println("Engagement flush of " + batch.size() + " products failed (will retry): " +
+                        e.getMostSpecificCause().getMessage());
+                for (Increment increment : batch) {
+                    Counters productCounters = counters.computeIfAbsent(increment.productId(), id -> new Counters());
+                    productCounters.impressions.add(increment.impressions());
+                    productCounters.views.add(increment.views());
+                }
+            }
+        }
+    }
+
+    /**
+     * Sums the flushed counts of a supplier's products for days in [from, to).
+     */
+    public Totals getSupplierTotals(UUID supplierId, LocalDate from, LocalDate to) {
+        return jdbcTemplate.queryForObject(SUPPLIER_TOTALS_SQL,
+                (rs, rowNum) -> new Totals(rs.getLong(1), rs.getLong(2)),
+                supplierId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.supply_gate_26514.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.example.supply_gate_26514.dto.ProductImageUrlRow;
+import org.example.supply_gate_26514.dto.ProductListingRow;
+import org.example.supply_gate_26514.mapper.ProductMapper;
+import org.example.supply_gate_26514.repository.ProductImageRepository;
+import org.example.supply_gate_26514.repository.ProductRepository;
+import org.example.supply_gate_26514.util.CsvReader;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Catalog export as NDJSON or CSV.
+ *
+ * Rows are read from a server-side cursor (see ProductRepository.streamListingRows) and written
+ * to the response as they arrive, one cursor fetch (500 rows) at a time: image URLs for those rows
+ * are loaded with one query, the rows are written and flushed, and the batch is dropped.
+ * Rows are read-only DTOs, so heap use stays flat regardless of the catalog size.
+ */
+@Service
+public class ProductExportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int BATCH_SIZE = Integer.parseInt(ProductRepository.EXPORT_FETCH_SIZE);
+    private static final String CSV_HEADER = "productId,productName,productDescription,productPrice,quantity,stockQuantity," +
+            "categoryId,categoryName,storeId,storeName,supplierId,supplierName,supplierEmail,supplierVerified,imageUrls";
+    private static final String IMAGE_URL_SEPARATOR = "|";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductImageRepository productImageRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes the catalog to the given stream. The stream is flushed after every batch but not closed.
+     *
+     * @param out Response stream
+     * @param format NDJSON (one ProductResponseDto per line) or CSV (header row + one row per product)
+     * @param verifiedOnly Only export products of verified suppliers
+     * @return Number of products written
+     */
+    @Transactional(readOnly = true)
+    public long exportProducts(OutputStream out, Format format, boolean verifiedOnly) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        ObjectWriter jsonWriter = objectMapper.writer();
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long count = 0;
+        try (Stream<ProductListingRow> rows = verifiedOnly
+                ? productRepository.streamVerifiedListingRows()
+                : productRepository.streamListingRows()) {
+            List<ProductListingRow> batch = new ArrayList<>(BATCH_SIZE);
+            Iterator<ProductListingRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() >= BATCH_SIZE || !iterator.hasNext()) {
+                    writeBatch(batch, format, writer, jsonWriter);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        writer.flush();
+
+        System.out.println(String.format("Catalog export (%s, verifiedOnly=%s): %d products in %d ms",
+                format, verifiedOnly, count, System.currentTimeMillis() - startTime));
+        return count;
+    }
+
+    private void writeBatch(List<ProductListingRow> batch, Format format, Writer writer, ObjectWriter jsonWriter)
+            throws IOException {
+        Map<UUID, List<String>> imageUrlsByProduct = new HashMap<>();
+        List<UUID> productIds = batch.stream().map(ProductListingRow::productId).collect(Collectors.toList());
+        for (ProductImageUrlRow image : productImageRepository.findImageUrlsByProductIds(productIds)) {
+            if (image.imageUrl() != null && !image.imageUrl().isEmpty()) {
+                imageUrlsByProduct.computeIfAbsent(image.productId(), id -> new ArrayList<>()).add(image.imageUrl());
+            }
+        }
+
+        for (ProductListingRow row : batch) {
+            var product = productMapper.transformListingRowToProductResponseDto(row, imageUrlsByProduct.get(row.productId()));
+            if (format == Format.NDJSON) {
+                writer.write(jsonWriter.writeValueAsString(product));
+            } else {
+                writer.write(String.join(",",
+                        String.valueOf(product.productId()),
+                        text(product.productName()),
+                        text(product.productDescription()),
+                        product.productPrice() != null ? String.valueOf(product.productPrice()) : "",
+                        text(product.quantity()),
+                        product.stockQuantity() != null ? String.valueOf(product.stockQuantity()) : "",
+                        product.categoryId() != null ? product.categoryId().toString() : "",
+                        text(product.categoryName()),
+                        product.storeId() != null ? product.storeId().toString() : "",
+                        text(product.storeName()),
+                        product.supplierId() != null ? product.supplierId().toString() : "",
+                        text(product.supplierName()),
+                        text(product.supplierEmail()),
+                        String.valueOf(Boolean.TRUE.equals(product.isSupplierVerified())),
+                        text(String.join(IMAGE_URL_SEPARATOR, product.imageUrls()))));
+            }
+            writer.write('\n');
+        }
+        // Push this batch to the client before reading the next one from the cursor
+        writer.flush();
+    }
+
+    /**
+     * Escapes a text value for CSV.
+     * SECURITY: Values starting with =, +, - or @ are prefixed with a quote so spreadsheet tools
+     * do not evaluate supplier-provided text as a formula (CSV injection).
+     */
+    private static String text(String value) {
+        if (value != null && !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        return CsvReader.escape(value);
+    }
+}
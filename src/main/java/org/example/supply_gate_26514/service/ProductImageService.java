@@ -7,9 +7,17 @@ import org.example.supply_gate_26514.model.Product;
 import org.example.supply_gate_26514.model.ProductImage;
 import org.example.supply_gate_26514.repository.ProductImageRepository;
 import org.example.supply_gate_26514.repository.ProductRepository;
+import org.example.supply_gate_26514.util.MultipartStreamReader;
+import org.example.supply_gate_26514.util.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -23,27 +31,205 @@ public class ProductImageService {
     private ProductImageMapper productImageMapper;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private FileStorageService fileStorageService;
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    // Served by ImageController
+    private static final String IMAGE_URL_PREFIX = "/api/images?path=";
+    private static final String PRODUCT_IMAGES_DIRECTORY = "products";
+    private static final int MAX_IMAGES_PER_UPLOAD = 10;
 
     public List<ProductImageResponseDto> getAllProductImages() {
         return productImageRepository.findAll().stream().map(productImageMapper::transformToResponseDto).collect(Collectors.toList());
     }
+    /**
+     * Adds an image by URL to a product of the current authenticated user.
+     *
+     * SECURITY: Only the owner of the product's store can add images, and an uploaded file can
+     * only be reused from one of the user's own images (see referenceImageUrl).
+     *
+     * @throws IllegalArgumentException if the product does not exist or the URL is not allowed
+     * @throws SecurityException if the product or the uploaded file belongs to another user
+     * @throws IllegalStateException if no user is authenticated
+     */
+    @Transactional
     public ProductImageResponseDto addProductImage(ProductImageDto productImageDto) {
+        UUID userId = securityUtils.getCurrentUserId();
+        var product = ownProduct(productImageDto.productId(), userId);
         var productImage = productImageMapper.transformToDto(productImageDto);
+        productImage.setImageUrl(referenceImageUrl(productImageDto.imageUrl(), userId));
+        productImage.setProduct(product);
         var savedProductImage=productImageRepository.save(productImage);
         return productImageMapper.transformToResponseDto(savedProductImage);
     }
+    /**
+     * Changes the URL and/or product of an image of the current authenticated user.
+     * The file behind the previous URL is released after commit.
+     *
+     * SECURITY: Both the image's current product and the new one must belong to the user.
+     *
+     * @throws IllegalArgumentException if the image or product does not exist or the URL is not allowed
+     * @throws SecurityException if a product or the uploaded file belongs to another user
+     * @throws IllegalStateException if no user is authenticated
+     */
+    @Transactional
     public ProductImageResponseDto updateProductImage(UUID imageId, ProductImageDto productImageDto) {
-        var existingProductImage = productImageRepository.findById(imageId).orElse(new ProductImage());
-        existingProductImage.setImageUrl(productImageDto.imageUrl());
-        var newProduct=productRepository.findById(productImageDto.productId()).orElse(new Product());
+        UUID userId = securityUtils.getCurrentUserId();
+        var existingProductImage = productImageRepository.findById(imageId)
+                .orElseThrow(() -> new IllegalArgumentException("Product image not found"));
+        requireOwner(existingProductImage.getProduct(), userId, "You can only change images of your own products");
+        var newProduct=ownProduct(productImageDto.productId(), userId);
+        String previousUrl = existingProductImage.getImageUrl();
+        // Referenced again before the previous reference goes, so an unchanged URL keeps its file
+        existingProductImage.setImageUrl(referenceImageUrl(productImageDto.imageUrl(), userId));
         existingProductImage.setProduct(newProduct);
         var savedProductImage=productImageRepository.save(existingProductImage);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                releaseImageFile(previousUrl);
+            }
+        });
         return productImageMapper.transformToResponseDto(savedProductImage);
+    }
+    /**
+     * Uploads images for a product of the current authenticated user from a multipart/form-data body.
+     * Every part with a filename is stored while it arrives (see FileStorageService.storeImage),
+     * so nothing is buffered in memory or in a temporary upload file; other fields are ignored.
+     *
+     * SECURITY: Only the owner of the product's store can add images.
+     *
+     * @param body The request body
+     * @param contentType The request Content-Type (carries the boundary)
+     * @return The added images
+     * @throws IllegalArgumentException if the body is not multipart, has no or too many files,
+     *         or a file is invalid (nothing is added then)
+     * @throws SecurityException if the product does not belong to the current user
+     * @throws IllegalStateException if no user is authenticated
+     */
+    public List<ProductImageResponseDto> uploadProductImages(UUID productId, InputStream body, String contentType) throws IOException {
+        UUID userId = securityUtils.getCurrentUserId();
+        var product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        requireOwner(product, userId, "You can only add images to your own products");
 
+        MultipartStreamReader reader = new MultipartStreamReader(body, MultipartStreamReader.boundary(contentType));
+        List<String> storedPaths = new ArrayList<>();
+        try {
+            for (var part = reader.nextPart(); part != null; part = reader.nextPart()) {
+                if (part.filename() == null || part.filename().isEmpty()) {
+                    continue;
+                }
+                if (storedPaths.size() == MAX_IMAGES_PER_UPLOAD) {
+                    throw new IllegalArgumentException("At most " + MAX_IMAGES_PER_UPLOAD + " images per upload");
+                }
+                storedPaths.add(fileStorageService.storeImage(part.content(), PRODUCT_IMAGES_DIRECTORY));
+            }
+            if (storedPaths.isEmpty()) {
+                throw new IllegalArgumentException("Image file is required");
+            }
 
+            List<ProductImage> images = new ArrayList<>();
+            for (String path : storedPaths) {
+                ProductImage image = new ProductImage();
+                image.setImageUrl(IMAGE_URL_PREFIX + path);
+                image.setProduct(product);
+                images.add(image);
+            }
+            return productImageRepository.saveAll(images).stream()
+                    .map(productImageMapper::transformToResponseDto)
+                    .collect(Collectors.toList());
+        } catch (IOException | RuntimeException e) {
+            // Release the files stored before the failure
+            for (String path : storedPaths) {
+                try {
+                    fileStorageService.deleteFile(path);
+                } catch (IOException | RuntimeException deleteFailure) {
+                    System.err.println("Could not release uploaded image " + path + ": " + deleteFailure.getMessage());
+                }
+            }
+            throw e;
+        }
     }
+    /**
+     * Deletes an image of the current authenticated user and releases its file.
+     *
+     * SECURITY: Only the owner of the image's product can delete it (deleting the last reference
+     * removes the file).
+     *
+     * @throws IllegalArgumentException if the image does not exist
+     * @throws SecurityException if the image belongs to another user's product
+     * @throws IllegalStateException if no user is authenticated
+     */
     public String deleteProductImage(UUID imageId) {
+        UUID userId = securityUtils.getCurrentUserId();
+        var image = productImageRepository.findById(imageId)
+                .orElseThrow(() -> new IllegalArgumentException("Product image not found"));
+        requireOwner(image.getProduct(), userId, "You can only delete images of your own products");
         productImageRepository.deleteById(imageId);
+        releaseImageFile(image.getImageUrl());
         return "Product Image Deleted";
     }
+
+    private Product ownProduct(UUID productId, UUID userId) {
+        var product = productRepository.findById(productId)
+                .orElseThrow(() -> new IllegalArgumentException("Product not found"));
+        requireOwner(product, userId, "You can only add images to your own products");
+        return product;
+    }
+
+    private static void requireOwner(Product product, UUID userId, String message) {
+        if (product == null || product.getStore() == null || product.getStore().getUser() == null
+                || !userId.equals(product.getStore().getUser().getUserId())) {
+            throw new SecurityException(message);
+        }
+    }
+
+    /**
+     * Checks an image URL given by the client and, for an uploaded file, takes a reference to it:
+     * every image row holds one reference, released by releaseImageFile.
+     *
+     * SECURITY: An uploaded file may only be reused if one of the user's own products already
+     * shows it. Otherwise any user could point a row at another supplier's upload and delete the
+     * file with it.
+     *
+     * @return The URL to save (uploads with their normalized key, as releaseImageFile expects)
+     * @throws IllegalArgumentException if the URL is neither an upload nor http(s), or the upload cannot be shared
+     * @throws SecurityException if the upload is not used by the user's own products
+     */
+    private String referenceImageUrl(String imageUrl, UUID userId) {
+        if (!imageUrl.startsWith(IMAGE_URL_PREFIX)) {
+            if (!imageUrl.startsWith("https://") && !imageUrl.startsWith("http://")) {
+                throw new IllegalArgumentException("Image URL must be an uploaded image or an http(s) URL");
+            }
+            return imageUrl;
+        }
+        String url = IMAGE_URL_PREFIX + FileStorageService.normalizeKey(imageUrl.substring(IMAGE_URL_PREFIX.length()));
+        if (!productImageRepository.existsByImageUrlAndSupplier(url, userId)) {
+            throw new SecurityException("You can only reuse images uploaded to your own products");
+        }
+        if (!fileStorageService.addReference(url.substring(IMAGE_URL_PREFIX.length()))) {
+            throw new IllegalArgumentException("This image cannot be reused, please upload it again");
+        }
+        return url;
+    }
+
+    /**
+     * Releases the uploaded file behind an image URL whose row has been deleted.
+     * Uploaded files are reference counted; the bytes go with the last image using them.
+     * Failures are only logged: UploadGarbageCollector removes what is left behind.
+     */
+    public void releaseImageFile(String imageUrl) {
+        if (imageUrl == null || !imageUrl.startsWith(IMAGE_URL_PREFIX)) {
+            return;
+        }
+        String path = imageUrl.substring(IMAGE_URL_PREFIX.length());
+        try {
+            fileStorageService.deleteFile(path);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Could not delete image file " + path + ": " + e.getMessage());
+        }
+    }
 }
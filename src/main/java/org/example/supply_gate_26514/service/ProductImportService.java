@@ -0,0 +1,450 @@
+package org.example.supply_gate_26514.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.supply_gate_26514.dto.ProductImportErrorDto;
+import org.example.supply_gate_26514.dto.ProductImportResultDto;
+import org.example.supply_gate_26514.dto.ProductImportRow;
+import org.example.supply_gate_26514.mapper.ProductMapper;
+import org.example.supply_gate_26514.model.Category;
+import org.example.supply_gate_26514.model.Store;
+import org.example.supply_gate_26514.repository.CategoryRepository;
+import org.example.supply_gate_26514.repository.StoreRepository;
+import org.example.supply_gate_26514.util.CsvReader;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product import for suppliers with large catalogs.
+ *
+ * The file (CSV with a header row, or NDJSON with one product object per line) is read as a
+ * stream, one row at a time, so memory use does not depend on the file size. Each row is
+ * validated and its category/store references are resolved from maps loaded once up front.
+ * Valid rows are inserted with JDBC batch inserts in chunks, one transaction per chunk, which
+ * avoids per-entity persistence context overhead and one round trip per product.
+ *
+ * Invalid rows are skipped and reported with their row number; a chunk that fails in the
+ * database is rolled back and all its rows are reported, the remaining chunks still import.
+ * If the file cannot be read to the end, the rows read so far are still imported and the
+ * report says where reading stopped, so the client knows which rows to send again.
+ *
+ * SECURITY: Products can only be imported into stores owned by the authenticated user.
+ */
+@Service
+public class ProductImportService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final String INSERT_SQL =
+            "INSERT INTO products (product_id, product_name, product_description, product_price, quantity, " +
+            "stock_quantity, category_id, store_id, supplier_verified, creation_date) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // FOR SHARE: a review of the supplier waits for the chunk's commit (and then updates its rows too),
+    // or the chunk waits for the review's commit and reads its outcome
+    private static final String SUPPLIER_VERIFIED_SQL =
+            "SELECT status = 'APPROVED' FROM verifications WHERE user_id = ? FOR SHARE";
+
+    private static final int MAX_CHUNK_SIZE = 10_000;
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    @Value("${app.product-import.chunk-size:1000}")
+    private int defaultChunkSize;
+
+    @Value("${app.product-import.max-rows:200000}")
+    private long maxRows;
+
+    @Value("${app.product-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private StoreRepository storeRepository;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private SavedSearchService savedSearchService;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private CatalogReadModelService catalogReadModelService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * A validated row ready to insert.
+     */
+    private record PendingProduct(long rowNumber, UUID productId, String productName, String productDescription,
+                                  double productPrice, String quantity, Integer stockQuantity,
+                                  UUID categoryId, UUID storeId) {
+    }
+
+    /**
+     * A row read from the file, or the reason it could not be read.
+     */
+    private record ParsedRow(long rowNumber, ProductImportRow row, String error) {
+    }
+
+    private interface RowReader {
+        /** Returns the next non-blank row, or null at end of input. */
+        ParsedRow next() throws IOException;
+    }
+
+    /**
+     * References resolved once per import. The supplier's verification is not: it may be reviewed
+     * during a long import, so each chunk reads it (see insertChunk).
+     */
+    private record ImportContext(UUID userId, Map<UUID, Category> categoriesById, Map<String, Category> categoriesByName,
+                                 Map<UUID, Store> storesById, Map<String, Store> storesByName,
+                                 Store defaultStore) {
+    }
+
+    /**
+     * Counters and error report of a running import.
+     */
+    private class ImportState {
+        private long totalRows;
+        private long importedRows;
+        private long failedRows;
+        private final List<ProductImportErrorDto> errors = new ArrayList<>();
+        private boolean errorsTruncated;
+        private long lastRowRead;
+        private String readError;
+
+        private void fail(long rowNumber, String message) {
+            failedRows++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportErrorDto(rowNumber, message));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+    }
+
+    /**
+     * Imports products for the current authenticated user.
+     *
+     * @param input Request body, read as UTF-8
+     * @param format CSV (header row required) or NDJSON
+     * @param chunkSize Rows per batch insert and transaction (optional, default from configuration)
+     * @return Import summary with per-row errors
+     * @throws IllegalArgumentException if the user has no store or the CSV header is unusable
+     * @throws IllegalStateException if no user is authenticated
+     * @throws IOException if not even the CSV header can be read (later read errors end the
+     *                     import with a partial report instead)
+     */
+    public ProductImportResultDto importProducts(InputStream input, Format format, Integer chunkSize) throws IOException {
+        long startTime = System.currentTimeMillis();
+        UUID userId = securityUtils.getCurrentUserId();
+        ImportContext context = loadContext(userId);
+        int effectiveChunkSize = Math.max(1, Math.min(chunkSize != null ? chunkSize : defaultChunkSize, MAX_CHUNK_SIZE));
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        ImportState state = new ImportState();
+        List<PendingProduct> chunk = new ArrayList<>(effectiveChunkSize);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        RowReader rows = format == Format.CSV ? csvRows(reader) : ndjsonRows(reader);
+
+        ParsedRow parsed;
+        while ((parsed = nextRow(rows, state)) != null) {
+            if (state.totalRows >= maxRows) {
+                state.fail(parsed.rowNumber(), "Import is limited to " + maxRows + " rows; this and later rows were not read");
+                break;
+            }
+            state.lastRowRead = parsed.rowNumber();
+            state.totalRows++;
+
+            if (parsed.error() != null) {
+                state.fail(parsed.rowNumber(), parsed.error());
+                continue;
+            }
+            try {
+                chunk.add(validate(parsed.rowNumber(), parsed.row(), context));
+            } catch (IllegalArgumentException e) {
+                state.fail(parsed.rowNumber(), e.getMessage());
+                continue;
+            }
+
+            if (chunk.size() >= effectiveChunkSize) {
+                insertChunk(chunk, context, transactionTemplate, state);
+                chunk = new ArrayList<>(effectiveChunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            insertChunk(chunk, context, transactionTemplate, state);
+        }
+
+        long duration = System.currentTimeMillis() - startTime;
+        System.out.println(String.format("Product import by user %s: %d rows, %d imported, %d failed in %d ms%s",
+                userId, state.totalRows, state.importedRows, state.failedRows, duration,
+                state.readError != null ? " (reading stopped after row " + state.lastRowRead + ": " + state.readError + ")" : ""));
+        return new ProductImportResultDto(state.totalRows, state.importedRows, state.failedRows,
+                state.errors, state.errorsTruncated, duration,
+                state.readError == null, state.lastRowRead, state.readError);
+    }
+
+    /**
+     * Next row, or null at the end of the input or when it cannot be read any further.
+     * Rows read before a read error are complete and still get imported.
+     */
+    private static ParsedRow nextRow(RowReader rows, ImportState state) {
+        try {
+            return rows.next();
+        } catch (IOException e) {
+            state.readError = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return null;
+        }
+    }
+
+    private ImportContext loadContext(UUID userId) {
+        List<Store> stores = storeRepository.findByUser_UserId(userId);
+        if (stores.isEmpty()) {
+            throw new IllegalArgumentException("You need a store before importing products");
+        }
+
+        Map<UUID, Store> storesById = new HashMap<>();
+        Map<String, Store> storesByName = new HashMap<>();
+        for (Store store : stores) {
+            storesById.put(store.getStoreId(), store);
+            if (store.getStoreName() != null) {
+                storesByName.putIfAbsent(normalizeName(store.getStoreName()), store);
+            }
+        }
+
+        Map<UUID, Category> categoriesById = new HashMap<>();
+        Map<String, Category> categoriesByName = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            categoriesById.put(category.getCategoryId(), category);
+            if (category.getCategoryName() != null) {
+                categoriesByName.putIfAbsent(normalizeName(category.getCategoryName()), category);
+            }
+        }
+
+        return new ImportContext(userId, categoriesById, categoriesByName, storesById, storesByName,
+                stores.size() == 1 ? stores.get(0) : null);
+    }
+
+    private PendingProduct validate(long rowNumber, ProductImportRow row, ImportContext context) {
+        String productName = requireText(row.productName(), "productName");
+        String productDescription = requireText(row.productDescription(), "productDescription");
+        String quantity = requireText(row.quantity(), "quantity");
+
+        String priceText = requireText(row.productPrice(), "productPrice");
+        double productPrice;
+        try {
+            productPrice = Double.parseDouble(priceText);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("productPrice is not a number: " + priceText);
+        }
+        if (!Double.isFinite(productPrice) || productPrice < 0) {
+            throw new IllegalArgumentException("productPrice must be zero or positive");
+        }
+
+        Integer stockQuantity = ProductMapper.parseStockQuantity(quantity);
+        if (row.stockQuantity() != null && !row.stockQuantity().isBlank()) {
+            try {
+                stockQuantity = Integer.parseInt(row.stockQuantity().trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("stockQuantity is not a whole number: " + row.stockQuantity());
+            }
+            if (stockQuantity < 0) {
+                throw new IllegalArgumentException("stockQuantity must be zero or positive");
+            }
+        }
+
+        Category category = resolve(row.categoryId(), row.categoryName(), context.categoriesById(),
+                context.categoriesByName(), null, "category");
+        Store store = resolve(row.storeId(), row.storeName(), context.storesById(),
+                context.storesByName(), context.defaultStore(), "store");
+
+        return new PendingProduct(rowNumber, UUID.randomUUID(), productName, productDescription, productPrice,
+                quantity, stockQuantity, category.getCategoryId(), store.getStoreId());
+    }
+
+    /**
+     * Resolves a reference by ID or, if no ID is given, by name (case-insensitive).
+     * Stores outside the current user's map are reported as not found.
+     */
+    private <T> T resolve(String id, String name, Map<UUID, T> byId, Map<String, T> byName, T fallback, String label) {
+        if (id != null && !id.isBlank()) {
+            T value;
+            try {
+                value = byId.get(UUID.fromString(id.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(label + "Id is not a valid UUID: " + id);
+            }
+            if (value == null) {
+                throw new IllegalArgumentException(label + " not found: " + id);
+            }
+            return value;
+        }
+        if (name != null && !name.isBlank()) {
+            T value = byName.get(normalizeName(name));
+            if (value == null) {
+                throw new IllegalArgumentException(label + " not found: " + name);
+            }
+            return value;
+        }
+        if (fallback != null) {
+            return fallback;
+        }
+        throw new IllegalArgumentException(label + "Id or " + label + "Name is required");
+    }
+
+    private void insertChunk(List<PendingProduct> chunk, ImportContext context,
+                             TransactionTemplate transactionTemplate, ImportState state) {
+        Timestamp creationDate = Timestamp.valueOf(LocalDateTime.now());
+        boolean supplierVerified;
+        try {
+            supplierVerified = transactionTemplate.execute(status -> {
+                // All stores belong to the current user, so one verification lookup covers the chunk.
+                // Read in the chunk's transaction, so the denormalized flag matches the verification
+                // even if it is reviewed while the import runs
+                boolean verified = jdbcTemplate.query(SUPPLIER_VERIFIED_SQL,
+                        (rs, rowNum) -> rs.getBoolean(1), context.userId()).stream().findFirst().orElse(false);
+                jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), (ps, product) -> {
+                    ps.setObject(1, product.productId(), Types.OTHER);
+                    ps.setString(2, product.productName());
+                    ps.setString(3, product.productDescription());
+                    ps.setDouble(4, product.productPrice());
+                    ps.setString(5, product.quantity());
+                    ps.setObject(6, product.stockQuantity(), Types.INTEGER);
+                    ps.setObject(7, product.categoryId(), Types.OTHER);
+                    ps.setObject(8, product.storeId(), Types.OTHER);
+                    ps.setBoolean(9, verified);
+                    ps.setTimestamp(10, creationDate);
+                });
+                // JDBC writes bypass the entity listeners
+                tableVersionService.bump(TableVersionService.PRODUCTS);
+                catalogReadModelService.markChanged(CatalogReadModelService.Scope.PRODUCT,
+                        chunk.stream().map(PendingProduct::productId).collect(Collectors.toList()));
+                return verified;
+            });
+        } catch (DataAccessException e) {
+            String message = "Rows " + chunk.get(0).rowNumber() + "-" + chunk.get(chunk.size() - 1).rowNumber() +
+                    " were rolled back: " + e.getMostSpecificCause().getMessage();
+            for (PendingProduct product : chunk) {
+                state.fail(product.rowNumber(), message);
+            }
+            return;
+        }
+        state.importedRows += chunk.size();
+
+        // Products of unverified suppliers are not public, so not announced either (see SavedSearchService)
+        if (!supplierVerified) {
+            return;
+        }
+        List<SavedSearchService.ProductTerms> terms = new ArrayList<>(chunk.size());
+        for (PendingProduct product : chunk) {
+            terms.add(SavedSearchService.ProductTerms.of(product.productId(), product.productName(),
+                    product.productName(), product.productDescription()));
+        }
+        savedSearchService.percolate(terms);
+    }
+
+    private RowReader csvRows(BufferedReader reader) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("productname")) {
+            throw new IllegalArgumentException("CSV header must contain a productName column");
+        }
+
+        return () -> {
+            List<String> record;
+            while ((record = csv.readRecord()) != null) {
+                if (record.stream().allMatch(String::isBlank)) {
+                    continue;
+                }
+                ProductImportRow row = new ProductImportRow(
+                        column(record, columns, "productname"),
+                        column(record, columns, "productdescription"),
+                        column(record, columns, "productprice"),
+                        column(record, columns, "quantity"),
+                        column(record, columns, "stockquantity"),
+                        column(record, columns, "categoryid"),
+                        column(record, columns, "categoryname"),
+                        column(record, columns, "storeid"),
+                        column(record, columns, "storename"));
+                return new ParsedRow(csv.getRecordNumber(), row, null);
+            }
+            return null;
+        };
+    }
+
+    private RowReader ndjsonRows(BufferedReader reader) {
+        long[] lineNumber = {0};
+        return () -> {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber[0]++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ParsedRow(lineNumber[0], objectMapper.readValue(line, ProductImportRow.class), null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRow(lineNumber[0], null, "Invalid JSON: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        };
+    }
+
+    private static String column(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index != null && index < record.size() ? record.get(index) : null;
+    }
+
+    private static String requireText(String value, String field) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        String trimmed = value.trim();
+        if (trimmed.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException(field + " must be at most " + MAX_TEXT_LENGTH + " characters");
+        }
+        return trimmed;
+    }
+
+    private static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,20 +1,37 @@
 package org.example.supply_gate_26514.service;
 
 import org.example.supply_gate_26514.dto.ProductDto;
+import org.example.supply_gate_26514.dto.ProductFilter;
+import org.example.supply_gate_26514.dto.ProductImageUrlRow;
+import org.example.supply_gate_26514.dto.ProductListingRow;
 import org.example.supply_gate_26514.dto.ProductResponseDto;
 import org.example.supply_gate_26514.mapper.ProductMapper;
+import org.example.supply_gate_26514.model.CatalogEntry;
 import org.example.supply_gate_26514.model.Category;
 import org.example.supply_gate_26514.model.Product;
 import org.example.supply_gate_26514.model.Store;
+import org.example.supply_gate_26514.repository.CatalogEntryRepository;
 import org.example.supply_gate_26514.repository.CategoryRepository;
+import org.example.supply_gate_26514.repository.ProductImageRepository;
 import org.example.supply_gate_26514.repository.ProductRepository;
+import org.example.supply_gate_26514.repository.ProductSpecifications;
 import org.example.supply_gate_26514.repository.StoreRepository;
+import org.example.supply_gate_26514.repository.VerificationRepository;
+import org.example.supply_gate_26514.util.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,94 +46,206 @@ public class ProductService {
     private StoreRepository storeRepository;
     @Autowired
     private CategoryRepository categoryRepository;
+    @Autowired
+    private SavedSearchService savedSearchService;
+    @Autowired
+    private VerificationRepository verificationRepository;
+    @Autowired
+    private ProductImageRepository productImageRepository;
+    @Autowired
+    private CatalogEntryRepository catalogEntryRepository;
+    @Autowired
+    private ProductDetailCache productDetailCache;
+    @Autowired
+    private ProductImageService productImageService;
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+    @Autowired
+    private SecurityUtils securityUtils;
 
 //    public List<ProductResponseDto> getAllProducts() {
 //        return productRepository.findAll().stream().map(productMapper::transformToProductResponseDto).collect(Collectors.toList());
 //    }
     /**
-     * Gets all products (paginated) with optional search.
+     * Gets all products (paginated), optionally filtered.
      * 
      * @param pageable Pagination parameters
-     * @param search Optional search term to filter products (searches in productName, productDescription, categoryName, storeName, supplier info)
+     * @param filter Criteria to apply (see ProductFilter); null fields do not filter
      * @return Paginated products
      */
-    public Page<ProductResponseDto> getAllProducts(Pageable pageable, String search) {
-        // Fetch products with relationships to avoid N+1 queries
-        Page<Product> products;
-        if (search != null && !search.trim().isEmpty()) {
-            products = productRepository.findBySearch(search.trim(), pageable);
-        } else {
-            products = productRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public Page<ProductResponseDto> getAllProducts(Pageable pageable, ProductFilter filter) {
+        // Page of IDs first: only the filtered columns (and joins needed by a search) are touched,
+        // so narrow filters run on the composite indexes instead of the joined listing query
+        Page<UUID> productIds = productRepository.findProductIds(ProductSpecifications.products(filter), pageable);
+        if (!productIds.hasContent()) {
+            return productIds.map(id -> null);
         }
-        
-        return products.map(product -> {
-            // Ensure relationships are loaded
-            if (product.getStore() != null && product.getStore().getUser() != null) {
-                // Trigger lazy loading if needed - verification is accessed via repository, not direct relationship
-                product.getStore().getUser().getUserId(); // Just ensure user is loaded
-            }
-            if (product.getProductImages() != null) {
-                product.getProductImages().size(); // Trigger lazy load
-            }
-            return productMapper.transformToProductResponseDto(product);
-        });
+
+        // Then the listing rows of that page only (read-only projection, no entities hydrated)
+        Map<UUID, ProductListingRow> rowsById = new HashMap<>();
+        for (ProductListingRow row : productRepository.findListingRowsByIds(productIds.getContent())) {
+            rowsById.put(row.productId(), row);
+        }
+        List<ProductListingRow> rows = productIds.getContent().stream()
+                .map(rowsById::get)
+                .filter(Objects::nonNull) // Deleted between the two queries
+                .collect(Collectors.toList());
+        return toResponsePage(new PageImpl<>(rows, pageable, productIds.getTotalElements()));
     }
     
     /**
      * Gets all products for public website display.
      * SECURITY: Only returns products from verified suppliers (APPROVED status).
-     * This enforces filtering at the database level, not just in the UI.
+     * This enforces filtering at the database level, not just in the UI:
+     * the catalog read model only holds products of verified suppliers.
      * 
      * @param pageable Pagination parameters
-     * @param search Optional search term to filter products
+     * @param filter Criteria to apply (see ProductFilter); null fields do not filter
      * @return Page of products from verified suppliers only
      */
-    public Page<ProductResponseDto> getPublicProducts(Pageable pageable, String search) {
-        Page<Product> products;
-        
-        if (search != null && !search.trim().isEmpty()) {
-            // Search with verification filter
-            products = productRepository.findByVerifiedSuppliersAndSearch(search.trim(), pageable);
-        } else {
-            // All verified products
-            products = productRepository.findByVerifiedSuppliers(pageable);
-        }
-        
-        return products.map(product -> {
-            // Ensure relationships are loaded
-            if (product.getStore() != null && product.getStore().getUser() != null) {
-                product.getStore().getUser().getUserId(); // Trigger lazy load
-            }
-            if (product.getProductImages() != null) {
-                product.getProductImages().size(); // Trigger lazy load
+    @Transactional(readOnly = true)
+    public Page<ProductResponseDto> getPublicProducts(Pageable pageable, ProductFilter filter) {
+        // Served from the precomputed read model: one narrow table, no joins or image lookups
+        Page<CatalogEntry> entries = catalogEntryRepository.findAll(ProductSpecifications.catalogEntries(filter), pageable);
+        return entries.map(productMapper::transformCatalogEntryToProductResponseDto);
+    }
+
+    /**
+     * Maps a page of listing rows, loading the image URLs of the whole page with one query.
+     */
+    private Page<ProductResponseDto> toResponsePage(Page<ProductListingRow> rows) {
+        Map<UUID, List<String>> imageUrlsByProduct = new HashMap<>();
+        if (rows.hasContent()) {
+            List<UUID> productIds = rows.getContent().stream().map(ProductListingRow::productId).collect(Collectors.toList());
+            for (ProductImageUrlRow image : productImageRepository.findImageUrlsByProductIds(productIds)) {
+                if (image.imageUrl() != null && !image.imageUrl().isEmpty()) {
+                    imageUrlsByProduct.computeIfAbsent(image.productId(), id -> new ArrayList<>()).add(image.imageUrl());
+                }
             }
-            return productMapper.transformToProductResponseDto(product);
-        });
+        }
+        return rows.map(row -> productMapper.transformListingRowToProductResponseDto(
+                row, imageUrlsByProduct.get(row.productId())));
+    }
+    /**
+     * Gets one product for public display (cached, see ProductDetailCache).
+     * SECURITY: Only products of verified suppliers are found (same rule as public listings).
+     *
+     * @return The product, or null if it does not exist or is not public
+     */
+    public ProductResponseDto getPublicProductById(UUID id) {
+        return productDetailCache.get(id).filter(product -> Boolean.TRUE.equals(product.isSupplierVerified())).orElse(null);
     }
     public ProductResponseDto getProductById(UUID id) {
-        return productRepository.findById(id).map(productMapper::transformToProductResponseDto).orElse(null);
+        return productDetailCache.get(id).orElse(null);
     }
+    /**
+     * Adds a product to a store of the current authenticated user.
+     *
+     * @throws IllegalArgumentException if the store does not exist
+     * @throws SecurityException if the store belongs to another user
+     * @throws IllegalStateException if no user is authenticated
+     */
     public ProductResponseDto addAProduct(ProductDto productDto) {
+        requireOwnStore(productDto.storeId(), securityUtils.getCurrentUserId());
         var product=productMapper.transformToProductDto(productDto);
+        product.setSupplierVerified(verificationRepository.isStoreOwnerApproved(productDto.storeId()));
         var savedProduct=productRepository.save(product);
+        // Notify buyers whose saved searches match the new product (runs in background)
+        percolateAfterCommit(savedProduct, SavedSearchService.ProductTerms.of(
+                savedProduct.getProductId(), savedProduct.getProductName(),
+                savedProduct.getProductName(), savedProduct.getProductDescription()));
         return productMapper.transformToProductResponseDto(savedProduct);
     }
+    /**
+     * Updates a product from the edit form.
+     * SECURITY: Only the owner of the product's store can change it (stock included, same rule as
+     * InventoryReservationService.updateStock), and only move it to another store of their own.
+     *
+     * @throws IllegalArgumentException if the target store does not exist
+     * @throws SecurityException if the product or the target store belongs to another user
+     * @throws IllegalStateException if no user is authenticated
+     */
+    @Transactional
     public ProductResponseDto updateProduct(UUID id, ProductDto productDto) {
         var existingProduct=productRepository.findById(id).orElse(new Product());
+        // Checked before anything changes
+        UUID userId = securityUtils.getCurrentUserId();
+        if (existingProduct.getProductId() != null && !isOwner(existingProduct.getStore(), userId)) {
+            throw new SecurityException("You can only change your own products");
+        }
+        var currentStore=existingProduct.getStore();
+        if (currentStore == null || !currentStore.getStoreId().equals(productDto.storeId())) {
+            requireOwnStore(productDto.storeId(), userId);
+        }
+        // Terms before the update, so searches that already matched are not notified twice
+        var previousTerms=SavedSearchService.tokenize(existingProduct.getProductName(), existingProduct.getProductDescription());
         existingProduct.setProductName(productDto.productName());
         existingProduct.setProductDescription(productDto.productDescription());
         existingProduct.setProductPrice(productDto.productPrice());
-        var newStore =storeRepository.findById(productDto.storeId()).orElse(new Store());
-        existingProduct.setStore(newStore);
-        var newCategory =categoryRepository.findById(productDto.categoryId()).orElse(new Category());
-        existingProduct.setCategory(newCategory);
+        // Store and category are only looked up when they change
+        if (currentStore == null || !currentStore.getStoreId().equals(productDto.storeId())) {
+            var newStore =storeRepository.findById(productDto.storeId()).orElse(new Store());
+            existingProduct.setStore(newStore);
+            existingProduct.setSupplierVerified(newStore.getStoreId() != null && verificationRepository.isStoreOwnerApproved(newStore.getStoreId()));
+        }
+        var currentCategory=existingProduct.getCategory();
+        if (currentCategory == null || !currentCategory.getCategoryId().equals(productDto.categoryId())) {
+            existingProduct.setCategory(categoryRepository.findById(productDto.categoryId()).orElse(new Category()));
+        }
         var updatedProduct=productRepository.save(existingProduct);
+        if (productDto.stockQuantity() != null) {
+            // Stock is not updatable through the entity (concurrent reservations), see Product.stockQuantity
+            inventoryReservationService.overwriteStock(updatedProduct.getProductId(), productDto.stockQuantity());
+            updatedProduct.setStockQuantity(productDto.stockQuantity());
+        }
+        percolateAfterCommit(updatedProduct, SavedSearchService.ProductTerms.of(
+                updatedProduct.getProductId(), updatedProduct.getProductName(),
+                updatedProduct.getProductName(), updatedProduct.getProductDescription())
+                .withPreviousTerms(previousTerms));
 
-        return productMapper.transformToProductResponseDto(productRepository.save(updatedProduct));
+        // Managed entity: changes are flushed on commit, no second save needed
+        return productMapper.transformToProductResponseDto(updatedProduct);
+    }
+    /**
+     * Percolates a product once its write is committed (at once outside a transaction).
+     * Products of unverified suppliers are hidden from the public catalog and not announced
+     * either; they are percolated when the verification is approved.
+     */
+    private void percolateAfterCommit(Product product, SavedSearchService.ProductTerms terms) {
+        if (!product.isSupplierVerified()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            savedSearchService.percolate(List.of(terms));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                savedSearchService.percolate(List.of(terms));
+            }
+        });
+    }
+    private void requireOwnStore(UUID storeId, UUID userId) {
+        if (storeId == null) {
+            throw new IllegalArgumentException("Store is required");
+        }
+        var store = storeRepository.findById(storeId)
+                .orElseThrow(() -> new IllegalArgumentException("Store not found"));
+        if (!isOwner(store, userId)) {
+            throw new SecurityException("You can only add products to your own stores");
+        }
     }
 
+    private static boolean isOwner(Store store, UUID userId) {
+        return store != null && store.getUser() != null && userId.equals(store.getUser().getUserId());
+    }
     public String deleteProduct(UUID id) {
-        productRepository.deleteAll();
+        // Image rows are deleted with the product (cascade); their files are released afterwards
+        List<ProductImageUrlRow> images = productImageRepository.findImageUrlsByProductIds(List.of(id));
+        productRepository.deleteById(id);
+        images.forEach(image -> productImageService.releaseImageFile(image.imageUrl()));
         return "Product deleted";
     }
 }
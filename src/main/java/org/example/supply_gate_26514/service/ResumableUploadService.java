@@ -0,0 +1,440 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.UploadSessionDto;
+import org.example.supply_gate_26514.dto.UploadSessionResponseDto;
+import org.example.supply_gate_26514.dto.VerificationResponseDto;
+import org.example.supply_gate_26514.model.UploadSession;
+import org.example.supply_gate_26514.model.User;
+import org.example.supply_gate_26514.repository.UploadSessionRepository;
+import org.example.supply_gate_26514.repository.UserRepository;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Resumable, chunked uploads of verification documents, for suppliers on unreliable connections.
+ *
+ * Protocol: initiate with the document type and total size (the file is pre-allocated), PUT
+ * chunks with their byte offset in any order, then complete. Every chunk is written with
+ * positional FileChannel writes and flushed to disk before its range is recorded on the
+ * session; a chunk cut off by a dropped connection still records the bytes that arrived.
+ * The client asks for the session state (nextOffset) and continues from there instead of
+ * restarting. Completing stores the document like any other (FileStorageService.storeDocument:
+ * type detection, size limit, content-addressed) and attaches it to the user's verification.
+ *
+ * Sessions without a chunk for session-ttl-hours are deleted with their partial file by a
+ * scheduled job, which also removes partial files left without a session. A user has at most
+ * max-open-sessions-per-user sessions at a time, so pre-allocated files cannot fill the disk.
+ *
+ * Several nodes: session rows are shared, but partial files live in app.resumable-upload.directory
+ * on the node that started the upload. That directory must be shared by all nodes (NFS or similar),
+ * or the load balancer must keep each client on one node (sticky sessions). Otherwise a chunk or
+ * completion reaching another node fails with UploadSessionElsewhereException (409).
+ *
+ * SECURITY: A session is only visible to the user who started it; other users get "not found".
+ * Partial files live outside the upload directory, so they are never served.
+ */
+@Service
+public class ResumableUploadService {
+
+    private static final String VERIFICATIONS_DIRECTORY = "verifications";
+    private static final String PARTIAL_FILE_SUFFIX = ".part";
+
+    // Out-of-order chunks leave gaps; cap them so the recorded ranges stay small
+    private static final int MAX_RANGES = 100;
+
+    @Value("${app.resumable-upload.directory:upload-sessions}")
+    private String directory;
+
+    @Value("${app.resumable-upload.session-ttl-hours:24}")
+    private long sessionTtlHours;
+
+    @Value("${app.resumable-upload.max-open-sessions-per-user:5}")
+    private int maxOpenSessionsPerUser;
+
+    @Autowired
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private VerificationService verificationService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Starts an upload for the current authenticated user and pre-allocates its file.
+     *
+     * @throws IllegalArgumentException if the size exceeds the document size limit
+     * @throws UploadLimitExceededException if the user already has max-open-sessions-per-user uploads open
+     * @throws IllegalStateException if no user is authenticated
+     */
+    public UploadSessionResponseDto initiate(UploadSessionDto uploadSessionDto) throws IOException {
+        User user = securityUtils.getCurrentUser();
+        if (uploadSessionDto.size() > FileStorageService.MAX_DOCUMENT_SIZE) {
+            throw new IllegalArgumentException(
+                String.format("File size exceeds maximum allowed size of %d MB", FileStorageService.MAX_DOCUMENT_SIZE / (1024 * 1024))
+            );
+        }
+
+        // Counted and saved under the user's row lock, so parallel requests cannot overshoot the limit
+        UUID uploadId = UUID.randomUUID();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        UploadSession saved = transactionTemplate.execute(status -> {
+            userRepository.findByIdForUpdate(user.getUserId());
+            LocalDateTime now = LocalDateTime.now();
+            if (uploadSessionRepository.countActiveByUser(user.getUserId(), now.minusHours(sessionTtlHours)) >= maxOpenSessionsPerUser) {
+                throw new UploadLimitExceededException("Too many open uploads (at most " + maxOpenSessionsPerUser +
+                        "): complete or resume one of them first");
+            }
+            UploadSession session = new UploadSession();
+            session.setUploadId(uploadId);
+            session.setUser(user);
+            session.setDocumentType(uploadSessionDto.documentType());
+            session.setTotalSize(uploadSessionDto.size());
+            session.setCreationDate(now);
+            session.setLastActivityDate(now);
+            return uploadSessionRepository.save(session);
+        });
+
+        Path file = partialFile(uploadId);
+        try {
+            Files.createDirectories(file.getParent());
+            try (RandomAccessFile allocation = new RandomAccessFile(file.toFile(), "rw")) {
+                allocation.setLength(uploadSessionDto.size());
+            }
+        } catch (IOException e) {
+            discard(uploadId, null);
+            throw e;
+        }
+        return mapToResponseDto(saved);
+    }
+
+    /**
+     * Returns the state of an upload of the current authenticated user (where to resume).
+     *
+     * @throws NoSuchElementException if there is no such upload for this user
+     */
+    public UploadSessionResponseDto getSession(UUID uploadId) {
+        return mapToResponseDto(findOwnSession(uploadId, securityUtils.getCurrentUserId()));
+    }
+
+    /**
+     * Writes a chunk read from the request body at the given offset.
+     * Chunks may be repeated or overlap (a retried chunk simply rewrites the same bytes).
+     *
+     * @param length Declared length of the chunk (Content-Length), or -1 if unknown
+     * @return The state after this chunk
+     * @throws IOException if the body could not be read to its end (the bytes received are kept)
+     * @throws IllegalArgumentException if the offset is outside the document or the chunk runs past its end
+     * @throws NoSuchElementException if there is no such upload for this user
+     * @throws UploadSessionElsewhereException if the partial file is on another node
+     */
+    public UploadSessionResponseDto writeChunk(UUID uploadId, long offset, long length, InputStream body) throws IOException {
+        UploadSession session = findOwnSession(uploadId, securityUtils.getCurrentUserId());
+        long totalSize = session.getTotalSize();
+        if (offset < 0 || offset >= totalSize) {
+            throw new IllegalArgumentException("Offset must be between 0 and " + (totalSize - 1));
+        }
+        // Rejected before anything is written, so an oversized chunk cannot overwrite received bytes
+        if (length > totalSize - offset) {
+            throw new IllegalArgumentException("Chunk extends past the declared size of " + totalSize + " bytes");
+        }
+
+        long position = offset;
+        boolean overflow = false;
+        IOException interrupted = null;
+        try (FileChannel channel = openPartialFile(uploadId)) {
+            try {
+                byte[] buffer = new byte[64 * 1024];
+                int read;
+                while (position < totalSize
+                        && (read = body.read(buffer, 0, (int) Math.min(buffer.length, totalSize - position))) >= 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        position += channel.write(chunk, position);
+                    }
+                }
+                overflow = position == totalSize && body.read() >= 0;
+            } catch (IOException e) {
+                // Connection dropped: what arrived is still good and is recorded below
+                interrupted = e;
+            }
+            // On disk before it is recorded as received
+            channel.force(false);
+        }
+
+        UploadSessionResponseDto state = recordRange(uploadId, offset, position);
+        if (interrupted != null) {
+            throw interrupted;
+        }
+        if (overflow) {
+            throw new IllegalArgumentException("Chunk extends past the declared size of " + totalSize + " bytes");
+        }
+        return state;
+    }
+
+    /**
+     * Finishes an upload: stores the document and attaches it to the user's verification.
+     * A document that fails validation (type, size) discards the upload.
+     *
+     * @return The updated verification
+     * @throws UploadIncompleteException if bytes are still missing
+     * @throws IllegalArgumentException if the document is not an allowed type
+     * @throws NoSuchElementException if there is no such upload for this user
+     * @throws UploadSessionElsewhereException if the partial file is on another node
+     */
+    public VerificationResponseDto complete(UUID uploadId) throws IOException {
+        User user = securityUtils.getCurrentUser();
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        VerificationResponseDto verification;
+        try {
+            verification = transactionTemplate.execute(status -> {
+                UploadSession session = uploadSessionRepository.findByIdForUpdate(uploadId)
+                        .filter(s -> s.getUser().getUserId().equals(user.getUserId()))
+                        .orElseThrow(() -> new NoSuchElementException("Upload not found"));
+                List<long[]> ranges = parseRanges(session.getReceivedRanges());
+                if (ranges.size() != 1 || ranges.get(0)[0] != 0 || ranges.get(0)[1] != session.getTotalSize()) {
+                    throw new UploadIncompleteException("Upload incomplete: resume at offset " + nextOffset(ranges) +
+                            " (" + receivedBytes(ranges) + " of " + session.getTotalSize() + " bytes received)");
+                }
+
+                String documentPath;
+                try (InputStream content = Files.newInputStream(partialFile(uploadId))) {
+                    documentPath = fileStorageService.storeDocument(content, VERIFICATIONS_DIRECTORY);
+                } catch (NoSuchFileException e) {
+                    throw elsewhere(uploadId);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                uploadSessionRepository.delete(session);
+                return verificationService.attachDocument(user, session.getDocumentType(), documentPath);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (IllegalArgumentException e) {
+            // Not a valid document: retrying cannot help
+            discard(uploadId, null);
+            throw e;
+        }
+        Files.deleteIfExists(partialFile(uploadId));
+        return verification;
+    }
+
+    /**
+     * Deletes sessions without activity for session-ttl-hours, and partial files without a session.
+     */
+    @Scheduled(fixedDelayString = "${app.resumable-upload.cleanup-interval-ms:900000}",
+               initialDelayString = "${app.resumable-upload.cleanup-initial-delay-ms:60000}")
+    public void deleteAbandonedUploads() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(sessionTtlHours);
+        int deleted = 0;
+        for (UUID uploadId : uploadSessionRepository.findIdsInactiveSince(cutoff)) {
+            try {
+                if (discard(uploadId, cutoff)) {
+                    deleted++;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Could not delete abandoned upload " + uploadId + ": " + e.getMessage());
+            }
+        }
+
+        // Left behind when a session row was never written or its file could not be deleted
+        Path root = Paths.get(directory);
+        if (Files.isDirectory(root)) {
+            long cutoffMillis = cutoff.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            try (Stream<Path> files = Files.list(root)) {
+                for (Path file : files.toList()) {
+                    UUID uploadId = uploadIdOf(file);
+                    if (uploadId != null && Files.getLastModifiedTime(file).toMillis() < cutoffMillis
+                            && !uploadSessionRepository.existsById(uploadId)) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Could not clean up partial uploads in " + root + ": " + e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            System.out.println("Deleted " + deleted + " abandoned uploads");
+        }
+    }
+
+    /**
+     * Deletes a session and its partial file.
+     *
+     * @param inactiveSince Only delete if there was no activity since then (null: unconditionally)
+     * @return false if the session no longer exists or became active again
+     */
+    private boolean discard(UUID uploadId, LocalDateTime inactiveSince) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Boolean deleted = transactionTemplate.execute(status -> {
+            Optional<UploadSession> session = uploadSessionRepository.findByIdForUpdate(uploadId);
+            if (session.isEmpty() || (inactiveSince != null && !session.get().getLastActivityDate().isBefore(inactiveSince))) {
+                return false;
+            }
+            uploadSessionRepository.delete(session.get());
+            return true;
+        });
+        if (Boolean.TRUE.equals(deleted)) {
+            Files.deleteIfExists(partialFile(uploadId));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds [start, end) to the received ranges of a session, under the session's row lock.
+     */
+    private UploadSessionResponseDto recordRange(UUID uploadId, long start, long end) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> {
+            UploadSession session = uploadSessionRepository.findByIdForUpdate(uploadId)
+                    .orElseThrow(() -> new NoSuchElementException("Upload not found"));
+            if (end > start) {
+                List<long[]> ranges = parseRanges(session.getReceivedRanges());
+                ranges.add(new long[]{start, end});
+                ranges = mergeRanges(ranges);
+                if (ranges.size() > MAX_RANGES) {
+                    throw new IllegalArgumentException("Too many separate ranges; send the missing chunks first");
+                }
+                session.setReceivedRanges(formatRanges(ranges));
+            }
+            session.setLastActivityDate(LocalDateTime.now());
+            return mapToResponseDto(session);
+        });
+    }
+
+    private FileChannel openPartialFile(UUID uploadId) throws IOException {
+        try {
+            return FileChannel.open(partialFile(uploadId), StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            throw elsewhere(uploadId);
+        }
+    }
+
+    private static UploadSessionElsewhereException elsewhere(UUID uploadId) {
+        return new UploadSessionElsewhereException("Upload session " + uploadId + " belongs to another node: " +
+                "its partial file is not on this one (shared directory or sticky sessions required)");
+    }
+
+    private UploadSession findOwnSession(UUID uploadId, UUID userId) {
+        return uploadSessionRepository.findById(uploadId)
+                .filter(session -> session.getUser().getUserId().equals(userId))
+                .orElseThrow(() -> new NoSuchElementException("Upload not found"));
+    }
+
+    private Path partialFile(UUID uploadId) {
+        return Paths.get(directory).toAbsolutePath().normalize().resolve(uploadId + PARTIAL_FILE_SUFFIX);
+    }
+
+    private static UUID uploadIdOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(PARTIAL_FILE_SUFFIX)) {
+            return null;
+        }
+        try {
+            return UUID.fromString(name.substring(0, name.length() - PARTIAL_FILE_SUFFIX.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static List<long[]> parseRanges(String value) {
+        List<long[]> ranges = new ArrayList<>();
+        if (value == null || value.isEmpty()) {
+            return ranges;
+        }
+        for (String range : value.split(",")) {
+            int dash = range.indexOf('-');
+            ranges.add(new long[]{Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1))});
+        }
+        return ranges;
+    }
+
+    /**
+     * Sorts ranges and joins the ones that overlap or touch.
+     */
+    private static List<long[]> mergeRanges(List<long[]> ranges) {
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : ranges) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1]) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new long[]{range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+
+    private static String formatRanges(List<long[]> ranges) {
+        StringJoiner joiner = new StringJoiner(",");
+        for (long[] range : ranges) {
+            joiner.add(range[0] + "-" + range[1]);
+        }
+        return joiner.toString();
+    }
+
+    private static long nextOffset(List<long[]> ranges) {
+        return !ranges.isEmpty() && ranges.get(0)[0] == 0 ? ranges.get(0)[1] : 0;
+    }
+
+    private static long receivedBytes(List<long[]> ranges) {
+        long received = 0;
+        for (long[] range : ranges) {
+            received += range[1] - range[0];
+        }
+        return received;
+    }
+
+    private UploadSessionResponseDto mapToResponseDto(UploadSession session) {
+        List<long[]> ranges = parseRanges(session.getReceivedRanges());
+        List<String> receivedRanges = new ArrayList<>();
+        for (long[] range : ranges) {
+            // Inclusive end, like HTTP byte ranges
+            receivedRanges.add(range[0] + "-" + (range[1] - 1));
+        }
+        long receivedBytes = receivedBytes(ranges);
+        return new UploadSessionResponseDto(
+                session.getUploadId(),
+                session.getDocumentType(),
+                session.getTotalSize(),
+                receivedBytes,
+                receivedRanges,
+                nextOffset(ranges),
+                receivedBytes == session.getTotalSize(),
+                session.getLastActivityDate().plusHours(sessionTtlHours)
+        );
+    }
+}
@@ -0,0 +1,343 @@
+package org.example.supply_gate_26514.service;
+
+import jakarta.annotation.PostConstruct;
+import org.example.supply_gate_26514.util.AwsSignatureV4;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stores uploads in an S3-compatible bucket (AWS S3, MinIO, Ceph RGW, Cloudflare R2), so every
+ * application node sees the same files. Talks the S3 REST API directly over the JDK HttpClient,
+ * with requests signed by AwsSignatureV4:
+ * - objects up to multipart-threshold-bytes are sent with one PUT, larger ones as a multipart
+ *   upload of part-size-bytes parts (aborted on failure, so no orphaned parts are billed)
+ * - reads use ranged GETs, so byte-range requests to the application fetch only that range
+ * - presigned GET URLs let ImageController redirect clients to the bucket instead of proxying
+ * - listings page through ListObjectsV2 (1000 keys per request)
+ *
+ * For a local MinIO: endpoint http://localhost:9000, path-style true, region us-east-1.
+ * The bucket must exist; it is not created here.
+ */
+@Service
+@ConditionalOnProperty(name = "app.storage.backend", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    // S3 does not accept presigned URLs valid for longer than 7 days
+    private static final Duration MAX_PRESIGN_VALIDITY = Duration.ofDays(7);
+
+    // S3 rejects multipart parts below 5 MB (except the last one)
+    private static final long MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private static final Pattern UPLOAD_ID = Pattern.compile("<UploadId>([^<]+)</UploadId>");
+    private static final Pattern LISTED_OBJECT = Pattern.compile("<Contents>(.*?)</Contents>", Pattern.DOTALL);
+    private static final Pattern LISTED_KEY = Pattern.compile("<Key>([^<]*)</Key>");
+    private static final Pattern LISTED_SIZE = Pattern.compile("<Size>(\\d+)</Size>");
+    private static final Pattern LISTED_LAST_MODIFIED = Pattern.compile("<LastModified>([^<]+)</LastModified>");
+    private static final Pattern NEXT_CONTINUATION_TOKEN = Pattern.compile("<NextContinuationToken>([^<]+)</NextContinuationToken>");
+
+    @Value("${app.storage.s3.endpoint:http://localhost:9000}")
+    private String endpoint;
+
+    @Value("${app.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.storage.s3.bucket:}")
+    private String bucket;
+
+    @Value("${app.storage.s3.access-key:}")
+    private String accessKey;
+
+    @Value("${app.storage.s3.secret-key:}")
+    private String secretKey;
+
+    @Value("${app.storage.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Value("${app.storage.s3.multipart-threshold-bytes:8388608}")
+    private long multipartThreshold;
+
+    @Value("${app.storage.s3.part-size-bytes:8388608}")
+    private long partSize;
+
+    @Value("${app.storage.s3.request-timeout-seconds:60}")
+    private long requestTimeoutSeconds;
+
+    private HttpClient httpClient;
+
+    private AwsSignatureV4 signer;
+
+    @PostConstruct
+    public void init() {
+        if (bucket.isBlank()) {
+            throw new IllegalStateException("app.storage.s3.bucket must be set when app.storage.backend is s3");
+        }
+        endpoint = endpoint.replaceAll("/+$", "");
+        partSize = Math.max(partSize, MIN_PART_SIZE);
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        signer = new AwsSignatureV4(accessKey, secretKey, region, "s3");
+        System.out.println("Storing uploads in S3 bucket " + bucket + " at " + endpoint);
+    }
+
+    @Override
+    public Optional<ObjectInfo> stat(String key) throws IOException {
+        HttpResponse<Void> response = send("HEAD", objectUri(key, null), HttpRequest.BodyPublishers.noBody(),
+                Map.of(), AwsSignatureV4.EMPTY_PAYLOAD_SHA256, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return Optional.empty();
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("S3 HEAD " + key + " failed with status " + response.statusCode());
+        }
+        long size = response.headers().firstValueAsLong("Content-Length").orElse(0);
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        String eTag = response.headers().firstValue("ETag").map(value -> value.replace("\"", "")).orElse(null);
+        return Optional.of(new ObjectInfo(size, lastModified, eTag));
+    }
+
+    @Override
+    public void put(String key, Path source, String contentType) throws IOException {
+        long size = Files.size(source);
+        if (size > multipartThreshold) {
+            putMultipart(key, source, size, contentType);
+            return;
+        }
+        HttpResponse<String> response = send("PUT", objectUri(key, null), HttpRequest.BodyPublishers.ofFile(source),
+                Map.of("Content-Type", contentType), AwsSignatureV4.UNSIGNED_PAYLOAD, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw failure("PUT", key, response);
+        }
+    }
+
+    /**
+     * Uploads a large file in parts, one part in memory at a time.
+     */
+    private void putMultipart(String key, Path source, long size, String contentType) throws IOException {
+        HttpResponse<String> created = send("POST", objectUri(key, "uploads"), HttpRequest.BodyPublishers.noBody(),
+                Map.of("Content-Type", contentType), AwsSignatureV4.EMPTY_PAYLOAD_SHA256, HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = UPLOAD_ID.matcher(created.body());
+        if (created.statusCode() != 200 || !matcher.find()) {
+            throw failure("CreateMultipartUpload", key, created);
+        }
+        String uploadId = AwsSignatureV4.encode(matcher.group(1), true);
+
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            StringBuilder completion = new StringBuilder("<CompleteMultipartUpload>");
+            int partNumber = 1;
+            for (long offset = 0; offset < size; offset += partSize, partNumber++) {
+                ByteBuffer part = ByteBuffer.allocate((int) Math.min(partSize, size - offset));
+                while (part.hasRemaining() && channel.read(part, offset + part.position()) >= 0) {
+                    // Read the whole part
+                }
+                HttpResponse<String> uploaded = send("PUT", objectUri(key, "partNumber=" + partNumber + "&uploadId=" + uploadId),
+                        HttpRequest.BodyPublishers.ofByteArray(part.array(), 0, part.position()),
+                        Map.of(), AwsSignatureV4.UNSIGNED_PAYLOAD, HttpResponse.BodyHandlers.ofString());
+                Optional<String> eTag = uploaded.headers().firstValue("ETag");
+                if (uploaded.statusCode() != 200 || eTag.isEmpty()) {
+                    throw failure("UploadPart " + partNumber, key, uploaded);
+                }
+                completion.append("<Part><PartNumber>").append(partNumber).append("</PartNumber><ETag>")
+                        .append(eTag.get().replace("&", "&amp;").replace("\"", "&quot;")).append("</ETag></Part>");
+            }
+            completion.append("</CompleteMultipartUpload>");
+
+            byte[] body = completion.toString().getBytes(StandardCharsets.UTF_8);
+            HttpResponse<String> completed = send("POST", objectUri(key, "uploadId=" + uploadId),
+                    HttpRequest.BodyPublishers.ofByteArray(body), Map.of("Content-Type", "application/xml"),
+                    AwsSignatureV4.sha256Hex(body), HttpResponse.BodyHandlers.ofString());
+            // Completion can fail after the 200 status line has been sent: the error is then in the body
+            if (completed.statusCode() != 200 || completed.body().contains("<Error>")) {
+                throw failure("CompleteMultipartUpload", key, completed);
+            }
+        } catch (IOException | RuntimeException e) {
+            try {
+                send("DELETE", objectUri(key, "uploadId=" + uploadId), HttpRequest.BodyPublishers.noBody(),
+                        Map.of(), AwsSignatureV4.EMPTY_PAYLOAD_SHA256, HttpResponse.BodyHandlers.discarding());
+            } catch (IOException abortFailure) {
+                // A bucket lifecycle rule for incomplete multipart uploads cleans up what is left
+                System.err.println("Could not abort multipart upload of " + key + ": " + abortFailure.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream open(String key, long offset, long length) throws IOException {
+        if (length == 0) {
+            return InputStream.nullInputStream();
+        }
+        Map<String, String> headers = offset > 0 || length > 0
+                ? Map.of("Range", "bytes=" + offset + "-" + (length > 0 ? String.valueOf(offset + length - 1) : ""))
+                : Map.of();
+        HttpResponse<InputStream> response = send("GET", objectUri(key, null), HttpRequest.BodyPublishers.noBody(),
+                headers, AwsSignatureV4.EMPTY_PAYLOAD_SHA256, HttpResponse.BodyHandlers.ofInputStream());
+        if (response.statusCode() == 200 || response.statusCode() == 206) {
+            return response.body();
+        }
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                throw new NoSuchFileException(key);
+            }
+            throw new IOException("S3 GET " + key + " failed with status " + response.statusCode() + ": "
+                    + new String(body.readNBytes(512), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Override
+    public Stream<ListedObject> list(String prefix) {
+        Iterator<ListedObject> objects = new Iterator<>() {
+            private final Deque<ListedObject> page = new ArrayDeque<>();
+            private String continuationToken;
+            private boolean lastPage;
+
+            @Override
+            public boolean hasNext() {
+                while (page.isEmpty() && !lastPage) {
+                    fetchPage();
+                }
+                return !page.isEmpty();
+            }
+
+            @Override
+            public ListedObject next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.poll();
+            }
+
+            private void fetchPage() {
+                String query = "list-type=2&prefix=" + AwsSignatureV4.encode(prefix, true)
+                        + (continuationToken != null ? "&continuation-token=" + AwsSignatureV4.encode(continuationToken, true) : "");
+                try {
+                    HttpResponse<String> response = send("GET", URI.create(bucketUrl() + "?" + query),
+                            HttpRequest.BodyPublishers.noBody(), Map.of(), AwsSignatureV4.EMPTY_PAYLOAD_SHA256,
+                            HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() != 200) {
+                        throw failure("ListObjectsV2", prefix, response);
+                    }
+                    Matcher object = LISTED_OBJECT.matcher(response.body());
+                    while (object.find()) {
+                        String contents = object.group(1);
+                        Matcher key = LISTED_KEY.matcher(contents);
+                        Matcher size = LISTED_SIZE.matcher(contents);
+                        Matcher lastModified = LISTED_LAST_MODIFIED.matcher(contents);
+                        if (key.find() && size.find() && lastModified.find()) {
+                            page.add(new ListedObject(unescapeXml(key.group(1)), Long.parseLong(size.group(1)),
+                                    Instant.parse(lastModified.group(1)).toEpochMilli()));
+                        }
+                    }
+                    Matcher token = NEXT_CONTINUATION_TOKEN.matcher(response.body());
+                    lastPage = !response.body().contains("<IsTruncated>true</IsTruncated>") || !token.find();
+                    continuationToken = lastPage ? null : unescapeXml(token.group(1));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(objects, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        HttpResponse<String> response = send("DELETE", objectUri(key, null), HttpRequest.BodyPublishers.noBody(),
+                Map.of(), AwsSignatureV4.EMPTY_PAYLOAD_SHA256, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 204 && response.statusCode() != 200 && response.statusCode() != 404) {
+            throw failure("DELETE", key, response);
+        }
+    }
+
+    @Override
+    public Path localPath(String key) {
+        return null;
+    }
+
+    @Override
+    public URI presignedGetUrl(String key, Duration validity) {
+        Duration bounded = validity.compareTo(MAX_PRESIGN_VALIDITY) > 0 ? MAX_PRESIGN_VALIDITY : validity;
+        return signer.presign("GET", objectUri(key, null), bounded, Instant.now());
+    }
+
+    /**
+     * URI of an object: {endpoint}/{bucket}/{key} (path style, MinIO) or {bucket}.{endpoint host}/{key}.
+     *
+     * @param query Already encoded query string, or null
+     */
+    private URI objectUri(String key, String query) {
+        String base = bucketUrl() + "/" + AwsSignatureV4.encode(key, false);
+        return URI.create(query != null ? base + "?" + query : base);
+    }
+
+    private String bucketUrl() {
+        if (pathStyle) {
+            return endpoint + "/" + bucket;
+        }
+        URI endpointUri = URI.create(endpoint);
+        return endpointUri.getScheme() + "://" + bucket + "." + endpointUri.getRawAuthority();
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private <T> HttpResponse<T> send(String method, URI uri, HttpRequest.BodyPublisher body, Map<String, String> headers,
+                                     String payloadHash, HttpResponse.BodyHandler<T> handler) throws IOException {
+        Instant now = Instant.now();
+        String amzDate = AwsSignatureV4.amzDate(now);
+        Map<String, String> signedHeaders = new HashMap<>();
+        signedHeaders.put("host", AwsSignatureV4.host(uri));
+        signedHeaders.put("x-amz-content-sha256", payloadHash);
+        signedHeaders.put("x-amz-date", amzDate);
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(requestTimeoutSeconds))
+                .method(method, body)
+                .header("x-amz-content-sha256", payloadHash)
+                .header("x-amz-date", amzDate)
+                .header("Authorization", signer.authorization(method, uri, signedHeaders, payloadHash, now));
+        headers.forEach(request::header);
+        try {
+            return httpClient.send(request.build(), handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("S3 " + method + " interrupted");
+        }
+    }
+
+    private static IOException failure(String operation, String key, HttpResponse<String> response) {
+        String body = response.body();
+        return new IOException("S3 " + operation + " " + key + " failed with status " + response.statusCode() + ": "
+                + (body.length() > 512 ? body.substring(0, 512) : body));
+    }
+}
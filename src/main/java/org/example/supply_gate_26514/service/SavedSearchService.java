@@ -0,0 +1,360 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.SavedSearchDto;
+import org.example.supply_gate_26514.dto.SavedSearchResponseDto;
+import org.example.supply_gate_26514.model.SavedSearch;
+import org.example.supply_gate_26514.model.User;
+import org.example.supply_gate_26514.repository.ProductRepository;
+import org.example.supply_gate_26514.repository.SavedSearchRepository;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Saved product searches and the percolator that matches new products against them.
+ *
+ * Instead of running every saved search against every new product, saved searches are
+ * kept in an in-memory inverted index (term -> saved search IDs). A product is matched
+ * by looking up only its own terms, so the cost grows with the size of the product text,
+ * not with the number of saved searches. A saved search matches when all of its terms
+ * appear in the product (AND semantics, same as typing the words in the search box).
+ *
+ * The index is rebuilt from the database on startup. Searches saved or deleted on this node are
+ * applied to it after commit; every node rebuilds it when the saved_searches table version moves
+ * (see TableVersionService), so searches saved on other nodes are matched within
+ * app.saved-search.refresh-ms.
+ *
+ * Only products of verified suppliers are percolated, after their transaction commits: the others
+ * are hidden from the public catalog and must not be announced either. A supplier's products are
+ * percolated when their verification is approved.
+ * Matches are delivered as notifications in batches.
+ */
+@Service
+public class SavedSearchService {
+
+    private static final int MAX_SAVED_SEARCHES_PER_USER = 20;
+    private static final int MAX_TERMS_PER_QUERY = 10;
+    private static final int NOTIFICATION_BATCH_SIZE = 100;
+    private static final String NOTIFICATION_TYPE = "saved_search_match";
+    private static final Pattern TERM_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    private SavedSearchRepository savedSearchRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private SecurityUtils securityUtils;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    /**
+     * searchIdsByTerm: inverted index, term -> IDs of saved searches containing that term.
+     * indexedSearches: saved search ID -> what is needed to evaluate and notify a match.
+     * A rebuild replaces the whole index at once, so percolation never sees it half loaded.
+     */
+    private record SearchIndex(Map<String, Set<UUID>> searchIdsByTerm, Map<UUID, IndexedSearch> indexedSearches) {
+
+        private static SearchIndex empty() {
+            return new SearchIndex(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    private volatile SearchIndex searchIndex = SearchIndex.empty();
+
+    // saved_searches table version the index was loaded at
+    private volatile String indexVersion;
+
+    private record IndexedSearch(UUID savedSearchId, UUID userId, String query, Set<String> terms) {
+    }
+
+    /**
+     * Terms of a product to percolate.
+     * previousTerms holds the terms before an update (empty for new products) so that
+     * searches which already matched the old version are not notified again.
+     */
+    public record ProductTerms(UUID productId, String productName, Set<String> terms, Set<String> previousTerms) {
+
+        public static ProductTerms of(UUID productId, String productName, String... texts) {
+            return new ProductTerms(productId, productName, tokenize(texts), Set.of());
+        }
+
+        public ProductTerms withPreviousTerms(Set<String> previousTerms) {
+            return new ProductTerms(productId, productName, terms, previousTerms);
+        }
+    }
+
+    /**
+     * Splits text into lower-case search terms (letters and digits, at least 2 characters).
+     */
+    public static Set<String> tokenize(String... texts) {
+        Set<String> terms = new HashSet<>();
+        for (String text : texts) {
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            for (String term : TERM_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+                if (term.length() >= 2) {
+                    terms.add(term);
+                }
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Builds the in-memory index from the database once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        rebuildIndex(tableVersionService.eTag(TableVersionService.SAVED_SEARCHES));
+    }
+
+    /**
+     * Rebuilds the index when searches were saved or deleted since it was loaded, on any node.
+     */
+    @Scheduled(fixedDelayString = "${app.saved-search.refresh-ms:2000}")
+    public void refreshIndex() {
+        if (indexVersion == null) {
+            return; // Not loaded yet
+        }
+        String version = tableVersionService.eTag(TableVersionService.SAVED_SEARCHES);
+        if (!version.equals(indexVersion)) {
+            rebuildIndex(version);
+        }
+    }
+
+    /**
+     * @param version Table version read before the searches: a write committed meanwhile moves
+     *                it again, so the next refresh picks that write up
+     */
+    private synchronized void rebuildIndex(String version) {
+        long startTime = System.currentTimeMillis();
+        SearchIndex rebuilt = SearchIndex.empty();
+        for (Object[] row : savedSearchRepository.findAllForIndex()) {
+            index(rebuilt, (UUID) row[0], (UUID) row[1], (String) row[2]);
+        }
+        searchIndex = rebuilt;
+        indexVersion = version;
+        System.out.println(String.format("Saved search index loaded: %d searches, %d terms in %d ms",
+                rebuilt.indexedSearches().size(), rebuilt.searchIdsByTerm().size(), System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * Gets the saved searches of the current authenticated user.
+     */
+    @Transactional(readOnly = true)
+    public List<SavedSearchResponseDto> getMySavedSearches() {
+        UUID userId = securityUtils.getCurrentUserId();
+        return savedSearchRepository.findByUser_UserIdOrderByCreationDateDesc(userId)
+                .stream()
+                .map(this::mapToResponseDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Saves a search for the current authenticated user and adds it to the index.
+     *
+     * @throws IllegalArgumentException if the query has no searchable terms or too many terms
+     * @throws IllegalStateException if the user already has the maximum number of saved searches
+     */
+    @Transactional
+    public SavedSearchResponseDto saveSearch(SavedSearchDto savedSearchDto) {
+        User user = securityUtils.getCurrentUser();
+        String query = savedSearchDto.query() != null ? savedSearchDto.query().trim() : "";
+
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain at least one word of 2 or more characters");
+        }
+        if (terms.size() > MAX_TERMS_PER_QUERY) {
+            throw new IllegalArgumentException("Search query can contain at most " + MAX_TERMS_PER_QUERY + " words");
+        }
+        if (savedSearchRepository.countByUser_UserId(user.getUserId()) >= MAX_SAVED_SEARCHES_PER_USER) {
+            throw new IllegalStateException("You can save at most " + MAX_SAVED_SEARCHES_PER_USER + " searches");
+        }
+
+        SavedSearch savedSearch = new SavedSearch();
+        savedSearch.setUser(user);
+        savedSearch.setQuery(query);
+        SavedSearch saved = savedSearchRepository.save(savedSearch);
+
+        // Only once committed: a rollback must not leave the search in the index
+        UUID savedSearchId = saved.getSavedSearchId();
+        UUID userId = user.getUserId();
+        afterCommit(() -> index(searchIndex, savedSearchId, userId, query));
+        return mapToResponseDto(saved);
+    }
+
+    /**
+     * Deletes a saved search of the current authenticated user and removes it from the index.
+     *
+     * @throws IllegalArgumentException if the saved search does not exist or belongs to another user
+     */
+    @Transactional
+    public void deleteSavedSearch(UUID savedSearchId) {
+        UUID userId = securityUtils.getCurrentUserId();
+        SavedSearch savedSearch = savedSearchRepository.findById(savedSearchId)
+                .orElseThrow(() -> new IllegalArgumentException("Saved search not found with ID: " + savedSearchId));
+        if (!savedSearch.getUser().getUserId().equals(userId)) {
+            throw new IllegalArgumentException("Saved search not found with ID: " + savedSearchId);
+        }
+        savedSearchRepository.delete(savedSearch);
+        afterCommit(() -> unindex(searchIndex, savedSearchId));
+    }
+
+    /**
+     * Percolates the products of a supplier whose verification was just approved: they appear in
+     * the public catalog now. Call after the approval is committed.
+     */
+    @Async
+    public void percolateSupplier(UUID supplierId) {
+        List<ProductTerms> products = new ArrayList<>();
+        for (Object[] row : productRepository.findTermsBySupplier(supplierId)) {
+            products.add(ProductTerms.of((UUID) row[0], (String) row[1], (String) row[1], (String) row[2]));
+        }
+        percolate(products);
+    }
+
+    /**
+     * Matches products against all saved searches and notifies the owners of matching searches.
+     * Runs in the background so product creation is not slowed down by notification delivery.
+     * Callers only pass products of verified suppliers, once their writes are committed.
+     *
+     * @param products Products to percolate (new or updated)
+     */
+    @Async
+    public void percolate(List<ProductTerms> products) {
+        try {
+            SearchIndex index = searchIndex;
+            // recipient -> notification messages, flushed in batches
+            Map<UUID, List<String>> pending = new LinkedHashMap<>();
+            int pendingCount = 0;
+
+            for (ProductTerms product : products) {
+                Set<UUID> alreadyMatched = product.previousTerms().isEmpty()
+                        ? Set.of()
+                        : match(index, product.previousTerms());
+
+                // One notification per user and product, even if several of their searches match
+                Map<UUID, IndexedSearch> matchesByUser = new LinkedHashMap<>();
+                for (UUID savedSearchId : match(index, product.terms())) {
+                    if (alreadyMatched.contains(savedSearchId)) {
+                        continue;
+                    }
+                    IndexedSearch search = index.indexedSearches().get(savedSearchId);
+                    if (search != null) {
+                        matchesByUser.putIfAbsent(search.userId(), search);
+                    }
+                }
+
+                for (IndexedSearch search : matchesByUser.values()) {
+                    pending.computeIfAbsent(search.userId(), id -> new ArrayList<>())
+                            .add(String.format("New product matching your saved search \"%s\": %s",
+                                    search.query(), product.productName()));
+                    pendingCount++;
+                    if (pendingCount >= NOTIFICATION_BATCH_SIZE) {
+                        notificationService.createNotifications(pending, NOTIFICATION_TYPE);
+                        pending = new LinkedHashMap<>();
+                        pendingCount = 0;
+                    }
+                }
+            }
+
+            if (pendingCount > 0) {
+                notificationService.createNotifications(pending, NOTIFICATION_TYPE);
+            }
+        } catch (Exception e) {
+            // Notification delivery must never affect the product write that triggered it
+            System.err.println("Saved search percolation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns IDs of saved searches whose terms are all contained in the given terms.
+     * Only the posting lists of the given terms are visited.
+     */
+    private static Set<UUID> match(SearchIndex index, Set<String> terms) {
+        Map<UUID, Integer> hitCounts = new HashMap<>();
+        for (String term : terms) {
+            Set<UUID> savedSearchIds = index.searchIdsByTerm().get(term);
+            if (savedSearchIds != null) {
+                for (UUID savedSearchId : savedSearchIds) {
+                    hitCounts.merge(savedSearchId, 1, Integer::sum);
+                }
+            }
+        }
+
+        Set<UUID> matched = new HashSet<>();
+        hitCounts.forEach((savedSearchId, hits) -> {
+            IndexedSearch search = index.indexedSearches().get(savedSearchId);
+            if (search != null && hits == search.terms().size()) {
+                matched.add(savedSearchId);
+            }
+        });
+        return matched;
+    }
+
+    private static void index(SearchIndex index, UUID savedSearchId, UUID userId, String query) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return;
+        }
+        index.indexedSearches().put(savedSearchId, new IndexedSearch(savedSearchId, userId, query, terms));
+        for (String term : terms) {
+            // compute() keeps add/remove on the same posting list atomic with unindex()
+            index.searchIdsByTerm().compute(term, (t, ids) -> {
+                Set<UUID> postings = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                postings.add(savedSearchId);
+                return postings;
+            });
+        }
+    }
+
+    private static void unindex(SearchIndex index, UUID savedSearchId) {
+        IndexedSearch search = index.indexedSearches().remove(savedSearchId);
+        if (search == null) {
+            return;
+        }
+        for (String term : search.terms()) {
+            index.searchIdsByTerm().computeIfPresent(term, (t, ids) -> {
+                ids.remove(savedSearchId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private SavedSearchResponseDto mapToResponseDto(SavedSearch savedSearch) {
+        return new SavedSearchResponseDto(
+                savedSearch.getSavedSearchId(),
+                savedSearch.getQuery(),
+                savedSearch.getCreationDate()
+        );
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.supply_gate_26514.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Where the bytes of uploaded files live, selected with app.storage.backend:
+ * - filesystem (default): the local file.upload-dir (FileSystemStorageBackend), for a single node
+ * - s3: an S3-compatible bucket (S3StorageBackend), shared by all nodes behind a load balancer
+ *
+ * Objects are addressed by key, the relative path stored in the database
+ * ("products/3f/a1/3fa1...c2.jpg"). Keys reach a backend through FileStorageService.normalizeKey,
+ * so they never contain "..", a leading slash or backslashes.
+ *
+ * Reference counting, validation and naming stay in FileStorageService; a backend only moves bytes.
+ */
+public interface StorageBackend {
+
+    /**
+     * Size and version of a stored object.
+     *
+     * @param lastModified Modification time (millis)
+     * @param eTag Backend's entity tag without quotes, or null if it has none (the filesystem)
+     */
+    record ObjectInfo(long size, long lastModified, String eTag) {
+    }
+
+    /**
+     * An object found by list.
+     *
+     * @param lastModified Modification time (millis)
+     */
+    record ListedObject(String key, long size, long lastModified) {
+    }
+
+    /**
+     * @return The object's metadata, or empty if the key does not exist
+     */
+    Optional<ObjectInfo> stat(String key) throws IOException;
+
+    default boolean exists(String key) throws IOException {
+        return stat(key).isPresent();
+    }
+
+    /**
+     * Stores the content of a local file under key, replacing any previous object. The source
+     * file may be consumed (moved into place); the caller deletes it if it is still there.
+     * Readers never see a partly written object.
+     */
+    void put(String key, Path source, String contentType) throws IOException;
+
+    /**
+     * Opens the content of an object, or a range of it.
+     *
+     * @param offset First byte
+     * @param length Number of bytes, or -1 for everything from offset
+     * @throws java.nio.file.NoSuchFileException if the key does not exist
+     */
+    InputStream open(String key, long offset, long length) throws IOException;
+
+    /**
+     * Lists the objects whose key starts with prefix, fetched lazily, so the listing is never held
+     * in memory as a whole. The stream must be closed; listing failures surface as UncheckedIOException.
+     */
+    Stream<ListedObject> list(String prefix) throws IOException;
+
+    /**
+     * Deletes an object; deleting a missing key is not an error.
+     */
+    void delete(String key) throws IOException;
+
+    /**
+     * The object as a file on this node, so it can be served with sendfile and cached by path.
+     *
+     * @return The local file (which may not exist), or null if the backend is not local
+     */
+    Path localPath(String key);
+
+    /**
+     * A URL clients can download the object from directly, without credentials, until it expires.
+     *
+     * @return The presigned URL, or null if the backend cannot hand out URLs (the application serves the bytes)
+     */
+    URI presignedGetUrl(String key, Duration validity);
+}
@@ -0,0 +1,228 @@
+package org.example.supply_gate_26514.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-table modification counters used to build version-stamped ETags for
+ * read-mostly endpoints (public catalog, categories, locations, companies).
+ *
+ * Every committed write to a tracked table bumps its counter, so an ETag built from the
+ * counters of the tables behind a response changes exactly when that response can change.
+ * Controllers compare it with If-None-Match and answer 304 without running the listing query.
+ *
+ * Writes through JPA are tracked automatically by TableVersionListener; bulk JPQL or JDBC
+ * writes must call {@link #bump(String)} themselves. Counters are bumped after commit, so an
+ * ETag is never handed out for data that is not visible yet.
+ *
+ * The counters are rows of table_version, so every node builds the same ETag and sees the
+ * writes of the others. Each node reads them at most every app.table-versions.refresh-ms
+ * (its own writes are visible at once): a node may answer 304 for that long after another
+ * node changed the data, never longer.
+ *
+ * Each node also counts the writes it sees from the others ({@link #otherNodeWrites}), for
+ * caches that invalidate their entries precisely on their own writes and only need to be
+ * dropped as a whole when another node wrote.
+ */
+@Service
+public class TableVersionService {
+
+    public static final String PRODUCTS = "products";
+    public static final String PRODUCT_IMAGES = "product_images";
+    public static final String CATEGORIES = "categories";
+    public static final String STORES = "stores";
+    // Only the user columns shown publicly (names, email, company), see User.isPublicProfileChanged
+    public static final String USERS = "users";
+    public static final String LOCATIONS = "administrative_structure";
+    public static final String SAVED_SEARCHES = "saved_searches";
+    // Not a table: every change shown in product detail views except stock, see ProductDetailCache
+    public static final String PRODUCT_DETAILS = "product_details";
+
+    // Tables touched in the current transaction, bumped once after commit
+    private static final Object PENDING_TABLES_KEY = TableVersionService.class.getName() + ".pendingTables";
+
+    private static final String BUMP_SQL =
+            "INSERT INTO table_version (table_name, version, last_modified) VALUES (?, 1, ?) " +
+            "ON CONFLICT (table_name) DO UPDATE SET version = table_version.version + 1, " +
+            "last_modified = GREATEST(table_version.last_modified, EXCLUDED.last_modified) " +
+            "RETURNING version, last_modified";
+
+    @Value("${app.table-versions.refresh-ms:500}")
+    private long refreshMs;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Version(long counter, long lastModified) {
+    }
+
+    private static final Version NEVER_WRITTEN = new Version(0, 0);
+
+    // Last read (or written) counters; replaced as a whole, never modified
+    private volatile Map<String, Version> versions = Map.of();
+    private volatile long versionsReadAt;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    // Per table, how often the counter was seen moving by more than our own bumps
+    private final Map<String, Long> otherNodeWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Records a write to a table. Inside a transaction the counter is bumped after commit
+     * (once per table, however many rows were written); otherwise it is bumped immediately.
+     */
+    public void bump(String table) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bumpNow(Set.of(table));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        Set<String> pendingTables = (Set<String>) TransactionSynchronizationManager.getResource(PENDING_TABLES_KEY);
+        if (pendingTables == null) {
+            // Sorted: transactions bumping several tables lock their rows in the same order
+            Set<String> tables = new TreeSet<>();
+            pendingTables = tables;
+            TransactionSynchronizationManager.bindResource(PENDING_TABLES_KEY, tables);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpNow(tables);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_TABLES_KEY);
+                }
+            });
+        }
+        pendingTables.add(table);
+    }
+
+    /**
+     * Builds a strong ETag from the counters of the given tables.
+     * Callers should append request-specific parts (page, sort, filters) only if the same
+     * URL can return different representations; the URL itself is already part of the cache key.
+     */
+    public String eTag(String... tables) {
+        Map<String, Version> current = currentVersions();
+        StringBuilder eTag = new StringBuilder("\"v");
+        for (String table : tables) {
+            eTag.append('-').append(Long.toString(current.getOrDefault(table, NEVER_WRITTEN).counter(), 36));
+        }
+        return eTag.append('"').toString();
+    }
+
+    /**
+     * Returns the most recent modification time (epoch millis) of the given tables.
+     */
+    public long lastModified(String... tables) {
+        Map<String, Version> current = currentVersions();
+        long lastModified = 0;
+        for (String table : tables) {
+            lastModified = Math.max(lastModified, current.getOrDefault(table, NEVER_WRITTEN).lastModified());
+        }
+        return lastModified;
+    }
+
+    /**
+     * Returns how often another node was seen writing a table (checked at most every
+     * app.table-versions.refresh-ms). May also move for a write of this node, e.g. two of our own
+     * bumps merged out of order, but never misses a write of another node.
+     */
+    public long otherNodeWrites(String table) {
+        currentVersions();
+        return otherNodeWrites.getOrDefault(table, 0L);
+    }
+
+    /**
+     * Runs in a transaction of its own: after commit the original one can no longer be written to.
+     * A failed bump is logged; the affected ETags then stay valid until the next write.
+     */
+    private void bumpNow(Set<String> tables) {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            Map<String, Version> bumped = transactionTemplate.execute(status -> {
+                Map<String, Version> written = new HashMap<>();
+                for (String table : tables) {
+                    written.put(table, jdbcTemplate.queryForObject(BUMP_SQL,
+                            (rs, rowNum) -> new Version(rs.getLong(1), rs.getLong(2)), table, now));
+                }
+                return written;
+            });
+            merge(bumped, true);
+        } catch (DataAccessException e) {
+            System.err.println("Could not bump table versions " + tables + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The counters, read again from the database once they are older than refreshMs.
+     * Only one thread reads at a time; the others keep using the previous values meanwhile.
+     */
+    private Map<String, Version> currentVersions() {
+        if (System.currentTimeMillis() - versionsReadAt < refreshMs) {
+            return versions;
+        }
+        if (versionsReadAt == 0) {
+            // Nothing to fall back on yet
+            refreshLock.lock();
+        } else if (!refreshLock.tryLock()) {
+            return versions;
+        }
+        try {
+            if (System.currentTimeMillis() - versionsReadAt >= refreshMs) {
+                Map<String, Version> read = new HashMap<>();
+                jdbcTemplate.query("SELECT table_name, version, last_modified FROM table_version", rs -> {
+                    read.put(rs.getString(1), new Version(rs.getLong(2), rs.getLong(3)));
+                });
+                merge(read, false);
+            }
+        } catch (DataAccessException e) {
+            System.err.println("Could not read table versions (using the previous ones): " + e.getMessage());
+        } finally {
+            // Also after a failure: retried after refreshMs, not on every request
+            versionsReadAt = System.currentTimeMillis();
+            refreshLock.unlock();
+        }
+        return versions;
+    }
+
+    /**
+     * Counters only grow: keeps the higher of the known and the new value of each table, so a
+     * read that started before one of our own bumps does not take it back.
+     *
+     * A read counter above the known one, or our own bump landing more than one above it, means
+     * another node wrote in between.
+     */
+    private synchronized void merge(Map<String, Version> newVersions, boolean ownBump) {
+        Map<String, Version> merged = new HashMap<>(versions);
+        newVersions.forEach((table, version) -> {
+            long known = merged.getOrDefault(table, NEVER_WRITTEN).counter();
+            if (version.counter() > (ownBump ? known + 1 : known)) {
+                otherNodeWrites.merge(table, 1L, Long::sum);
+            }
+            merged.merge(table, version,
+                    (knownVersion, candidate) -> candidate.counter() > knownVersion.counter() ? candidate : knownVersion);
+        });
+        versions = Map.copyOf(merged);
+    }
+}
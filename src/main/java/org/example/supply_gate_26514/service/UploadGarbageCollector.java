@@ -0,0 +1,280 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.UploadSweepReportDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Mark-and-sweep collection of uploaded files nothing references any more: files left behind by
+ * failed requests, deletions whose release failed, files from before reference counting, stale
+ * staging files and variants of deleted originals.
+ *
+ * The storage backend is listed as a stream and checked in batches: per batch, one query collects
+ * which of its paths (in every directory layout, bare or as /api/images URL) appear in
+ * ProductImage.imageUrl or a Verification document column, into an in-memory set the batch is
+ * checked against. Nothing is held beyond one batch, so the job runs in constant memory whatever
+ * the number of files.
+ *
+ * Only files older than the grace period are considered, and a file whose stored_blob row gained a
+ * reference within it is kept: an upload saves its file before the row that points to it.
+ * In dry-run mode the orphans are only reported.
+ */
+@Service
+public class UploadGarbageCollector {
+
+    private static final String URL_PREFIX = "/api/images?path=";
+    private static final String VARIANTS_PREFIX = "variants/";
+    private static final int SAMPLE_SIZE = 100;
+
+    // Every column that holds an upload path
+    private static final String REFERENCED_SQL =
+            "SELECT image_url FROM product_images WHERE image_url = ANY(?) " +
+            "UNION SELECT business_license_url FROM verifications WHERE business_license_url = ANY(?) " +
+            "UNION SELECT tax_certificate_url FROM verifications WHERE tax_certificate_url = ANY(?) " +
+            "UNION SELECT bank_statement_url FROM verifications WHERE bank_statement_url = ANY(?) " +
+            "UNION SELECT identity_proof_url FROM verifications WHERE identity_proof_url = ANY(?)";
+
+    private static final String RECENTLY_REFERENCED_SQL =
+            "SELECT path FROM stored_blob WHERE path = ANY(?) AND COALESCE(last_reference_date, creation_date) > ?";
+
+    @Value("${app.upload-gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.upload-gc.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${app.upload-gc.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${app.upload-gc.batch-size:1000}")
+    private int batchSize;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Counts of a run in progress.
+     */
+    private static final class Sweep {
+        final boolean dryRun;
+        final LocalDateTime referencedBefore;
+        long scanned;
+        long skippedRecent;
+        long referenced;
+        long orphaned;
+        long orphanedBytes;
+        long deleted;
+        long failed;
+        final List<String> orphanSample = new ArrayList<>();
+
+        Sweep(boolean dryRun, LocalDateTime referencedBefore) {
+            this.dryRun = dryRun;
+            this.referencedBefore = referencedBefore;
+        }
+    }
+
+    @Scheduled(cron = "${app.upload-gc.cron:0 0 4 * * *}")
+    public void scheduledSweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweep(dryRun);
+        } catch (IllegalStateException e) {
+            System.err.println("Upload sweep skipped: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a sweep now.
+     *
+     * @param dryRun Only report the orphans, do not delete them
+     * @throws IllegalStateException if a sweep is already running
+     */
+    public UploadSweepReportDto sweep(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("An upload sweep is already running");
+        }
+        try {
+            return run(dryRun);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private UploadSweepReportDto run(boolean dryRun) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long startTime = System.currentTimeMillis();
+        long cutoffMillis = startTime - graceHours * 3_600_000L;
+        Sweep sweep = new Sweep(dryRun, startedAt.minusHours(graceHours));
+
+        boolean complete = true;
+        List<StorageBackend.ListedObject> batch = new ArrayList<>(batchSize);
+        try (Stream<StorageBackend.ListedObject> objects = storageBackend.list("")) {
+            Iterator<StorageBackend.ListedObject> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                StorageBackend.ListedObject object = iterator.next();
+                sweep.scanned++;
+                if (object.lastModified() > cutoffMillis) {
+                    sweep.skippedRecent++;
+                    continue;
+                }
+                batch.add(object);
+                if (batch.size() == batchSize) {
+                    sweepBatch(batch, sweep);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                sweepBatch(batch, sweep);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Upload sweep interrupted (continues on the next run): " + e.getMessage());
+            complete = false;
+        }
+
+        UploadSweepReportDto report = new UploadSweepReportDto(dryRun, startedAt, System.currentTimeMillis() - startTime,
+                sweep.scanned, sweep.skippedRecent, sweep.referenced, sweep.orphaned, sweep.orphanedBytes,
+                sweep.deleted, sweep.failed, sweep.orphanSample, complete);
+        System.out.println(String.format("Upload sweep%s: %d files scanned, %d orphaned (%d bytes), %d deleted, %d failed in %d ms",
+                dryRun ? " (dry run)" : "", report.scanned(), report.orphaned(), report.orphanedBytes(),
+                report.deleted(), report.failed(), report.durationMs()));
+        if (dryRun && !sweep.orphanSample.isEmpty()) {
+            System.out.println("Orphaned uploads (first " + sweep.orphanSample.size() + "): " + sweep.orphanSample);
+        }
+        return report;
+    }
+
+    private void sweepBatch(List<StorageBackend.ListedObject> batch, Sweep sweep) throws IOException {
+        // Mark: every form in which the database may refer to the files of this batch
+        Set<String> candidates = new HashSet<>();
+        for (StorageBackend.ListedObject object : batch) {
+            if (isOriginal(object.key())) {
+                for (String path : pathForms(object.key())) {
+                    candidates.add(path);
+                    candidates.add(URL_PREFIX + path);
+                }
+            }
+        }
+        Set<String> referenced = referencedPaths(candidates, sweep.referencedBefore);
+
+        // Sweep
+        for (StorageBackend.ListedObject object : batch) {
+            String key = object.key();
+            boolean inUse;
+            if (fileName(key).startsWith(".")) {
+                // Staging file of an upload that never finished
+                inUse = false;
+            } else if (key.startsWith(VARIANTS_PREFIX)) {
+                String original = originalOfVariant(key);
+                inUse = original != null && storageBackend.exists(original);
+            } else {
+                inUse = pathForms(key).stream().anyMatch(referenced::contains);
+            }
+            if (inUse) {
+                sweep.referenced++;
+                continue;
+            }
+
+            if (!sweep.dryRun) {
+                try {
+                    if (isOriginal(key) && !fileStorageService.deleteOrphan(key, sweep.referencedBefore)) {
+                        // Referenced again meanwhile
+                        sweep.referenced++;
+                        continue;
+                    }
+                    if (!isOriginal(key)) {
+                        storageBackend.delete(key);
+                    }
+                    sweep.deleted++;
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not delete orphaned upload " + key + ": " + e.getMessage());
+                    sweep.failed++;
+                }
+            }
+            sweep.orphaned++;
+            sweep.orphanedBytes += object.size();
+            if (sweep.orphanSample.size() < SAMPLE_SIZE) {
+                sweep.orphanSample.add(key);
+            }
+        }
+    }
+
+    /**
+     * Paths among the candidates that are referenced, without URL prefix, plus stored files that
+     * gained a reference after referencedBefore (their rows may not be saved yet).
+     */
+    private Set<String> referencedPaths(Set<String> candidates, LocalDateTime referencedBefore) {
+        Set<String> referenced = new HashSet<>();
+        if (candidates.isEmpty()) {
+            return referenced;
+        }
+        Object[] values = candidates.toArray();
+        jdbcTemplate.query(REFERENCED_SQL, ps -> {
+            for (int i = 1; i <= 5; i++) {
+                ps.setArray(i, ps.getConnection().createArrayOf("text", values));
+            }
+        }, rs -> {
+            String url = rs.getString(1);
+            referenced.add(url.startsWith(URL_PREFIX) ? url.substring(URL_PREFIX.length()) : url);
+        });
+        jdbcTemplate.query(RECENTLY_REFERENCED_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("text", values));
+            ps.setTimestamp(2, Timestamp.valueOf(referencedBefore));
+        }, rs -> {
+            referenced.add(rs.getString(1));
+        });
+        return referenced;
+    }
+
+    /**
+     * The path itself and where it was or will be in the other directory layouts (the database may
+     * still use an older one, see UploadLayoutMigrationService).
+     */
+    private static List<String> pathForms(String key) {
+        List<String> forms = new ArrayList<>(FileStorageService.layoutCandidates(key));
+        if (!forms.contains(key)) {
+            forms.add(key);
+        }
+        return forms;
+    }
+
+    private static boolean isOriginal(String key) {
+        return !key.startsWith(VARIANTS_PREFIX) && !fileName(key).startsWith(".");
+    }
+
+    private static String fileName(String key) {
+        return key.substring(key.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * variants/{size}/{original path}.{jpg|png} -> original path, or null if the key has another shape.
+     */
+    private static String originalOfVariant(String key) {
+        int sizeEnd = key.indexOf('/', VARIANTS_PREFIX.length());
+        int extension = key.lastIndexOf('.');
+        if (sizeEnd < 0 || extension <= sizeEnd + 1) {
+            return null;
+        }
+        return key.substring(sizeEnd + 1, extension);
+    }
+}
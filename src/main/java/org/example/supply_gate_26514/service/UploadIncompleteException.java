@@ -0,0 +1,11 @@
+package org.example.supply_gate_26514.service;
+
+/**
+ * Thrown when a resumable upload is completed before all of its bytes have been received.
+ * Controllers map it to 409 Conflict.
+ */
+public class UploadIncompleteException extends RuntimeException {
+    public UploadIncompleteException(String message) {
+        super(message);
+    }
+}
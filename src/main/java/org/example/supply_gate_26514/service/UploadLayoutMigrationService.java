@@ -0,0 +1,215 @@
+package org.example.supply_gate_26514.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Moves uploaded files from the older flat ({subdirectory}/{name}) and one-level
+ * ({subdirectory}/ab/{name}) layouts into the sharded layout ({subdirectory}/ab/cd/{name},
+ * see FileStorageService.shardedPath), while the application keeps serving them.
+ *
+ * Files are migrated in batches. For each batch the references are rewritten first, in one
+ * transaction (stored_blob paths, ProductImage.imageUrl, the Verification document URLs, plus
+ * catalog invalidation of the affected products), and the files are moved after commit, with
+ * their image variants. Until a file has been moved, FileStorageService.locate finds it at its
+ * old place from the new path, and old paths saved elsewhere keep working the same way.
+ *
+ * Every step is idempotent and the job only looks at files not yet in the sharded layout, so an
+ * interrupted migration (restart, failure) simply continues on the next run. Once a run finds
+ * nothing left to move the job stops scanning: new uploads are always written sharded.
+ *
+ * Only the filesystem backend has older layouts; with S3 (written sharded from the start) the
+ * job does nothing.
+ */
+@Service
+public class UploadLayoutMigrationService {
+
+    private static final String VARIANTS_DIRECTORY = "variants";
+    private static final String URL_PREFIX = "/api/images?path=";
+
+    private static final String[] VERIFICATION_URL_COLUMNS = {
+            "business_license_url", "tax_certificate_url", "bank_statement_url", "identity_proof_url"
+    };
+
+    // Merges into an existing row: the same content may have been uploaded again under the new path
+    private static final String MOVE_BLOB_SQL =
+            "INSERT INTO stored_blob (path, sha256, size, content_type, ref_count, creation_date, last_reference_date) " +
+            "SELECT ?, sha256, size, content_type, ref_count, creation_date, last_reference_date FROM stored_blob WHERE path = ? " +
+            "ON CONFLICT (path) DO UPDATE SET ref_count = stored_blob.ref_count + EXCLUDED.ref_count";
+
+    // URLs are stored both as the bare relative path and with the /api/images prefix
+    private static final String MOVE_IMAGE_URL_SQL =
+            "UPDATE product_images SET image_url = CASE WHEN image_url = ? THEN ? ELSE ? END " +
+            "WHERE image_url IN (?, ?) RETURNING product_id";
+
+    @Value("${file.upload-dir:uploads}")
+    private String uploadDir;
+
+    @Value("${app.upload-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.upload-migration.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.upload-migration.pause-ms:200}")
+    private long pauseMs;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private CatalogReadModelService catalogReadModelService;
+
+    // Set once a run found nothing to migrate; only touched by the scheduled job
+    private boolean completed;
+
+    private record Move(String from, String to) {
+    }
+
+    /**
+     * Migrates all files not yet in the sharded layout, batch by batch.
+     */
+    @Scheduled(fixedDelayString = "${app.upload-migration.interval-ms:300000}",
+               initialDelayString = "${app.upload-migration.initial-delay-ms:60000}")
+    public void migrate() {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        if (!enabled || completed || !(storageBackend instanceof FileSystemStorageBackend) || !Files.isDirectory(root)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        int moved = 0;
+        int failed = 0;
+        List<Move> batch = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path file = iterator.next();
+                String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+                if (!Files.isRegularFile(file) || relativePath.startsWith(VARIANTS_DIRECTORY + "/")
+                        || file.getFileName().toString().startsWith(".")) {
+                    // Variants move with their original; dot files are uploads in progress
+                    continue;
+                }
+                String target = FileStorageService.layoutCandidates(relativePath).get(0);
+                if (target.equals(relativePath)) {
+                    continue;
+                }
+                batch.add(new Move(relativePath, target));
+                if (batch.size() == batchSize) {
+                    int batchMoved = migrateBatch(batch);
+                    moved += batchMoved;
+                    failed += batch.size() - batchMoved;
+                    batch.clear();
+                    System.out.println("Upload layout migration: " + moved + " files moved so far");
+                    // Leave room for regular traffic between batches
+                    Thread.sleep(pauseMs);
+                }
+            }
+            if (!batch.isEmpty()) {
+                int batchMoved = migrateBatch(batch);
+                moved += batchMoved;
+                failed += batch.size() - batchMoved;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Upload layout migration interrupted (will resume): " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        completed = moved == 0 && failed == 0;
+        if (moved > 0 || failed > 0) {
+            System.out.println(String.format("Upload layout migration: %d files moved, %d failed (will retry) in %d ms",
+                    moved, failed, System.currentTimeMillis() - startTime));
+        }
+    }
+
+    /**
+     * Rewrites the references to a batch of files, then moves the files.
+     *
+     * @return Number of files moved
+     */
+    private int migrateBatch(List<Move> batch) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(MOVE_BLOB_SQL, batch, batch.size(), (ps, move) -> {
+                ps.setString(1, move.to());
+                ps.setString(2, move.from());
+            });
+            jdbcTemplate.batchUpdate("DELETE FROM stored_blob WHERE path = ?", batch, batch.size(),
+                    (ps, move) -> ps.setString(1, move.from()));
+
+            Set<UUID> productIds = new HashSet<>();
+            for (Move move : batch) {
+                productIds.addAll(jdbcTemplate.queryForList(MOVE_IMAGE_URL_SQL, UUID.class,
+                        move.from(), move.to(), URL_PREFIX + move.to(), move.from(), URL_PREFIX + move.from()));
+            }
+            for (String column : VERIFICATION_URL_COLUMNS) {
+                String sql = "UPDATE verifications SET " + column + " = CASE WHEN " + column + " = ? THEN ? ELSE ? END " +
+                        "WHERE " + column + " IN (?, ?)";
+                jdbcTemplate.batchUpdate(sql, batch, batch.size(), (ps, move) -> {
+                    ps.setString(1, move.from());
+                    ps.setString(2, move.to());
+                    ps.setString(3, URL_PREFIX + move.to());
+                    ps.setString(4, move.from());
+                    ps.setString(5, URL_PREFIX + move.from());
+                });
+            }
+
+            if (!productIds.isEmpty()) {
+                // JDBC writes bypass the entity listeners
+                tableVersionService.bump(TableVersionService.PRODUCT_IMAGES);
+                catalogReadModelService.markChanged(CatalogReadModelService.Scope.PRODUCT, productIds);
+            }
+        });
+
+        int moved = 0;
+        for (Move move : batch) {
+            try {
+                Path source = storageBackend.localPath(move.from());
+                Path target = storageBackend.localPath(move.to());
+                if (Files.exists(target)) {
+                    // Content-addressed names: the same content was stored again under the new path
+                    Files.deleteIfExists(source);
+                } else {
+                    Files.createDirectories(target.getParent());
+                    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                }
+                imageVariantService.moveVariants(move.from(), move.to());
+                moved++;
+            } catch (IOException | RuntimeException e) {
+                // References already point to the new path; locate finds the file at the old one until retried
+                System.err.println("Could not move " + move.from() + " to " + move.to() + ": " + e.getMessage());
+            }
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.supply_gate_26514.service;
+
+/**
+ * Thrown when a user already has as many resumable uploads open as allowed.
+ * Controllers map it to 429 Too Many Requests.
+ */
+public class UploadLimitExceededException extends RuntimeException {
+    public UploadLimitExceededException(String message) {
+        super(message);
+    }
+}
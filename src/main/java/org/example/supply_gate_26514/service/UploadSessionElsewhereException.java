@@ -0,0 +1,12 @@
+package org.example.supply_gate_26514.service;
+
+/**
+ * Thrown when a chunk or the completion of a resumable upload reaches a node that does not hold
+ * its partial file (no shared session directory and no sticky sessions).
+ * Controllers map it to 409 Conflict.
+ */
+public class UploadSessionElsewhereException extends RuntimeException {
+    public UploadSessionElsewhereException(String message) {
+        super(message);
+    }
+}
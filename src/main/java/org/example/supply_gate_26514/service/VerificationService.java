@@ -3,9 +3,11 @@ package org.example.supply_gate_26514.service;
 import org.example.supply_gate_26514.dto.VerificationResponseDto;
 import org.example.supply_gate_26514.dto.VerificationReviewDto;
 import org.example.supply_gate_26514.model.Verification;
+import org.example.supply_gate_26514.model.VerificationDocumentType;
 import org.example.supply_gate_26514.model.VerificationStatus;
 import org.example.supply_gate_26514.model.User;
 import org.example.supply_gate_26514.model.UserEnum;
+import org.example.supply_gate_26514.repository.ProductRepository;
 import org.example.supply_gate_26514.repository.VerificationRepository;
 import org.example.supply_gate_26514.repository.UserRepository;
 import org.example.supply_gate_26514.util.SecurityUtils;
@@ -14,8 +16,12 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -31,6 +37,27 @@ public class VerificationService {
     @Autowired
     private SecurityUtils securityUtils;
 
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TableVersionService tableVersionService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private SavedSearchService savedSearchService;
+
+    // Stored documents are served by ImageController (private caching for verifications/)
+    private static final String DOCUMENT_URL_PREFIX = "/api/images?path=";
+
+    // Size of the document previews (600px: legible, a few hundred kilobytes at most)
+    private static final ImageVariantService.Variant PREVIEW_VARIANT = ImageVariantService.Variant.CARD;
+
     /**
      * Gets all verifications (paginated) with optional search.
      * 
@@ -97,6 +124,7 @@ public class VerificationService {
             throw new IllegalArgumentException("Cannot review verification that has not been submitted");
         }
         
+        VerificationStatus previousStatus = verification.getStatus();
         // Update verification status atomically
         verification.setStatus(newStatus);
         verification.setReviewedBy(reviewer);
@@ -117,6 +145,99 @@ public class VerificationService {
         // Save the updated verification
         Verification saved = verificationRepository.save(verification);
         
+        // Keep the denormalized supplierVerified flag on the supplier's products in sync
+        // (same transaction, so public listings never see a half-applied review)
+        if (saved.getUser() != null) {
+            productRepository.updateSupplierVerifiedBySupplier(
+                    saved.getUser().getUserId(), newStatus == VerificationStatus.APPROVED);
+            // Bulk updates bypass the entity listeners, so invalidate catalog ETags explicitly
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+            if (newStatus == VerificationStatus.APPROVED && previousStatus != VerificationStatus.APPROVED) {
+                // The supplier's products just became public: announce them to matching saved searches
+                UUID supplierId = saved.getUser().getUserId();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        savedSearchService.percolateSupplier(supplierId);
+                    }
+                });
+            }
+        }
+        
+        return mapToResponseDto(saved);
+    }
+
+    /**
+     * Sets one document of a user's verification to a stored file, creating the verification
+     * (NOT_SUBMITTED) if the user has none yet. A document it replaces is released after commit.
+     * An APPROVED or PENDING verification goes back to PENDING without a reviewer: a review only
+     * covers the documents it saw, so an approval is withdrawn (products unverified) until the
+     * new document is reviewed. Other statuses are not changed.
+     * The document's preview is rendered in the background (documents stored before previews
+     * existed get theirs on first request).
+     * 
+     * @param documentPath Relative path returned by FileStorageService.storeDocument
+     * @return The updated verification
+     */
+    @Transactional
+    public VerificationResponseDto attachDocument(User user, VerificationDocumentType documentType, String documentPath) {
+        Verification verification = verificationRepository.findByUser_UserId(user.getUserId())
+                .orElseGet(() -> {
+                    Verification created = new Verification();
+                    created.setUser(user);
+                    created.setCompanyName(user.getCompanyName());
+                    return created;
+                });
+        
+        String documentUrl = DOCUMENT_URL_PREFIX + documentPath;
+        String previousUrl;
+        switch (documentType) {
+            case BUSINESS_LICENSE -> {
+                previousUrl = verification.getBusinessLicenseUrl();
+                verification.setBusinessLicenseUrl(documentUrl);
+            }
+            case TAX_CERTIFICATE -> {
+                previousUrl = verification.getTaxCertificateUrl();
+                verification.setTaxCertificateUrl(documentUrl);
+            }
+            case BANK_STATEMENT -> {
+                previousUrl = verification.getBankStatementUrl();
+                verification.setBankStatementUrl(documentUrl);
+            }
+            default -> {
+                previousUrl = verification.getIdentityProofUrl();
+                verification.setIdentityProofUrl(documentUrl);
+            }
+        }
+        VerificationStatus previousStatus = verification.getStatus();
+        if (previousStatus == VerificationStatus.APPROVED || previousStatus == VerificationStatus.PENDING) {
+            verification.setStatus(VerificationStatus.PENDING);
+            verification.setReviewedBy(null);
+        }
+        verification.setLastUpdatedDate(LocalDateTime.now());
+        Verification saved = verificationRepository.save(verification);
+        if (previousStatus == VerificationStatus.APPROVED) {
+            // Same transaction as the status, like reviewVerification
+            productRepository.updateSupplierVerifiedBySupplier(user.getUserId(), false);
+            tableVersionService.bump(TableVersionService.PRODUCTS);
+        }
+        imageVariantService.generateVariantsAsync(documentPath, PREVIEW_VARIANT);
+        
+        // Also when the same content was uploaded again: storing it added a reference of its own.
+        // Only once committed: a rollback keeps the previous document on the verification
+        if (previousUrl != null && previousUrl.startsWith(DOCUMENT_URL_PREFIX)) {
+            String previousPath = previousUrl.substring(DOCUMENT_URL_PREFIX.length());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    try {
+                        fileStorageService.deleteFile(previousPath);
+                    } catch (IOException | IllegalArgumentException e) {
+                        System.err.println("Could not release replaced document " + previousPath + ": " + e.getMessage());
+                    }
+                }
+            });
+        }
         return mapToResponseDto(saved);
     }
 
@@ -156,6 +277,10 @@ public class VerificationService {
                 verification.getTaxCertificateUrl(),
                 verification.getBankStatementUrl(),
                 verification.getIdentityProofUrl(),
+                previewUrl(verification.getBusinessLicenseUrl()),
+                previewUrl(verification.getTaxCertificateUrl()),
+                previewUrl(verification.getBankStatementUrl()),
+                previewUrl(verification.getIdentityProofUrl()),
                 verification.getSubmittedDate(),
                 verification.getLastUpdatedDate(),
                 verification.getRejectionReason(),
@@ -163,4 +288,22 @@ public class VerificationService {
                 verification.getCompanyName()
         );
     }
+
+    /**
+     * URL of the preview of a stored document (see ImageVariantService), or null for none.
+     * Older rows may hold the bare relative path instead of the URL.
+     */
+    private static String previewUrl(String documentUrl) {
+        if (documentUrl == null || documentUrl.isBlank()) {
+            return null;
+        }
+        String path = documentUrl.startsWith(DOCUMENT_URL_PREFIX)
+                ? documentUrl.substring(DOCUMENT_URL_PREFIX.length())
+                : documentUrl;
+        if (path.contains("://")) {
+            // Not a stored file
+            return null;
+        }
+        return DOCUMENT_URL_PREFIX + path + "&size=" + PREVIEW_VARIANT.name().toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,186 @@
+package org.example.supply_gate_26514.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * AWS Signature Version 4 for S3-compatible object stores (AWS S3, MinIO, Ceph RGW, R2):
+ * Authorization headers for requests and presigned URLs.
+ *
+ * URIs passed in must already be encoded the way S3 expects (see encode); the path and
+ * query are signed as they are.
+ */
+public class AwsSignatureV4 {
+
+    public static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    public static final String EMPTY_PAYLOAD_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd").withZone(ZoneOffset.UTC);
+
+    private final String accessKey;
+    private final String secretKey;
+    private final String region;
+    private final String service;
+
+    public AwsSignatureV4(String accessKey, String secretKey, String region, String service) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.region = region;
+        this.service = service;
+    }
+
+    /**
+     * Value of the x-amz-date header for a request signed at the given time.
+     */
+    public static String amzDate(Instant time) {
+        return AMZ_DATE.format(time);
+    }
+
+    /**
+     * Host header as the JDK HttpClient sends it (port only when not the scheme's default).
+     */
+    public static String host(URI uri) {
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || ("https".equals(uri.getScheme()) && port == 443)
+                || ("http".equals(uri.getScheme()) && port == 80);
+        return defaultPort ? uri.getHost() : uri.getHost() + ":" + port;
+    }
+
+    /**
+     * Computes the Authorization header of a request.
+     *
+     * @param headers Headers to sign, lower-case names; must contain host and x-amz-date
+     *                (and x-amz-content-sha256 for S3), with the values that are sent
+     * @param payloadHash Hex SHA-256 of the body, or UNSIGNED_PAYLOAD
+     */
+    public String authorization(String method, URI uri, Map<String, String> headers, String payloadHash, Instant time) {
+        SortedMap<String, String> sorted = new TreeMap<>(headers);
+        StringBuilder canonicalHeaders = new StringBuilder();
+        for (Map.Entry<String, String> header : sorted.entrySet()) {
+            canonicalHeaders.append(header.getKey()).append(':').append(header.getValue().trim()).append('\n');
+        }
+        String signedHeaders = String.join(";", sorted.keySet());
+        String canonicalRequest = method + "\n" +
+                canonicalPath(uri) + "\n" +
+                canonicalQuery(uri.getRawQuery()) + "\n" +
+                canonicalHeaders + "\n" +
+                signedHeaders + "\n" +
+                payloadHash;
+        return ALGORITHM + " Credential=" + accessKey + "/" + scope(time) +
+                ", SignedHeaders=" + signedHeaders +
+                ", Signature=" + signature(canonicalRequest, time);
+    }
+
+    /**
+     * Builds a presigned URL: anyone holding it can make this request until it expires,
+     * without credentials.
+     */
+    public URI presign(String method, URI uri, Duration validity, Instant time) {
+        StringBuilder query = new StringBuilder(uri.getRawQuery() != null ? uri.getRawQuery() + "&" : "");
+        query.append("X-Amz-Algorithm=").append(ALGORITHM)
+                .append("&X-Amz-Credential=").append(encode(accessKey + "/" + scope(time), true))
+                .append("&X-Amz-Date=").append(amzDate(time))
+                .append("&X-Amz-Expires=").append(validity.toSeconds())
+                .append("&X-Amz-SignedHeaders=host");
+        String canonicalRequest = method + "\n" +
+                canonicalPath(uri) + "\n" +
+                canonicalQuery(query.toString()) + "\n" +
+                "host:" + host(uri) + "\n\n" +
+                "host\n" +
+                UNSIGNED_PAYLOAD;
+        query.append("&X-Amz-Signature=").append(signature(canonicalRequest, time));
+        String base = uri.toString();
+        int queryStart = base.indexOf('?');
+        return URI.create((queryStart >= 0 ? base.substring(0, queryStart) : base) + "?" + query);
+    }
+
+    /**
+     * URI-encodes a value as SigV4 requires: everything but unreserved characters, as UTF-8
+     * percent escapes; slashes are kept when encoding an object key path.
+     */
+    public static String encode(String value, boolean encodeSlash) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (c == '/' && !encodeSlash)) {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return encoded.toString();
+    }
+
+    public static String sha256Hex(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String scope(Instant time) {
+        return DATE_STAMP.format(time) + "/" + region + "/" + service + "/aws4_request";
+    }
+
+    private String signature(String canonicalRequest, Instant time) {
+        String stringToSign = ALGORITHM + "\n" +
+                amzDate(time) + "\n" +
+                scope(time) + "\n" +
+                sha256Hex(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+        byte[] key = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), DATE_STAMP.format(time));
+        key = hmac(key, region);
+        key = hmac(key, service);
+        key = hmac(key, "aws4_request");
+        return HexFormat.of().formatHex(hmac(key, stringToSign));
+    }
+
+    private static String canonicalPath(URI uri) {
+        String path = uri.getRawPath();
+        return path == null || path.isEmpty() ? "/" : path;
+    }
+
+    /**
+     * Parameters sorted by name (then value); a parameter without value gets an empty one.
+     */
+    private static String canonicalQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return "";
+        }
+        List<String[]> parameters = new ArrayList<>();
+        for (String parameter : rawQuery.split("&")) {
+            int equals = parameter.indexOf('=');
+            parameters.add(equals < 0
+                    ? new String[]{parameter, ""}
+                    : new String[]{parameter.substring(0, equals), parameter.substring(equals + 1)});
+        }
+        parameters.sort(Comparator.<String[], String>comparing(p -> p[0]).thenComparing(p -> p[1]));
+        StringJoiner joiner = new StringJoiner("&");
+        for (String[] parameter : parameters) {
+            joiner.add(parameter[0] + "=" + parameter[1]);
+        }
+        return joiner.toString();
+    }
+
+    private static byte[] hmac(byte[] key, String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package org.example.supply_gate_26514.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.supply_gate_26514.service.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a file to an HTTP response with conditional and range request support.
+ *
+ * - Strong ETag derived from the SHA-256 of the content (computed once per file version and
+ *   cached), plus Last-Modified; matching If-None-Match / If-Modified-Since get 304.
+ * - Accept-Ranges: bytes; a single Range (optionally guarded by If-Range) gets 206 with
+ *   Content-Range, an unsatisfiable one 416. Multiple ranges are answered with the full file.
+ * - Frequently requested small files may be served from memory (HotImageCache; a file is only
+ *   loaded there when requested again, never on its first miss). Otherwise the
+ *   body is handed to Tomcat's sendfile when the connector supports it, so the kernel copies
+ *   the file to the socket without passing through the JVM heap, or copied with
+ *   FileChannel.transferTo.
+ * - Objects of a remote StorageBackend (when not redirected to) are streamed through, fetching
+ *   only the requested range.
+ */
+@Component
+public class FileResponseWriter {
+
+    private static final Pattern SINGLE_RANGE = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    // Tomcat request attributes (org.apache.catalina.Globals) for sendfile
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Smaller bodies are cheaper to write directly than to hand over to the poller
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024;
+
+    // Content hashes by path, size and modification time (a changed file gets a new key)
+    private final Cache<String, String> eTags = Caffeine.newBuilder().maximumSize(20_000).build();
+
+    @Autowired
+    private HotImageCache hotImageCache;
+
+    /**
+     * Writes the file (or the requested range of it) with caching headers.
+     *
+     * @param cacheControl Cache-Control header value
+     * @param cacheInMemory Whether the content may be kept in HotImageCache
+     */
+    public void write(Path file, String contentType, String cacheControl, boolean cacheInMemory,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        String eTag = eTag(file, length, attributes.lastModifiedTime().toMillis());
+
+        long[] range = writeHeaders(length, lastModified, eTag, cacheControl, request, response);
+        if (range == null) {
+            return;
+        }
+        long start = range[0];
+        long end = range[1];
+        long count = end - start + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+
+        ByteBuffer cached = cacheInMemory ? hotImageCache.get(file, length, attributes.lastModifiedTime().toMillis()) : null;
+        if (cached != null) {
+            cached.limit((int) end + 1).position((int) start);
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            while (cached.hasRemaining()) {
+                target.write(cached);
+            }
+            out.flush();
+            return;
+        }
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end + 1 - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Writes an object of a remote storage backend (or the requested range of it) with caching
+     * headers. Only the requested range is fetched from the backend and streamed through.
+     *
+     * @param info The object's current metadata (StorageBackend.stat)
+     */
+    public void write(StorageBackend backend, String key, StorageBackend.ObjectInfo info, String contentType,
+                      String cacheControl, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = info.size();
+        long lastModified = info.lastModified() / 1000 * 1000;
+        // The backend's own ETag (an MD5 for S3) avoids downloading the object to hash it
+        String eTag = "\"" + (info.eTag() != null ? info.eTag() : length + "-" + info.lastModified()) + "\"";
+
+        long[] range = writeHeaders(length, lastModified, eTag, cacheControl, request, response);
+        if (range == null) {
+            return;
+        }
+        long count = range[1] - range[0] + 1;
+        response.setContentType(contentType);
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return;
+        }
+        try (InputStream content = backend.open(key, range[0], count)) {
+            OutputStream out = response.getOutputStream();
+            content.transferTo(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Sets the validator and caching headers and evaluates the conditional and Range headers.
+     *
+     * @return First and last byte to send, or null if the response is already complete (304, 416)
+     */
+    private long[] writeHeaders(long length, long lastModified, String eTag, String cacheControl,
+                                HttpServletRequest request, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (notModified(request, eTag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return null;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, eTag, lastModified)) {
+            Matcher matcher = SINGLE_RANGE.matcher(range.trim());
+            if (matcher.matches() && !(matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+                if (matcher.group(1).isEmpty()) {
+                    // Suffix range: the last n bytes
+                    start = Math.max(0, length - parseOrMax(matcher.group(2)));
+                } else {
+                    start = parseOrMax(matcher.group(1));
+                    if (!matcher.group(2).isEmpty()) {
+                        end = Math.min(end, parseOrMax(matcher.group(2)));
+                    }
+                }
+                if (start >= length || start > end) {
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                    return null;
+                }
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+            // Anything else (several ranges, other units) is ignored: the full file is sent
+        }
+        return new long[]{start, end};
+    }
+
+    private String eTag(Path file, long length, long lastModified) {
+        String key = file.toAbsolutePath() + "|" + length + "|" + lastModified;
+        return eTags.get(key, k -> {
+            try {
+                return "\"" + sha256(file) + "\"";
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest());
+    }
+
+    private static boolean notModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesAny(ifNoneMatch, eTag);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * A Range is only honoured if If-Range is absent or still matches the current file.
+     */
+    private static boolean ifRangeMatches(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.trim().startsWith("\"")) {
+            return ifRange.trim().equals(eTag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && lastModified == date;
+    }
+
+    private static boolean matchesAny(String header, String eTag) {
+        for (String candidate : header.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    private static long parseOrMax(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
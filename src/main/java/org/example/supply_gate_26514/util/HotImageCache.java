@@ -0,0 +1,139 @@
+package org.example.supply_gate_26514.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+/**
+ * In-memory copies of the most requested image files, so the few images that take most of the
+ * traffic (featured products on the landing page) are served without a filesystem read.
+ *
+ * Contents are kept in direct ByteBuffers, outside the Java heap, so a large cache does not
+ * lengthen garbage collections. The cache is bounded by the total bytes held (max-bytes) and
+ * files above max-entry-bytes are never cached. Admission is frequency based (Caffeine's
+ * W-TinyLFU): a file only displaces resident ones if it has been requested more often recently,
+ * so a crawl over many one-off images cannot flush the hot set.
+ *
+ * A file is only read into memory on its second request within a short window (a doorkeeper of
+ * recently missed keys, on the heap and small). The first miss is served by the caller from the
+ * file (sendfile), so one-off requests never allocate off-heap memory that admission would then
+ * throw away.
+ *
+ * Entries are keyed by path, size and modification time, so a replaced file is never served
+ * stale. Off-heap memory of evicted entries is returned when their buffers are collected;
+ * -XX:MaxDirectMemorySize must leave room above max-bytes.
+ *
+ * Exposed as cache.* metrics with cache=hotImages, plus image.cache.hit.ratio and
+ * image.cache.resident.bytes.
+ */
+@Component
+public class HotImageCache {
+
+    @Value("${app.hot-image-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.hot-image-cache.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${app.hot-image-cache.max-entry-bytes:1048576}")
+    private long maxEntryBytes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Recently missed keys; a second miss while remembered here loads the file
+    private static final int DOORKEEPER_SIZE = 10_000;
+    private static final Duration DOORKEEPER_WINDOW = Duration.ofMinutes(10);
+
+    private Cache<String, ByteBuffer> cache;
+
+    private Cache<String, Boolean> doorkeeper;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, ByteBuffer content) -> content.capacity())
+                .recordStats()
+                .build();
+        doorkeeper = Caffeine.newBuilder()
+                .maximumSize(DOORKEEPER_SIZE)
+                .expireAfterWrite(DOORKEEPER_WINDOW)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "hotImages");
+        Gauge.builder("image.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .description("Share of image requests served from memory")
+                .register(meterRegistry);
+        Gauge.builder("image.cache.resident.bytes", cache,
+                        c -> c.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Off-heap bytes held by the hot image cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the content of a file, reading it into the cache on a repeated miss.
+     *
+     * @param size Current size of the file
+     * @param lastModified Current modification time of the file (millis)
+     * @return Read-only view of the whole content, or null if the file is not cached (yet)
+     *         or not cacheable (cache disabled or file larger than max-entry-bytes); the caller
+     *         reads the file then
+     * @throws IOException if the file cannot be read
+     */
+    public ByteBuffer get(Path file, long size, long lastModified) throws IOException {
+        if (!enabled || size > maxEntryBytes || size > maxBytes) {
+            return null;
+        }
+        String key = file.toAbsolutePath() + "|" + size + "|" + lastModified;
+        // Also counts the request in the admission frequency sketch
+        ByteBuffer cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached.duplicate();
+        }
+        if (doorkeeper.asMap().putIfAbsent(key, Boolean.TRUE) == null) {
+            return null;
+        }
+        doorkeeper.invalidate(key);
+        try {
+            return cache.asMap().computeIfAbsent(key, k -> {
+                try {
+                    return read(file, (int) size);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }).duplicate();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static ByteBuffer read(Path file, int size) throws IOException {
+        ByteBuffer content = ByteBuffer.allocateDirect(size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (content.hasRemaining() && channel.read(content) >= 0) {
+                // Read until full or end of file
+            }
+        }
+        if (content.hasRemaining()) {
+            // Truncated since its size was read: do not cache a partial copy
+            throw new IOException("File changed while reading: " + file);
+        }
+        content.flip();
+        return content.asReadOnlyBuffer();
+    }
+}
@@ -0,0 +1,236 @@
+package org.example.supply_gate_26514.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal streaming multipart/form-data reader (RFC 7578): returns the parts of a request body
+ * one at a time, each with an InputStream over its content that ends at the next boundary.
+ * Nothing is buffered beyond a fixed-size window, so a part can be copied to its destination
+ * while it arrives, in constant memory and without a temporary file.
+ *
+ * A part's content stream is only valid until nextPart is called again; unread content is skipped.
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Headers of one part; real clients send a few hundred bytes
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+
+    private static final Pattern BOUNDARY = Pattern.compile("(?i)boundary=(\"([^\"]{1,70})\"|([^;\\s]{1,70}))");
+    private static final Pattern DISPOSITION_PARAMETER = Pattern.compile("(?i)(name|filename)=(\"([^\"]*)\"|([^;\\s]*))");
+
+    /**
+     * One part of the body.
+     *
+     * @param name Form field name
+     * @param filename Filename sent by the client, or null for a plain field
+     * @param contentType Content-Type sent by the client (not verified), or null
+     * @param content The part's content, up to the next boundary
+     */
+    public record Part(String name, String filename, String contentType, InputStream content) {
+    }
+
+    private final InputStream input;
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private boolean finished;
+    private PartInputStream current;
+
+    public MultipartStreamReader(InputStream input, String boundary) {
+        this.input = input;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[BUFFER_SIZE];
+        // The first boundary is not preceded by a line break; start with one so it matches the delimiter
+        buffer[0] = '\r';
+        buffer[1] = '\n';
+        limit = 2;
+    }
+
+    /**
+     * Extracts the boundary parameter of a multipart Content-Type.
+     *
+     * @throws IllegalArgumentException if the content type is not multipart/form-data with a boundary
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null || !contentType.toLowerCase().startsWith("multipart/form-data")) {
+            throw new IllegalArgumentException("Content-Type must be multipart/form-data");
+        }
+        Matcher matcher = BOUNDARY.matcher(contentType);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Multipart boundary missing");
+        }
+        return matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+    }
+
+    /**
+     * Advances to the next part, skipping whatever is left of the current one.
+     *
+     * @return The next part, or null after the closing boundary
+     * @throws IOException on read failure, a truncated body or oversized part headers
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        // The preamble before the first boundary is read like a part and discarded
+        PartInputStream previous = current != null ? current : new PartInputStream();
+        previous.skipToEnd();
+
+        // After a boundary: "--" closes the body (possibly without a final line break),
+        // otherwise the rest of the line is padding
+        if (fill(2) >= 2 && buffer[position] == '-' && buffer[position + 1] == '-') {
+            finished = true;
+            return null;
+        }
+        readLine();
+
+        String name = null;
+        String filename = null;
+        String contentType = null;
+        int headerSize = 0;
+        for (String line = readLine(); !line.isEmpty(); line = readLine()) {
+            headerSize += line.length() + 2;
+            if (headerSize > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart headers too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String header = line.substring(0, colon).trim();
+            String value = line.substring(colon + 1).trim();
+            if (header.equalsIgnoreCase("Content-Disposition")) {
+                Matcher matcher = DISPOSITION_PARAMETER.matcher(value);
+                while (matcher.find()) {
+                    String parameter = matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+                    if (matcher.group(1).equalsIgnoreCase("name")) {
+                        name = parameter;
+                    } else {
+                        filename = parameter;
+                    }
+                }
+            } else if (header.equalsIgnoreCase("Content-Type")) {
+                contentType = value;
+            }
+        }
+
+        current = new PartInputStream();
+        return new Part(name, filename, contentType, current);
+    }
+
+    /**
+     * Reads a header line (ISO-8859-1, as sent by browsers for non-ASCII filenames without RFC 5987).
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        while (true) {
+            if (position == limit && fill(1) == 0) {
+                throw new IOException("Unexpected end of multipart body");
+            }
+            byte b = buffer[position++];
+            if (b == '\n' && line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+                return line.toString();
+            }
+            if (line.length() > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart headers too large");
+            }
+            line.append((char) (b & 0xFF));
+        }
+    }
+
+    /**
+     * Makes at least {@code minimum} bytes available (fewer only at end of input).
+     *
+     * @return Bytes available
+     */
+    private int fill(int minimum) throws IOException {
+        if (limit - position >= minimum || endOfInput) {
+            return limit - position;
+        }
+        System.arraycopy(buffer, position, buffer, 0, limit - position);
+        limit -= position;
+        position = 0;
+        while (limit < minimum) {
+            int read = input.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+                break;
+            }
+            limit += read;
+        }
+        return limit;
+    }
+
+    private int indexOfDelimiter(int from, int to) {
+        outer:
+        for (int i = from; i <= to - delimiter.length; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buffer[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Content of one part: returns bytes up to the delimiter and consumes the delimiter itself.
+     * Bytes that could be the start of a delimiter are held back until enough input has arrived.
+     */
+    private class PartInputStream extends InputStream {
+
+        private boolean ended;
+
+        @Override
+        public int read(byte[] target, int offset, int length) throws IOException {
+            if (ended) {
+                return -1;
+            }
+            if (length == 0) {
+                return 0;
+            }
+            fill(delimiter.length);
+            int index = indexOfDelimiter(position, limit);
+            int end;
+            if (index >= 0) {
+                end = index;
+            } else if (endOfInput) {
+                throw new IOException("Unexpected end of multipart body");
+            } else {
+                end = limit - delimiter.length + 1;
+            }
+            if (end == position) {
+                ended = true;
+                position += delimiter.length;
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            System.arraycopy(buffer, position, target, offset, count);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        void skipToEnd() throws IOException {
+            byte[] discard = new byte[8 * 1024];
+            while (read(discard, 0, discard.length) >= 0) {
+                // Skip
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.supply_gate_26514.contoller;
+
+import org.example.supply_gate_26514.service.FileStorageService;
+import org.example.supply_gate_26514.service.ImageVariantService;
+import org.example.supply_gate_26514.service.StorageBackend;
+import org.example.supply_gate_26514.util.FileResponseWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Path normalization and the cache headers derived from it.
+ */
+@ExtendWith(MockitoExtension.class)
+class ImageControllerTest {
+
+    private static final String HASH = "9b04" + "0".repeat(60);
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private FileResponseWriter fileResponseWriter;
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @InjectMocks
+    private ImageController imageController;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void normalizeKeyRemovesDotSegments() {
+        assertEquals("verifications/9b/04/x.pdf", FileStorageService.normalizeKey("./verifications/9b/04/x.pdf"));
+        assertEquals("verifications/9b/04/x.pdf", FileStorageService.normalizeKey("products/../verifications/9b/04/x.pdf"));
+        assertEquals("products/ab/cd/x.jpg", FileStorageService.normalizeKey("products//ab/./cd/x.jpg"));
+    }
+
+    @Test
+    void normalizeKeyRejectsPathsOutsideTheUploadDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> FileStorageService.normalizeKey("../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> FileStorageService.normalizeKey("products/../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> FileStorageService.normalizeKey("/etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> FileStorageService.normalizeKey("."));
+    }
+
+    @Test
+    void contentAddressedProductImagesArePublicAndImmutable() {
+        String cacheControl = ImageController.cacheControl("products/9b/04/" + HASH + ".jpg");
+        assertTrue(cacheControl.contains("public"));
+        assertTrue(cacheControl.contains("immutable"));
+    }
+
+    @Test
+    void verificationDocumentsAreNeverPublic() {
+        String cacheControl = ImageController.cacheControl("verifications/9b/04/" + HASH + ".pdf");
+        assertTrue(cacheControl.contains("private"));
+        assertFalse(cacheControl.contains("public"));
+
+        String unknownNaming = ImageController.cacheControl("verifications/lic.pdf");
+        assertTrue(unknownNaming.contains("no-cache"));
+        assertTrue(unknownNaming.contains("private"));
+    }
+
+    @Test
+    void dotSegmentSpellingOfAVerificationDocumentIsServedPrivate() throws Exception {
+        String key = "verifications/9b/04/" + HASH + ".pdf";
+        Path file = Files.writeString(tempDir.resolve(HASH + ".pdf"), "%PDF-1.4");
+        when(fileStorageService.locate(anyString())).thenAnswer(invocation -> FileStorageService.normalizeKey(invocation.getArgument(0)));
+        when(storageBackend.localPath(key)).thenReturn(file);
+
+        imageController.serveImage("./" + key, null, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        ArgumentCaptor<String> cacheControl = ArgumentCaptor.forClass(String.class);
+        verify(fileResponseWriter).write(eq(file), eq("application/pdf"), cacheControl.capture(), eq(false), any(), any());
+        assertTrue(cacheControl.getValue().contains("private"));
+        assertFalse(cacheControl.getValue().contains("public"));
+    }
+
+    @Test
+    void previewOfAVerificationDocumentRequestedByItsOwnKeyIsServedPrivate() throws Exception {
+        String key = "variants/card/verifications/9b/04/" + HASH + ".pdf.png";
+        Path file = Files.writeString(tempDir.resolve(HASH + ".pdf.png"), "png");
+        when(fileStorageService.locate(anyString())).thenAnswer(invocation -> FileStorageService.normalizeKey(invocation.getArgument(0)));
+        when(storageBackend.localPath(key)).thenReturn(file);
+
+        imageController.serveImage(key, null, new MockHttpServletRequest(), new MockHttpServletResponse());
+
+        // Not kept in the hot image cache either
+        ArgumentCaptor<String> cacheControl = ArgumentCaptor.forClass(String.class);
+        verify(fileResponseWriter).write(eq(file), eq("image/png"), cacheControl.capture(), eq(false), any(), any());
+        assertTrue(cacheControl.getValue().contains("private"));
+        assertFalse(cacheControl.getValue().contains("public"));
+        assertFalse(ImageController.isVerificationDocument("variants/card/products/9b/04/" + HASH + ".jpg.jpg"));
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.supply_gate_26514.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reference counting of stored files: every spelling of a stored path releases the same reference,
+ * and the bytes only go with the last one.
+ */
+@SpringBootTest(properties = "file.upload-dir=target/test-uploads")
+class FileStorageServiceTest {
+
+    private static final Path UPLOAD_DIR = Path.of("target/test-uploads");
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private String key;
+
+    @BeforeEach
+    void storeTwice() throws IOException {
+        key = fileStorageService.storeDocument(new ByteArrayInputStream(content()), "verifications");
+        assertEquals(key, fileStorageService.storeDocument(new ByteArrayInputStream(content()), "verifications"));
+        assertEquals(2, refCount());
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM stored_blob WHERE path = ?", key);
+        FileSystemUtils.deleteRecursively(UPLOAD_DIR);
+    }
+
+    @Test
+    void lastReferenceDeletesTheBytes() throws IOException {
+        fileStorageService.deleteFile(key);
+        assertEquals(1, refCount());
+        assertTrue(Files.exists(UPLOAD_DIR.resolve(key)));
+
+        fileStorageService.deleteFile(key);
+        assertTrue(jdbcTemplate.queryForList("SELECT path FROM stored_blob WHERE path = ?", String.class, key).isEmpty());
+        assertFalse(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void dotSegmentSpellingsReleaseTheSameReference() throws IOException {
+        fileStorageService.deleteFile("./" + key);
+        assertEquals(1, refCount());
+
+        String subdirectory = key.substring(0, key.indexOf('/'));
+        fileStorageService.deleteFile(subdirectory + "/x/.." + key.substring(subdirectory.length()));
+        assertFalse(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void pathWithoutShardPrefixReleasesTheSameReference() throws IOException {
+        String fileName = key.substring(key.lastIndexOf('/') + 1);
+        fileStorageService.deleteFile("verifications/" + fileName);
+        assertEquals(1, refCount());
+        assertTrue(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void pathOutsideTheUploadDirectoryIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.deleteFile("../" + key));
+        assertEquals(2, refCount());
+    }
+
+    private int refCount() {
+        List<Integer> refCount = jdbcTemplate.queryForList("SELECT ref_count FROM stored_blob WHERE path = ?", Integer.class, key);
+        return refCount.isEmpty() ? 0 : refCount.get(0);
+    }
+
+    // PNG signature followed by content unique to this test run
+    private final byte[] content = ("\u0089PNG\r\n\u001a\n" + UUID.randomUUID()).getBytes(StandardCharsets.ISO_8859_1);
+
+    private byte[] content() {
+        return content;
+    }
+}
@@ -0,0 +1,215 @@
+package org.example.supply_gate_26514.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Stock lease arithmetic against the database: leased units are never lost, never returned on
+ * top of an absolute stock write, and only the leases of timed-out nodes are reclaimed.
+ */
+class InventoryReservationServiceTest extends ServiceTestSupport {
+
+    private static final int INITIAL_STOCK = 100;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID productId = UUID.randomUUID();
+
+    @BeforeEach
+    void createProduct() {
+        createUser(userId);
+        createProduct(productId, null, null, INITIAL_STOCK);
+        as(userId);
+    }
+
+    @AfterEach
+    void deleteNodes() {
+        jdbcTemplate.update("DELETE FROM inventory_node WHERE node_id LIKE 'lease-test-%'");
+    }
+
+    @Test
+    void leasedUnitsAreAccountedForUntilReturned() {
+        inventoryReservationService.reserve(productId, 2);
+        // Second miss within a second: leases an extra block into the pool
+        inventoryReservationService.reserve(productId, 3);
+        assertTrue(stock() < INITIAL_STOCK - 5, "hot product should have leased extra units");
+        assertEquals(INITIAL_STOCK, stock() + leasedUnits() + reservedUnits());
+
+        inventoryReservationService.flushPending();
+        assertEquals(5, reservedUnits());
+        assertEquals(INITIAL_STOCK, stock() + leasedUnits() + reservedUnits());
+
+        returnIdlePools();
+        assertEquals(0, leasedUnits());
+        assertEquals(INITIAL_STOCK - 5, stock());
+    }
+
+    @Test
+    void absoluteStockWriteVoidsOutstandingLeases() {
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.flushPending();
+        assertTrue(leasedUnits() > 0);
+
+        overwriteStock(10);
+        assertEquals(10, stock());
+        assertEquals(0, leasedUnits());
+
+        // The dropped pool is not served from and its units never come back on top of the new stock
+        inventoryReservationService.reserve(productId, 1);
+        inventoryReservationService.flushPending();
+        returnIdlePools();
+        assertEquals(9, stock());
+        assertEquals(5, reservedUnits());
+    }
+
+    @Test
+    void unwrittenHoldsOfVoidedLeaseAreCoveredFromNewStock() {
+        inventoryReservationService.reserve(productId, 2);
+        overwriteStock(5);
+
+        inventoryReservationService.flushPending();
+        assertEquals(2, reservedUnits());
+        assertEquals(3, stock());
+    }
+
+    @Test
+    void unwrittenHoldsOfVoidedLeaseAreDroppedWhenNewStockIsShort() {
+        inventoryReservationService.reserve(productId, 2);
+        overwriteStock(1);
+
+        inventoryReservationService.flushPending();
+        assertEquals(0, reservedUnits());
+        assertEquals(1, stock());
+    }
+
+    @Test
+    void holdsTakenWhileARefillSwitchesGenerationsKeepTheirUnitsGeneration() throws Exception {
+        // Hot pool of the current generation
+        inventoryReservationService.reserve(productId, 1);
+        inventoryReservationService.reserve(productId, 1);
+        inventoryReservationService.flushPending();
+        int reservedBefore = reservedUnits();
+
+        // Absolute stock write on another node: this node's pool still has units of the voided generation,
+        // so the first refill switches generations while the other threads keep taking from the pool
+        jdbcTemplate.update("UPDATE products SET stock_quantity = 1000, stock_generation = stock_generation + 1 " +
+                "WHERE product_id = ?", productId);
+        jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id = ?", productId);
+
+        int threads = 8;
+        int holdsPerThread = 50;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> reservers = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                reservers.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < holdsPerThread; j++) {
+                        inventoryReservationService.reserve(productId, 1);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> reserver : reservers) {
+                reserver.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // A hold recorded under the wrong generation would be taken from stock a second time
+        inventoryReservationService.flushPending();
+        returnIdlePools();
+        assertEquals(threads * holdsPerThread, reservedUnits() - reservedBefore);
+        assertEquals(0, leasedUnits());
+        assertEquals(1000 - threads * holdsPerThread, stock());
+    }
+
+    @Test
+    void onlyLeasesOfTimedOutNodesAreReclaimed() {
+        jdbcTemplate.update("INSERT INTO inventory_node (node_id, heartbeat_at) VALUES ('lease-test-live', now())");
+        jdbcTemplate.update("INSERT INTO inventory_node (node_id, heartbeat_at) VALUES ('lease-test-dead', now() - interval '1 hour')");
+        takeLease("lease-test-live", 7);
+        takeLease("lease-test-dead", 5);
+
+        inventoryReservationService.heartbeat();
+
+        assertEquals(INITIAL_STOCK - 7, stock());
+        assertEquals(7, leasedUnits());
+        assertEquals(0, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory_node WHERE node_id = 'lease-test-dead'", Integer.class));
+    }
+
+    @Test
+    void timedOutNodeDropsItsPools() {
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.flushPending();
+        assertTrue(leasedUnits() > 0);
+
+        // Another node declared this one dead and reclaimed its leases
+        jdbcTemplate.update("DELETE FROM inventory_node WHERE node_id = ?",
+                ReflectionTestUtils.getField(inventoryReservationService, "nodeId"));
+        inventoryReservationService.heartbeat();
+        assertEquals(0, leasedUnits());
+        assertEquals(INITIAL_STOCK - 4, stock());
+
+        // Registered again and leasing normally
+        inventoryReservationService.reserve(productId, 1);
+        inventoryReservationService.flushPending();
+        assertEquals(INITIAL_STOCK, stock() + leasedUnits() + reservedUnits());
+    }
+
+    private void takeLease(String nodeId, int units) {
+        jdbcTemplate.update("UPDATE products SET stock_quantity = stock_quantity - ? WHERE product_id = ?", units, productId);
+        jdbcTemplate.update("INSERT INTO stock_lease (node_id, product_id, generation, units) " +
+                "SELECT ?, product_id, stock_generation, ? FROM products WHERE product_id = ?", nodeId, units, productId);
+    }
+
+    private void overwriteStock(int stockQuantity) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> inventoryReservationService.overwriteStock(productId, stockQuantity));
+    }
+
+    private void returnIdlePools() {
+        ReflectionTestUtils.setField(inventoryReservationService, "leaseIdleSeconds", 0L);
+        inventoryReservationService.flushPending();
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private int leasedUnits() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(units), 0) FROM stock_lease WHERE product_id = ?",
+                Integer.class, productId);
+    }
+
+    private int reservedUnits() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(quantity), 0) FROM stock_reservations " +
+                "WHERE product_id = ? AND status = 'ACTIVE'", Integer.class, productId);
+    }
+}
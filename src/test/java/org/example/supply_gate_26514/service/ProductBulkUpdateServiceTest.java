@@ -0,0 +1,79 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.ProductBulkUpdateItemDto;
+import org.example.supply_gate_26514.dto.ProductBulkUpdateResultDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bulk stock writes must not be topped up later by units that were leased before them.
+ */
+class ProductBulkUpdateServiceTest extends ServiceTestSupport {
+
+    @Autowired
+    private ProductBulkUpdateService productBulkUpdateService;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID storeId = UUID.randomUUID();
+    private final UUID productId = UUID.randomUUID();
+
+    @BeforeEach
+    void createProduct() {
+        createUser(userId);
+        createStore(storeId, userId);
+        createProduct(productId, storeId, null, 100);
+        as(userId);
+    }
+
+    @Test
+    void stockWriteVoidsLeasedUnits() {
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.flushPending();
+        assertTrue(leasedUnits() > 0);
+
+        ProductBulkUpdateResultDto result = productBulkUpdateService.updateProducts(
+                List.of(new ProductBulkUpdateItemDto(productId, null, 20)));
+        assertEquals(1, result.updatedRows());
+        assertEquals(20, stock());
+        assertEquals(0, leasedUnits());
+
+        ReflectionTestUtils.setField(inventoryReservationService, "leaseIdleSeconds", 0L);
+        inventoryReservationService.flushPending();
+        assertEquals(20, stock());
+    }
+
+    @Test
+    void priceOnlyUpdateKeepsLeases() {
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.reserve(productId, 2);
+        inventoryReservationService.flushPending();
+        int leased = leasedUnits();
+
+        productBulkUpdateService.updateProducts(List.of(new ProductBulkUpdateItemDto(productId, 12.5, null)));
+        assertEquals(leased, leasedUnits());
+
+        ReflectionTestUtils.setField(inventoryReservationService, "leaseIdleSeconds", 0L);
+        inventoryReservationService.flushPending();
+        assertEquals(96, stock());
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE product_id = ?", Integer.class, productId);
+    }
+
+    private int leasedUnits() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(SUM(units), 0) FROM stock_lease WHERE product_id = ?",
+                Integer.class, productId);
+    }
+}
@@ -0,0 +1,143 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.ProductImageDto;
+import org.example.supply_gate_26514.dto.ProductImageResponseDto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Image rows hold one reference each to their upload, and only the owner of an upload's
+ * products can reuse or delete it.
+ */
+@SpringBootTest(properties = "file.upload-dir=target/test-uploads")
+class ProductImageServiceTest extends ServiceTestSupport {
+
+    private static final Path UPLOAD_DIR = Path.of("target/test-uploads");
+    private static final String IMAGE_URL_PREFIX = "/api/images?path=";
+
+    @Autowired
+    private ProductImageService productImageService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private final UUID owner = UUID.randomUUID();
+    private final UUID otherSupplier = UUID.randomUUID();
+    private final UUID ownerProduct = UUID.randomUUID();
+    private final UUID ownerSecondProduct = UUID.randomUUID();
+    private final UUID otherProduct = UUID.randomUUID();
+
+    private String key;
+    private UUID uploadedImageId;
+
+    @BeforeEach
+    void uploadImage() throws IOException {
+        for (UUID user : List.of(owner, otherSupplier)) {
+            createUser(user);
+            createStore(user, user);
+        }
+        createProduct(ownerProduct, owner, null, 0);
+        createProduct(ownerSecondProduct, owner, null, 0);
+        createProduct(otherProduct, otherSupplier, null, 0);
+
+        // As uploadProductImages leaves it: one row, one reference
+        byte[] content = ("\u0089PNG\r\n\u001a\n" + UUID.randomUUID()).getBytes(StandardCharsets.ISO_8859_1);
+        key = fileStorageService.storeDocument(new ByteArrayInputStream(content), "products");
+        uploadedImageId = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO product_images (image_id, product_id, image_url) VALUES (?, ?, ?)",
+                uploadedImageId, ownerProduct, IMAGE_URL_PREFIX + key);
+        assertEquals(1, refCount());
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM stored_blob WHERE path = ?", key);
+        FileSystemUtils.deleteRecursively(UPLOAD_DIR);
+    }
+
+    @Test
+    void ownerCanReuseAnUploadAndEachRowHoldsAReference() {
+        as(owner);
+        ProductImageResponseDto copy = productImageService.addProductImage(
+                new ProductImageDto(IMAGE_URL_PREFIX + "./" + key, ownerSecondProduct));
+        assertEquals(IMAGE_URL_PREFIX + key, copy.imageUrl());
+        assertEquals(2, refCount());
+
+        productImageService.deleteProductImage(uploadedImageId);
+        assertEquals(1, refCount());
+        assertTrue(Files.exists(UPLOAD_DIR.resolve(key)));
+
+        productImageService.deleteProductImage(jdbcTemplate.queryForObject(
+                "SELECT image_id FROM product_images WHERE product_id = ?", UUID.class, ownerSecondProduct));
+        assertEquals(0, refCount());
+        assertFalse(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void otherSupplierCannotReuseAnUpload() {
+        as(otherSupplier);
+        assertThrows(SecurityException.class, () -> productImageService.addProductImage(
+                new ProductImageDto(IMAGE_URL_PREFIX + key, otherProduct)));
+        assertEquals(1, refCount());
+    }
+
+    @Test
+    void otherSupplierCannotDeleteTheOwnersImage() {
+        as(otherSupplier);
+        assertThrows(SecurityException.class, () -> productImageService.deleteProductImage(uploadedImageId));
+        assertEquals(1, refCount());
+        assertTrue(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void otherSupplierCannotMoveTheOwnersImage() {
+        as(otherSupplier);
+        assertThrows(SecurityException.class, () -> productImageService.updateProductImage(uploadedImageId,
+                new ProductImageDto("https://example.com/a.jpg", otherProduct)));
+        assertEquals(1, refCount());
+    }
+
+    @Test
+    void updateReleasesThePreviousUpload() {
+        as(owner);
+        productImageService.updateProductImage(uploadedImageId, new ProductImageDto("https://example.com/a.jpg", ownerProduct));
+        assertEquals(0, refCount());
+        assertFalse(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void updateToTheSameUploadKeepsIt() {
+        as(owner);
+        productImageService.updateProductImage(uploadedImageId, new ProductImageDto(IMAGE_URL_PREFIX + key, ownerSecondProduct));
+        assertEquals(1, refCount());
+        assertTrue(Files.exists(UPLOAD_DIR.resolve(key)));
+    }
+
+    @Test
+    void urlsOtherThanUploadsAndHttpAreRejected() {
+        as(owner);
+        assertThrows(IllegalArgumentException.class, () -> productImageService.addProductImage(
+                new ProductImageDto("javascript:alert(1)", ownerProduct)));
+        assertThrows(IllegalArgumentException.class, () -> productImageService.addProductImage(
+                new ProductImageDto(IMAGE_URL_PREFIX + "../" + key, ownerProduct)));
+    }
+
+    private int refCount() {
+        List<Integer> refCount = jdbcTemplate.queryForList("SELECT ref_count FROM stored_blob WHERE path = ?", Integer.class, key);
+        return refCount.isEmpty() ? 0 : refCount.get(0);
+    }
+}
@@ -0,0 +1,91 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.ProductDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The product forms may only change the current supplier's own products and stores.
+ */
+class ProductServiceTest extends ServiceTestSupport {
+
+    @Autowired
+    private ProductService productService;
+
+    private final UUID ownerId = UUID.randomUUID();
+    private final UUID otherSupplierId = UUID.randomUUID();
+    private final UUID storeId = UUID.randomUUID();
+    private final UUID otherStoreId = UUID.randomUUID();
+    private final UUID categoryId = UUID.randomUUID();
+    private final UUID productId = UUID.randomUUID();
+
+    @BeforeEach
+    void createProduct() {
+        createUser(ownerId);
+        createUser(otherSupplierId);
+        createStore(storeId, ownerId);
+        createStore(otherStoreId, otherSupplierId);
+        createCategory(categoryId);
+        createProduct(productId, storeId, categoryId, 100);
+    }
+
+    @Test
+    void ownerCanSetStock() {
+        as(ownerId);
+        productService.updateProduct(productId, edit(20));
+        assertEquals(20, stock());
+    }
+
+    @Test
+    void otherSupplierCannotSetStock() {
+        as(otherSupplierId);
+        assertThrows(SecurityException.class, () -> productService.updateProduct(productId, edit(0)));
+        assertEquals(100, stock());
+        assertEquals("test", jdbcTemplate.queryForObject(
+                "SELECT product_name FROM products WHERE product_id = ?", String.class, productId));
+    }
+
+    @Test
+    void otherSupplierCannotMoveTheProductToTheirStoreAndThenSetStock() {
+        as(otherSupplierId);
+        assertThrows(SecurityException.class, () -> productService.updateProduct(productId, edit(otherStoreId, null)));
+        assertEquals(storeId, jdbcTemplate.queryForObject(
+                "SELECT store_id FROM products WHERE product_id = ?", UUID.class, productId));
+
+        assertThrows(SecurityException.class, () -> productService.updateProduct(productId, edit(otherStoreId, 0)));
+        assertEquals(100, stock());
+    }
+
+    @Test
+    void ownerCannotMoveTheProductToAnotherSuppliersStore() {
+        as(ownerId);
+        assertThrows(SecurityException.class, () -> productService.updateProduct(productId, edit(otherStoreId, null)));
+        assertEquals(storeId, jdbcTemplate.queryForObject(
+                "SELECT store_id FROM products WHERE product_id = ?", UUID.class, productId));
+    }
+
+    @Test
+    void productsCanOnlyBeAddedToOwnStores() {
+        as(otherSupplierId);
+        assertThrows(SecurityException.class, () -> productService.addAProduct(edit(storeId, 5)));
+        assertEquals(1, (int) jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM products WHERE store_id = ?", Integer.class, storeId));
+    }
+
+    private ProductDto edit(int stockQuantity) {
+        return edit(storeId, stockQuantity);
+    }
+
+    private ProductDto edit(UUID targetStoreId, Integer stockQuantity) {
+        return new ProductDto(categoryId, targetStoreId, "edited", "edited", 12.0, "5 units", stockQuantity);
+    }
+
+    private int stock() {
+        return jdbcTemplate.queryForObject("SELECT stock_quantity FROM products WHERE product_id = ?", Integer.class, productId);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.dto.UploadSessionDto;
+import org.example.supply_gate_26514.model.VerificationDocumentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Open resumable uploads are limited per user.
+ */
+@SpringBootTest(properties = {
+        "file.upload-dir=target/test-uploads",
+        "app.resumable-upload.directory=target/test-upload-sessions",
+        "app.resumable-upload.max-open-sessions-per-user=2"
+})
+class ResumableUploadServiceTest extends ServiceTestSupport {
+
+    private static final Path SESSION_DIR = Path.of("target/test-upload-sessions");
+
+    @Autowired
+    private ResumableUploadService resumableUploadService;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void signIn() {
+        createUser(userId);
+        as(userId);
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        FileSystemUtils.deleteRecursively(SESSION_DIR);
+    }
+
+    @Test
+    void openSessionsAreCappedPerUser() throws IOException {
+        resumableUploadService.initiate(new UploadSessionDto(VerificationDocumentType.BUSINESS_LICENSE, 100L));
+        resumableUploadService.initiate(new UploadSessionDto(VerificationDocumentType.TAX_CERTIFICATE, 100L));
+        assertThrows(UploadLimitExceededException.class, () ->
+                resumableUploadService.initiate(new UploadSessionDto(VerificationDocumentType.BANK_STATEMENT, 100L)));
+        assertEquals(2, openSessions());
+    }
+
+    @Test
+    void abandonedSessionsDoNotCount() throws IOException {
+        resumableUploadService.initiate(new UploadSessionDto(VerificationDocumentType.BUSINESS_LICENSE, 100L));
+        resumableUploadService.initiate(new UploadSessionDto(VerificationDocumentType.TAX_CERTIFICATE, 100L));
+        jdbcTemplate.update("UPDATE upload_sessions SET last_activity_date = now() - interval '2 days' WHERE user_id = ?", userId);
+
+        resumableUploadService.initiate(new UploadSessionDto(VerificationDocumentType.BANK_STATEMENT, 100L));
+        assertEquals(3, openSessions());
+    }
+
+    private int openSessions() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM upload_sessions WHERE user_id = ?", Integer.class, userId);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.repository.UserRepository;
+import org.example.supply_gate_26514.util.SecurityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Base of the service tests that run against the database.
+ *
+ * The current user is a mock, set with {@link #as}. Users, stores, categories and products
+ * created through the helpers below are deleted after each test, together with the rows that
+ * depend on them (leases, images, verifications, upload sessions, products added by the test).
+ * The services under test commit in transactions of their own, after commit and on other
+ * threads, so rolling back a test transaction would not undo their writes.
+ *
+ * Settings a test changes on InventoryReservationService are restored after it as well.
+ */
+@SpringBootTest
+abstract class ServiceTestSupport {
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InventoryReservationService inventoryReservationService;
+
+    @MockitoBean
+    protected SecurityUtils securityUtils;
+
+    private final List<UUID> users = new ArrayList<>();
+    private final List<UUID> stores = new ArrayList<>();
+    private final List<UUID> categories = new ArrayList<>();
+    private final List<UUID> products = new ArrayList<>();
+
+    private Object leaseIdleSeconds;
+
+    @BeforeEach
+    void rememberSettings() {
+        leaseIdleSeconds = ReflectionTestUtils.getField(inventoryReservationService, "leaseIdleSeconds");
+    }
+
+    @AfterEach
+    void deleteTestData() {
+        ReflectionTestUtils.setField(inventoryReservationService, "leaseIdleSeconds", leaseIdleSeconds);
+        for (UUID storeId : stores) {
+            products.addAll(jdbcTemplate.queryForList("SELECT product_id FROM products WHERE store_id = ?", UUID.class, storeId));
+        }
+        for (UUID productId : products) {
+            jdbcTemplate.update("DELETE FROM stock_lease WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM product_images WHERE product_id = ?", productId);
+            jdbcTemplate.update("DELETE FROM products WHERE product_id = ?", productId);
+        }
+        for (UUID categoryId : categories) {
+            jdbcTemplate.update("DELETE FROM categories WHERE category_id = ?", categoryId);
+        }
+        for (UUID storeId : stores) {
+            jdbcTemplate.update("DELETE FROM stores WHERE store_id = ?", storeId);
+        }
+        for (UUID userId : users) {
+            jdbcTemplate.update("DELETE FROM verifications WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM upload_sessions WHERE user_id = ?", userId);
+            jdbcTemplate.update("DELETE FROM users WHERE user_id = ?", userId);
+        }
+    }
+
+    protected void createUser(UUID userId) {
+        jdbcTemplate.update("INSERT INTO users (user_id, username) VALUES (?, ?)", userId, "test-" + userId);
+        users.add(userId);
+    }
+
+    protected void createStore(UUID storeId, UUID userId) {
+        jdbcTemplate.update("INSERT INTO stores (store_id, user_id, store_name) VALUES (?, ?, 'test')", storeId, userId);
+        stores.add(storeId);
+    }
+
+    protected void createCategory(UUID categoryId) {
+        jdbcTemplate.update("INSERT INTO categories (category_id, category_name) VALUES (?, 'test')", categoryId);
+        categories.add(categoryId);
+    }
+
+    /**
+     * Creates a product named "test" priced 10. Store and category may be null.
+     */
+    protected void createProduct(UUID productId, UUID storeId, UUID categoryId, int stockQuantity) {
+        jdbcTemplate.update("INSERT INTO products (product_id, store_id, category_id, product_name, product_price, stock_quantity) " +
+                "VALUES (?, ?, ?, 'test', 10, ?)", productId, storeId, categoryId, stockQuantity);
+        products.add(productId);
+    }
+
+    /**
+     * Makes the given user the current one.
+     */
+    protected void as(UUID userId) {
+        when(securityUtils.getCurrentUser()).thenAnswer(invocation -> userRepository.findById(userId).orElseThrow());
+        when(securityUtils.getCurrentUserId()).thenReturn(userId);
+    }
+}
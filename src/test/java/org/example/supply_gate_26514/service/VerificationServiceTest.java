@@ -0,0 +1,118 @@
+package org.example.supply_gate_26514.service;
+
+import org.example.supply_gate_26514.model.User;
+import org.example.supply_gate_26514.model.VerificationDocumentType;
+import org.example.supply_gate_26514.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Replacing a document withdraws the review that covered the old one, and the old one's bytes
+ * are only released once the replacement is committed.
+ */
+@SpringBootTest(properties = "file.upload-dir=target/test-uploads")
+class VerificationServiceTest extends ServiceTestSupport {
+
+    private static final Path UPLOAD_DIR = Path.of("target/test-uploads");
+
+    @Autowired
+    private VerificationService verificationService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private ImageVariantService imageVariantService;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID productId = UUID.randomUUID();
+
+    private User user;
+    private String firstKey;
+    private String secondKey;
+
+    @BeforeEach
+    void approveSupplier() throws IOException {
+        createUser(userId);
+        createStore(userId, userId);
+        createProduct(productId, userId, null, 0);
+        jdbcTemplate.update("UPDATE products SET supplier_verified = true WHERE product_id = ?", productId);
+        user = userRepository.findById(userId).orElseThrow();
+
+        firstKey = storeDocument();
+        secondKey = storeDocument();
+        verificationService.attachDocument(user, VerificationDocumentType.BUSINESS_LICENSE, firstKey);
+        jdbcTemplate.update("UPDATE verifications SET status = 'APPROVED', reviewed_by = ? WHERE user_id = ?", userId, userId);
+    }
+
+    @AfterEach
+    void cleanUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM stored_blob WHERE path IN (?, ?)", firstKey, secondKey);
+        FileSystemUtils.deleteRecursively(UPLOAD_DIR);
+    }
+
+    @Test
+    void replacingADocumentWithdrawsTheApproval() {
+        verificationService.attachDocument(user, VerificationDocumentType.BUSINESS_LICENSE, secondKey);
+
+        assertEquals("PENDING", jdbcTemplate.queryForObject("SELECT status FROM verifications WHERE user_id = ?", String.class, userId));
+        assertNull(jdbcTemplate.queryForObject("SELECT reviewed_by FROM verifications WHERE user_id = ?", UUID.class, userId));
+        assertFalse(jdbcTemplate.queryForObject("SELECT supplier_verified FROM products WHERE product_id = ?", Boolean.class, productId));
+    }
+
+    @Test
+    void replacedDocumentIsReleasedAfterCommit() {
+        verificationService.attachDocument(user, VerificationDocumentType.BUSINESS_LICENSE, secondKey);
+
+        assertEquals(0, refCount(firstKey));
+        assertFalse(Files.exists(UPLOAD_DIR.resolve(firstKey)));
+        assertEquals(1, refCount(secondKey));
+    }
+
+    @Test
+    void rolledBackReplacementKeepsThePreviousDocument() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            verificationService.attachDocument(user, VerificationDocumentType.BUSINESS_LICENSE, secondKey);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(1, refCount(firstKey));
+        assertTrue(Files.exists(UPLOAD_DIR.resolve(firstKey)));
+        assertEquals("APPROVED", jdbcTemplate.queryForObject("SELECT status FROM verifications WHERE user_id = ?", String.class, userId));
+        assertTrue(jdbcTemplate.queryForObject("SELECT supplier_verified FROM products WHERE product_id = ?", Boolean.class, productId));
+    }
+
+    private String storeDocument() throws IOException {
+        // PNG signature followed by content unique to this test run
+        byte[] content = ("\u0089PNG\r\n\u001a\n" + UUID.randomUUID()).getBytes(StandardCharsets.ISO_8859_1);
+        return fileStorageService.storeDocument(new ByteArrayInputStream(content), "verifications");
+    }
+
+    private int refCount(String key) {
+        List<Integer> refCount = jdbcTemplate.queryForList("SELECT ref_count FROM stored_blob WHERE path = ?", Integer.class, key);
+        return refCount.isEmpty() ? 0 : refCount.get(0);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.supply_gate_26514.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Off-heap copies are only made for files requested more than once.
+ */
+class HotImageCacheTest {
+
+    private final HotImageCache hotImageCache = new HotImageCache();
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void init() {
+        ReflectionTestUtils.setField(hotImageCache, "enabled", true);
+        ReflectionTestUtils.setField(hotImageCache, "maxBytes", 1024L);
+        ReflectionTestUtils.setField(hotImageCache, "maxEntryBytes", 512L);
+        ReflectionTestUtils.setField(hotImageCache, "meterRegistry", new SimpleMeterRegistry());
+        hotImageCache.init();
+    }
+
+    @Test
+    void firstMissIsNotLoaded() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.jpg"), "first");
+        assertNull(hotImageCache.get(file, 5, 1));
+    }
+
+    @Test
+    void secondRequestLoadsAndLaterOnesHit() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.jpg"), "hot image");
+        assertNull(hotImageCache.get(file, 9, 1));
+
+        ByteBuffer loaded = hotImageCache.get(file, 9, 1);
+        assertNotNull(loaded);
+        assertEquals("hot image", StandardCharsets.UTF_8.decode(loaded).toString());
+
+        // Served from memory: the file is no longer read
+        Files.delete(file);
+        assertNotNull(hotImageCache.get(file, 9, 1));
+    }
+
+    @Test
+    void changedFileIsANewEntry() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.jpg"), "v1");
+        hotImageCache.get(file, 2, 1);
+        assertNotNull(hotImageCache.get(file, 2, 1));
+        assertNull(hotImageCache.get(file, 2, 2));
+    }
+
+    @Test
+    void filesAboveTheEntryLimitAreNeverCached() throws IOException {
+        Path file = Files.write(tempDir.resolve("big.jpg"), new byte[600]);
+        assertNull(hotImageCache.get(file, 600, 1));
+        assertNull(hotImageCache.get(file, 600, 1));
+    }
+}